@@ -1,6 +1,7 @@
 package com.github.t1.deployer.app;
 
 import com.github.t1.deployer.container.AbstractResource;
+import com.github.t1.deployer.container.Container;
 import com.github.t1.deployer.model.Config;
 import com.github.t1.deployer.model.Plan;
 import com.github.t1.deployer.model.Plan.AbstractPlan;
@@ -36,7 +37,7 @@ abstract class AbstractDeployer<
         unpinnedResources().forEach(resource -> read(plan, resource));
     }
 
-    private Stream<RESOURCE> unpinnedResources() {
+    protected Stream<RESOURCE> unpinnedResources() {
         return existingResources().filter(resource -> !isPinned(resource.getId()));
     }
 
@@ -60,7 +61,7 @@ abstract class AbstractDeployer<
         resourcesIn(plan).forEach(this::apply);
 
         if (isManaged())
-            remaining.forEach(this::cleanup);
+            cleanup(remaining);
     }
 
     protected abstract Stream<PLAN> resourcesIn(Plan plan);
@@ -123,8 +124,20 @@ abstract class AbstractDeployer<
 
     protected abstract void auditRegularRemove(RESOURCE resource, PLAN plan, AUDIT audit);
 
+    protected void cleanup(List<RESOURCE> resources) { resources.forEach(this::cleanup); }
+
     protected abstract void cleanup(RESOURCE resource);
 
+    @Override public Deployer forNode(Container container, Audits audits, ArtifactPrefetch prefetch) {
+        AbstractDeployer<PLAN, RESOURCE, AUDIT> node = newInstance(container);
+        node.audits = audits;
+        node.managedResourceNames = managedResourceNames;
+        node.pinnedResourceNames = pinnedResourceNames;
+        return node;
+    }
+
+    protected abstract AbstractDeployer<PLAN, RESOURCE, AUDIT> newInstance(Container container);
+
     public boolean isManaged() {
         return managedResourceNames.equals(singletonList("all")) || managedResourceNames.contains(getType());
     }
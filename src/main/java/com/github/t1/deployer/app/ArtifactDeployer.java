@@ -18,6 +18,8 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.inject.Inject;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -25,6 +27,7 @@ import java.util.stream.Stream;
 import static com.github.t1.deployer.container.DeploymentResource.WAR_SUFFIX;
 import static com.github.t1.deployer.model.ArtifactType.war;
 import static com.github.t1.deployer.model.DeploymentState.deployed;
+import static java.util.stream.Collectors.toList;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 
 @Slf4j
@@ -33,11 +36,25 @@ class ArtifactDeployer extends AbstractDeployer<DeployablePlan, DeploymentResour
 
     @Inject Container container;
     @Inject Repository repository;
+    @Inject ArtifactPrefetch prefetch;
 
     @Override protected boolean isPinned(String name) {
         return "deployer".equals(name) || super.isPinned(name);
     }
 
+    @Override public Deployer forNode(Container container, Audits audits, ArtifactPrefetch prefetch) {
+        ArtifactDeployer node = (ArtifactDeployer) super.forNode(container, audits, prefetch);
+        node.prefetch = prefetch;
+        return node;
+    }
+
+    @Override protected ArtifactDeployer newInstance(Container container) {
+        ArtifactDeployer node = new ArtifactDeployer();
+        node.container = container;
+        node.repository = repository;
+        return node;
+    }
+
     @Override protected Stream<DeploymentResource> existingResources() { return container.allDeployments(); }
 
     @Override protected Stream<DeployablePlan> resourcesIn(Plan plan) { return plan.deployables(); }
@@ -76,7 +93,9 @@ class ArtifactDeployer extends AbstractDeployer<DeployablePlan, DeploymentResour
             return;
         }
 
-        container.builderFor(toDeploymentName(plan)).inputStream(artifact.getInputStream()).redeploy();
+        container.builderFor(toDeploymentName(plan))
+            .contentChecksum(artifact.getChecksum()).inputStream(artifact::getInputStream)
+            .redeploy();
         audit.change("checksum", resource.checksum(), artifact.getChecksum());
 
         if (!Objects.equals(old.getGroupId(), artifact.getGroupId()))
@@ -114,7 +133,8 @@ class ArtifactDeployer extends AbstractDeployer<DeployablePlan, DeploymentResour
             .change("version", null, artifact.getVersion())
             .change("type", null, artifact.getType())
             .change("checksum", null, artifact.getChecksum());
-        return () -> container.builderFor(toDeploymentName(plan)).inputStream(artifact.getInputStream());
+        return () -> container.builderFor(toDeploymentName(plan))
+            .contentChecksum(artifact.getChecksum()).inputStream(artifact::getInputStream);
     }
 
     private Artifact lookupDeployedArtifact(DeployablePlan plan, Artifact old) {
@@ -128,7 +148,7 @@ class ArtifactDeployer extends AbstractDeployer<DeployablePlan, DeploymentResour
     }
 
     private Artifact lookupArtifact(DeployablePlan plan, Version version) {
-        return repository.resolveArtifact(plan.getGroupId(), plan.getArtifactId(), version, plan.getType(),
+        return prefetch.resolveArtifact(plan.getGroupId(), plan.getArtifactId(), version, plan.getType(),
             plan.getClassifier());
     }
 
@@ -142,10 +162,19 @@ class ArtifactDeployer extends AbstractDeployer<DeployablePlan, DeploymentResour
         audit.change("checksum", artifact.getChecksum(), null);
     }
 
+    @Override protected void cleanup(List<DeploymentResource> resources) {
+        Map<Checksum, Artifact> artifacts = lookupByChecksums(resources);
+        resources.forEach(resource -> cleanup(resource, artifacts.get(resource.checksum())));
+    }
+
     @Override protected void cleanup(DeploymentResource resource) {
+        cleanup(resource, repository.lookupByChecksum(resource.checksum()));
+    }
+
+    private void cleanup(DeploymentResource resource, Artifact artifact) {
         log.info("cleanup remaining {}", resource);
         DeployableAudit audit = audit(resource);
-        auditRemove(audit, repository.lookupByChecksum(resource.checksum()));
+        auditRemove(audit, artifact);
         audit.change("checksum", resource.checksum(), null);
         audits.add(audit.removed());
         resource.addRemoveStep();
@@ -159,8 +188,18 @@ class ArtifactDeployer extends AbstractDeployer<DeployablePlan, DeploymentResour
     }
 
 
+    /** Look up the checksums of all deployments at once */
+    @Override public void read(Plan plan) {
+        List<DeploymentResource> deployments = unpinnedResources().collect(toList());
+        Map<Checksum, Artifact> artifacts = lookupByChecksums(deployments);
+        deployments.forEach(deployment -> read(plan, deployment, artifacts.get(deployment.checksum())));
+    }
+
     @Override public void read(Plan plan, DeploymentResource deployment) {
-        Artifact artifact = repository.lookupByChecksum(deployment.checksum());
+        read(plan, deployment, repository.lookupByChecksum(deployment.checksum()));
+    }
+
+    private void read(Plan plan, DeploymentResource deployment, Artifact artifact) {
         plan.addDeployable(
             new DeployablePlan(toDeploymentName(deployment))
                 .setType(artifact.getType())
@@ -172,6 +211,10 @@ class ArtifactDeployer extends AbstractDeployer<DeployablePlan, DeploymentResour
                 .setChecksum(artifact.getChecksum()));
     }
 
+    private Map<Checksum, Artifact> lookupByChecksums(List<DeploymentResource> deployments) {
+        return repository.lookupByChecksums(deployments.stream().map(DeploymentResource::checksum).collect(toList()));
+    }
+
     @Status(BAD_REQUEST)
     private static class RepositoryChecksumMismatchException extends RuntimeException {
         public RepositoryChecksumMismatchException(String message) { super(message); }
@@ -0,0 +1,156 @@
+package com.github.t1.deployer.app;
+
+import com.github.t1.deployer.model.AbstractArtifactPlan;
+import com.github.t1.deployer.model.Artifact;
+import com.github.t1.deployer.model.ArtifactId;
+import com.github.t1.deployer.model.ArtifactType;
+import com.github.t1.deployer.model.Classifier;
+import com.github.t1.deployer.model.Config;
+import com.github.t1.deployer.model.GroupId;
+import com.github.t1.deployer.model.Plan;
+import com.github.t1.deployer.model.Version;
+import com.github.t1.deployer.repository.Repository;
+import com.github.t1.deployer.tools.LimitedExecutor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+import static com.github.t1.deployer.model.ArtifactType.bundle;
+import static com.github.t1.deployer.model.DeploymentState.deployed;
+import static com.github.t1.deployer.tools.Tools.nvl;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Resolves all artifacts of a plan in parallel, before the deployers need them one after the other.
+ * The results are kept for the rest of the request, so e.g. a bundle with many instances is resolved only once.
+ */
+@Slf4j
+@RequestScoped
+public class ArtifactPrefetch {
+    public static final int DEFAULT_THREADS = 8;
+
+    @Inject Repository repository;
+    @Inject @Config("repository.prefetch-threads") Integer threads;
+    @Inject ExecutorService executor;
+
+    private final Map<Coordinates, CompletableFuture<Artifact>> artifacts = new ConcurrentHashMap<>();
+
+    @Value private static class Coordinates {
+        GroupId groupId;
+        ArtifactId artifactId;
+        Version version;
+        ArtifactType type;
+        Classifier classifier;
+    }
+
+    public int threads() { return nvl(threads, DEFAULT_THREADS); }
+
+    public void prefetch(Plan plan) {
+        List<Coordinates> missing = Stream.concat(
+                deployableCoordinates(plan),
+                plan.bundles().map(bundlePlan -> coordinates(bundlePlan, bundle)))
+            .filter(this::isComplete)
+            .distinct()
+            .filter(coordinates -> !artifacts.containsKey(coordinates))
+            .collect(toList());
+        int threadCount = Math.min(threads(), missing.size());
+        if (threadCount < 2)
+            return;
+        log.debug("prefetch {} artifacts with {} threads", missing.size(), threadCount);
+        Executor limited = new LimitedExecutor(executor, threadCount);
+        missing.forEach(coordinates -> artifacts.put(coordinates,
+            CompletableFuture.supplyAsync(() -> resolve(coordinates), limited)));
+    }
+
+    /**
+     * A copy with the artifacts resolved so far, but not bound to the request scope, so it can be used on other
+     * threads, e.g. for the nodes of a fleet. Other artifacts, e.g. for a <code>CURRENT</code> version, are resolved
+     * from the repository when needed.
+     */
+    public ArtifactPrefetch detached() {
+        ArtifactPrefetch detached = new ArtifactPrefetch();
+        detached.repository = repository;
+        detached.threads = threads;
+        detached.executor = executor;
+        detached.artifacts.putAll(artifacts);
+        return detached;
+    }
+
+    /** The artifacts of the deployables to be deployed, as far as they can be resolved */
+    public Stream<Artifact> deployableArtifacts(Plan plan) {
+        return deployableCoordinates(plan)
+            .filter(this::isComplete)
+            .distinct()
+            .map(this::resolveOrNull)
+            .filter(Objects::nonNull);
+    }
+
+    private static Stream<Coordinates> deployableCoordinates(Plan plan) {
+        return plan.deployables()
+            .filter(deployable -> deployable.getState() == deployed)
+            .filter(deployable -> deployable.getVersion() != null)
+            .filter(deployable -> !deployable.getVersion().matches("CURRENT"))
+            .map(deployable -> coordinates(deployable, deployable.getType()));
+    }
+
+    private static Coordinates coordinates(AbstractArtifactPlan plan, ArtifactType type) {
+        return new Coordinates(plan.getGroupId(), plan.getArtifactId(), plan.getVersion(), type, plan.getClassifier());
+    }
+
+    private boolean isComplete(Coordinates coordinates) {
+        return coordinates.groupId != null && coordinates.artifactId != null
+            && coordinates.version != null && coordinates.type != null;
+    }
+
+    /**
+     * The prefetched artifact or, if it hasn't been prefetched, resolve and remember it now.
+     * The repository is called outside of the map, so other coordinates are not blocked meanwhile.
+     */
+    public Artifact resolveArtifact(GroupId groupId, ArtifactId artifactId, Version version,
+                                    ArtifactType type, Classifier classifier) {
+        Coordinates coordinates = new Coordinates(groupId, artifactId, version, type, classifier);
+        CompletableFuture<Artifact> resolving = new CompletableFuture<>();
+        CompletableFuture<Artifact> future = artifacts.putIfAbsent(coordinates, resolving);
+        if (future == null) {
+            future = resolving;
+            try {
+                resolving.complete(resolve(coordinates));
+            } catch (RuntimeException e) {
+                resolving.completeExceptionally(e);
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private Artifact resolveOrNull(Coordinates coordinates) {
+        try {
+            return resolveArtifact(coordinates.groupId, coordinates.artifactId, coordinates.version,
+                coordinates.type, coordinates.classifier);
+        } catch (RuntimeException e) {
+            log.debug("can't resolve {}: {}", coordinates, e.toString());
+            return null;
+        }
+    }
+
+    private Artifact resolve(Coordinates coordinates) {
+        return repository.resolveArtifact(coordinates.groupId, coordinates.artifactId, coordinates.version,
+            coordinates.type, coordinates.classifier);
+    }
+}
@@ -2,6 +2,7 @@ package com.github.t1.deployer.app;
 
 import com.github.t1.deployer.model.Expressions.VariableName;
 import com.github.t1.deployer.model.ProcessState;
+import com.github.t1.deployer.repository.CacheCounts;
 import com.github.t1.log.JsonLogDetail;
 import com.github.t1.log.Logged;
 import lombok.Data;
@@ -35,6 +36,8 @@ public class Audits {
     private final List<Audit> audits = new ArrayList<>();
     private ProcessState processState;
     private List<Warning> warnings;
+    private List<BundleTiming> bundles;
+    private CacheCounts checksumCache;
 
     @Logged(level = DEBUG, returnFormat = "")
     public Audits add(Audit audit) {
@@ -63,4 +66,16 @@ public class Audits {
     public static class Warning {
         String text;
     }
+
+    /**
+     * How long it took to resolve one instance of a bundle, and to download and parse it;
+     * not including the time waiting for a prefetch thread
+     */
+    @Value
+    public static class BundleTiming {
+        String name;
+        String instance;
+        long resolveMillis;
+        long loadMillis;
+    }
 }
@@ -1,5 +1,6 @@
 package com.github.t1.deployer.app;
 
+import com.github.t1.deployer.app.Audits.BundleTiming;
 import com.github.t1.deployer.app.Audits.Warning;
 import com.github.t1.deployer.model.ProcessState;
 import lombok.Value;
@@ -12,4 +13,5 @@ public class AuditsResponse {
     List<Audit> audits;
     List<Warning> warnings;
     ProcessState processState;
+    List<BundleTiming> bundles;
 }
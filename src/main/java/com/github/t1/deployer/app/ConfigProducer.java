@@ -4,12 +4,19 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies.KebabCaseStrategy;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.github.t1.deployer.container.BatchConfig;
 import com.github.t1.deployer.container.Container;
 import com.github.t1.deployer.model.Config;
 import com.github.t1.deployer.model.Expressions.VariableName;
 import com.github.t1.deployer.model.RootBundleConfig;
+import com.github.t1.deployer.repository.ArtifactCacheConfig;
+import com.github.t1.deployer.repository.ChecksumCacheConfig;
+import com.github.t1.deployer.repository.HedgingConfig;
+import com.github.t1.deployer.repository.MirrorConfig;
 import com.github.t1.deployer.repository.RepositoryConfig;
 import com.github.t1.deployer.repository.RepositoryType;
+import com.github.t1.deployer.repository.TransportConfig;
+import com.github.t1.deployer.repository.VersionsCacheConfig;
 import com.github.t1.deployer.tools.KeyStoreConfig;
 import com.github.t1.deployer.tools.Password;
 import lombok.NoArgsConstructor;
@@ -66,6 +73,8 @@ public class ConfigProducer {
         @JsonProperty("manage") private final List<String> managedResourceNames = new ArrayList<>();
         @JsonProperty("pin") private final Map<String, List<String>> pinned = new LinkedHashMap<>();
         @JsonProperty("triggers") private final EnumSet<Trigger> triggers = EnumSet.allOf(Trigger.class);
+        @JsonProperty("batch") private BatchConfig batch;
+        @JsonProperty("fleet") private FleetConfig fleet;
 
         @Override public String toString() { return toYAML(); }
 
@@ -123,6 +132,27 @@ public class ConfigProducer {
     @Produces @Config("repository.releases")
     public String repositoryReleases() { return getRepository().getReleases(); }
 
+    @Produces @Config("repository.cache")
+    public ArtifactCacheConfig repositoryCache() { return getRepository().getCache(); }
+
+    @Produces @Config("repository.checksum-cache")
+    public ChecksumCacheConfig repositoryChecksumCache() { return getRepository().getChecksumCache(); }
+
+    @Produces @Config("repository.versions-cache")
+    public VersionsCacheConfig repositoryVersionsCache() { return getRepository().getVersionsCache(); }
+
+    @Produces @Config("repository.transport")
+    public TransportConfig repositoryTransport() { return getRepository().getTransport(); }
+
+    @Produces @Config("repository.mirrors")
+    public List<MirrorConfig> repositoryMirrors() { return nvl(getRepository().getMirrors(), emptyList()); }
+
+    @Produces @Config("repository.hedging")
+    public HedgingConfig repositoryHedging() { return getRepository().getHedging(); }
+
+    @Produces @Config("repository.prefetch-threads")
+    public Integer repositoryPrefetchThreads() { return getRepository().getPrefetchThreads(); }
+
 
     @Produces @Config("managed.resources")
     public List<String> managedResources() { return nvl(config.managedResourceNames, emptyList()); }
@@ -134,6 +164,13 @@ public class ConfigProducer {
     public Set<Trigger> triggers() { return config.triggers; }
 
 
+    @Produces @Config("batch")
+    public BatchConfig batch() { return config.batch; }
+
+    @Produces @Config("fleet")
+    public FleetConfig fleet() { return nvl(config.fleet, new FleetConfig()); }
+
+
     @Produces @Config("variables")
     public Map<VariableName, String> variables() { return config.variables; }
 
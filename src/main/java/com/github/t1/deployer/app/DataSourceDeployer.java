@@ -63,6 +63,8 @@ class DataSourceDeployer extends
         return property(name, type, DataSourceResource.class, DataSourcePlan.class);
     }
 
+    @Override protected DataSourceDeployer newInstance() { return new DataSourceDeployer(); }
+
     @Override protected String getType() { return "data-sources"; }
 
     @Override protected Stream<DataSourceResource> existingResources() { return container.allDataSources(); }
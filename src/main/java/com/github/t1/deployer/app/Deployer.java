@@ -1,5 +1,6 @@
 package com.github.t1.deployer.app;
 
+import com.github.t1.deployer.container.Container;
 import com.github.t1.deployer.model.Plan;
 
 /** No-generics interface of {@link AbstractDeployer}, so injection works. */
@@ -7,4 +8,10 @@ interface Deployer {
     void read(Plan plan);
 
     void apply(Plan plan);
+
+    /**
+     * A deployer like this one, but for another container, e.g. a node of a fleet, collecting into other audits.
+     * It runs on another thread, so it can't use the request scoped prefetch, but gets a detached one.
+     */
+    Deployer forNode(Container container, Audits audits, ArtifactPrefetch prefetch);
 }
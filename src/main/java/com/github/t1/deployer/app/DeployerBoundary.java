@@ -1,11 +1,16 @@
 package com.github.t1.deployer.app;
 
+import com.github.t1.deployer.app.Audits.BundleTiming;
+import com.github.t1.deployer.container.BatchConfig;
+import com.github.t1.deployer.container.BatchProgress;
 import com.github.t1.deployer.container.Container;
+import com.github.t1.deployer.container.ModelControllerClientProducer;
 import com.github.t1.deployer.model.Artifact;
 import com.github.t1.deployer.model.ArtifactId;
 import com.github.t1.deployer.model.ArtifactType;
 import com.github.t1.deployer.model.BundleName;
 import com.github.t1.deployer.model.BundlePlan;
+import com.github.t1.deployer.model.Checksum;
 import com.github.t1.deployer.model.Config;
 import com.github.t1.deployer.model.Expressions;
 import com.github.t1.deployer.model.Expressions.Match;
@@ -16,15 +21,22 @@ import com.github.t1.deployer.model.Plan;
 import com.github.t1.deployer.model.ProcessState;
 import com.github.t1.deployer.model.RootBundleConfig;
 import com.github.t1.deployer.model.Version;
+import com.github.t1.deployer.repository.ArtifactCache;
 import com.github.t1.deployer.repository.Repository;
 import com.github.t1.deployer.tools.KeyStoreConfig;
+import com.github.t1.deployer.tools.LimitedExecutor;
 import com.github.t1.log.Logged;
 import com.github.t1.problemdetail.Extension;
 import com.github.t1.problemdetail.Status;
 import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.jboss.as.controller.client.ModelControllerClient;
 
+import javax.annotation.Resource;
 import javax.ejb.Asynchronous;
+import javax.ejb.SessionContext;
 import javax.ejb.Stateless;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
@@ -33,19 +45,33 @@ import javax.ws.rs.BadRequestException;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Response;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import static com.github.t1.deployer.app.Trigger.post;
@@ -54,6 +80,8 @@ import static com.github.t1.log.LogLevel.INFO;
 import static java.lang.Boolean.TRUE;
 import static java.nio.file.Files.isRegularFile;
 import static java.util.Collections.emptyMap;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 
@@ -88,18 +116,44 @@ public class DeployerBoundary {
 
     @POST
     public AuditsResponse post(Map<String, String> form) {
+        applyPost(mapVariableNames(form));
+        return response(audits);
+    }
 
-        apply(post, mapVariableNames(form));
+    /**
+     * Long applies don't tie up a http thread: the plan is applied in the background,
+     * and the progress of the batch can be watched at <code>/progress</code>.
+     */
+    @POST
+    @javax.ws.rs.Path("/async")
+    public Response postAsync(Map<String, String> form) {
+        context.getBusinessObject(DeployerBoundary.class).applyPostAsync(mapVariableNames(form));
+        return Response.accepted().location(URI.create("progress")).build();
+    }
 
-        if (reloadRequired()) {
-            container.suspend();
-            container.reload();
+    // must be public, as it's a EJB business method
+    @SuppressWarnings("WeakerAccess")
+    @Asynchronous public void applyPostAsync(Map<VariableName, String> variables) {
+        try {
+            applyPost(variables);
+        } catch (Exception e) { // including e.g. a ChecksumMismatchException
+            log.error("async post failed", e);
         }
+    }
+
+    private void applyPost(Map<VariableName, String> variables) {
+        apply(post, variables);
+
+        if (reloadRequired(audits))
+            container.requestReload(CONTAINER_LOCK);
+    }
 
-        return new AuditsResponse(audits.getAudits(), audits.getWarnings(), audits.getProcessState());
+    private static AuditsResponse response(Audits audits) {
+        return new AuditsResponse(audits.getAudits(), audits.getWarnings(), audits.getProcessState(),
+            audits.getBundles());
     }
 
-    private boolean reloadRequired() {
+    private static boolean reloadRequired(Audits audits) {
         return audits.getProcessState() != running && !Boolean.getBoolean(IGNORE_SERVER_RELOAD);
     }
 
@@ -110,6 +164,71 @@ public class DeployerBoundary {
     }
 
 
+    /**
+     * Resolve the plans and download the artifacts only once, and apply them to all nodes of the fleet.
+     * This server is not part of the fleet, unless it's configured as one of the nodes.
+     */
+    @POST
+    @javax.ws.rs.Path("/fleet")
+    public FleetResponse postFleet(Map<String, String> form) {
+        if (fleet.nodes().isEmpty())
+            throw new BadRequestException("no fleet nodes configured");
+        if (!triggers.contains(post)) {
+            log.info("ignoring disabled trigger {}", post);
+            return new FleetResponse(emptyMap());
+        }
+        List<Plan> plans = loadRootPlan(new Execution().withVariables(mapVariableNames(form))).plans().collect(toList());
+        Map<Checksum, Supplier<InputStream>> contents = new LinkedHashMap<>();
+        plans.forEach(plan -> addContents(plan, contents));
+        ArtifactCache shared = ArtifactCache.temporary();
+        contents.replaceAll((checksum, download) -> Fleet.shared(shared, checksum, download));
+        ArtifactPrefetch resolved = prefetch.detached(); // the nodes run on other threads, outside of this request
+        List<Deployer> templates = new ArrayList<>();
+        deployers.forEach(templates::add);
+
+        try {
+            return new Fleet(fleet, executor).apply(uri -> applyToNode(uri, plans, contents, templates, resolved));
+        } finally {
+            shared.delete();
+        }
+    }
+
+    /** Every node gets its own connection, container, deployers, and audits */
+    @SneakyThrows(IOException.class)
+    private AuditsResponse applyToNode(URI uri, List<Plan> plans, Map<Checksum, Supplier<InputStream>> contents,
+                                       List<Deployer> templates, ArtifactPrefetch resolved) {
+        try (ModelControllerClient client = connect.apply(uri)) {
+            Container node = Container.of(client, batchConfig, executor);
+            Audits nodeAudits = new Audits();
+            List<Deployer> nodeDeployers = templates.stream()
+                .map(deployer -> deployer.forNode(node, nodeAudits, resolved))
+                .collect(toList());
+            try {
+                node.stage(contents);
+            } catch (RuntimeException e) {
+                log.warn("staging to {} failed; upload within batch: {}", uri, e.toString());
+            }
+            try {
+                node.startBatch();
+                plans.forEach(plan -> nodeDeployers.forEach(deployer -> deployer.apply(plan)));
+            } catch (Exception e) {
+                node.rollbackBatch();
+                throw e;
+            }
+            nodeAudits.setProcessState(node.commitBatch());
+            if (reloadRequired(nodeAudits)) {
+                node.suspend();
+                node.reload();
+            }
+            return response(nodeAudits);
+        }
+    }
+
+
+    @GET
+    @javax.ws.rs.Path("/progress")
+    public BatchProgress getProgress() { return container.progress(); }
+
     @GET
     @javax.ws.rs.Path("/repository/versions")
     public List<Version> getVersions(
@@ -185,6 +304,7 @@ public class DeployerBoundary {
     }
 
 
+    @Resource SessionContext context;
     @Inject Principal principal;
     @Inject Container container;
     @Inject Repository repository;
@@ -194,8 +314,13 @@ public class DeployerBoundary {
     @Inject @Config("key-store") KeyStoreConfig keyStore;
     @Inject @Config("triggers") Set<Trigger> triggers;
     @Inject @Config("use.default.config") boolean useDefaultConfig;
+    @Inject @Config("fleet") FleetConfig fleet;
+    @Inject @Config("batch") BatchConfig batchConfig;
+    Function<URI, ModelControllerClient> connect = ModelControllerClientProducer::connect;
 
     @Inject Audits audits;
+    @Inject ArtifactPrefetch prefetch;
+    @Inject ExecutorService executor;
     @Inject Instance<Deployer> deployers;
 
     private Expressions expressions() {
@@ -205,36 +330,64 @@ public class DeployerBoundary {
             .withKeyStore(keyStore);
     }
 
+    /** The plans are loaded and their content is staged before we take the lock, so other requests don't wait */
     public void apply(Trigger trigger, Map<VariableName, String> variables) {
+        if (!triggers.contains(trigger)) {
+            log.info("ignoring disabled trigger {}", trigger);
+            return;
+        }
+        Execution execution = new Execution().withVariables(variables);
+        LoadedPlan root = loadRootPlan(execution);
+        log.debug("function evaluations: {}", execution.expressions.functionEvaluations());
+        stage(root);
         synchronized (CONTAINER_LOCK) {
-            if (triggers.contains(trigger)) {
-                Execution execution = new Execution().withVariables(variables);
+            try {
+                container.startBatch();
+                execution.apply(root, plan -> deployers.forEach(deployer -> deployer.apply(plan)));
+                audits.setBundles(execution.bundleTimings);
+            } catch (Exception e) { // including e.g. a ChecksumMismatchException from reading a download
+                container.rollbackBatch();
+                throw e;
+            }
+            ProcessState processState = container.commitBatch();
 
-                try {
-                    container.startBatch();
-                    if (hasRootBundleConfigFile()) {
-                        Path plan = getRootBundlePath();
-                        log.info("load plan from: {}", plan);
-                        execution.apply(reader(plan), plan.toString());
-                    } else if (useDefaultConfig) {
-                        throw new RuntimeException("For security reasons, applying the default root bundle "
-                            + "is only allowed when there is a configuration file. "
-                            + "See https://github.com/t1/deployer/issues/61");
-                    } else {
-                        log.info("load default root plan");
-                        execution.apply(new StringReader(DEFAULT_ROOT_BUNDLE), "default root bundle");
-                    }
-                } catch (RuntimeException e) {
-                    container.rollbackBatch();
-                    throw e;
-                }
-                ProcessState processState = container.commitBatch();
+            audits.setProcessState(processState);
+            audits.setChecksumCache(repository.checksumCacheCounts());
+            audits.applied(trigger, principal, variables, audits);
+        }
+    }
 
-                audits.setProcessState(processState);
-                audits.applied(trigger, principal, variables, audits);
-            } else {
-                log.info("ignoring disabled trigger {}", trigger);
-            }
+    /**
+     * Upload the content of the deployments in parallel, before we take the lock, so the batch can reference it by
+     * hash. This is only an optimization: if anything fails here, the batch uploads the content itself.
+     */
+    private void stage(LoadedPlan root) {
+        Map<Checksum, Supplier<InputStream>> contents = new LinkedHashMap<>();
+        try {
+            root.plans().forEach(plan -> addContents(plan, contents));
+            container.stage(contents);
+        } catch (RuntimeException e) {
+            log.warn("staging failed; upload within batch: {}", e.toString());
+        }
+    }
+
+    private void addContents(Plan plan, Map<Checksum, Supplier<InputStream>> contents) {
+        prefetch.deployableArtifacts(plan)
+            .forEach(artifact -> contents.putIfAbsent(artifact.getChecksum(), artifact::getInputStream));
+    }
+
+    private LoadedPlan loadRootPlan(Execution execution) {
+        if (hasRootBundleConfigFile()) {
+            Path plan = getRootBundlePath();
+            log.info("load plan from: {}", plan);
+            return execution.load(reader(plan), plan.toString());
+        } else if (useDefaultConfig) {
+            throw new RuntimeException("For security reasons, applying the default root bundle "
+                + "is only allowed when there is a configuration file. "
+                + "See https://github.com/t1/deployer/issues/61");
+        } else {
+            log.info("load default root plan");
+            return execution.load(new StringReader(DEFAULT_ROOT_BUNDLE), "default root bundle");
         }
     }
 
@@ -251,22 +404,48 @@ public class DeployerBoundary {
 
     private class Execution {
         private Expressions expressions = expressions();
+        private final Executor executor = new LimitedExecutor(DeployerBoundary.this.executor, prefetch.threads());
+        private final List<BundleTiming> bundleTimings = new ArrayList<>();
 
         private Execution withVariables(Map<VariableName, String> variables) {
             this.expressions = this.expressions.withAllNew(variables);
             return this;
         }
 
-        private void apply(Reader reader, String sourceMessage) {
+        private LoadedPlan load(Reader reader, String sourceMessage) {
+            try {
+                return load(Plan.load(expressions, reader, sourceMessage), sourceMessage);
+            } catch (RuntimeException e) {
+                throw failure(sourceMessage, e);
+            }
+        }
+
+        /** Applies the plan and then the plans of its bundles, one after the other, in the order they are in the plan */
+        private void apply(LoadedPlan root, Consumer<Plan> action) {
             try {
-                this.apply(Plan.load(expressions, reader, sourceMessage));
+                applyWithBundles(root, action);
             } catch (RuntimeException e) {
-                String message = buildFailureMessage(sourceMessage, e);
-                log.info(message, e);
-                throw new BadRequestException(message, e);
+                throw failure(root.sourceMessage, e);
             }
         }
 
+        private void applyWithBundles(LoadedPlan loaded, Consumer<Plan> action) {
+            action.accept(loaded.plan);
+            for (LoadedPlan bundle : loaded.bundles) {
+                try {
+                    applyWithBundles(bundle, action);
+                } catch (RuntimeException e) {
+                    throw failure(bundle.sourceMessage, e);
+                }
+            }
+        }
+
+        private BadRequestException failure(String sourceMessage, RuntimeException e) {
+            String message = buildFailureMessage(sourceMessage, e);
+            log.info(message, e);
+            return new BadRequestException(message, e);
+        }
+
         private String buildFailureMessage(String sourceMessage, RuntimeException e) {
             StringBuilder failureMessage = new StringBuilder("can't apply plan [" + sourceMessage + "]");
             for (Throwable cause = e; cause != null; cause = cause.getCause())
@@ -275,29 +454,91 @@ public class DeployerBoundary {
             return failureMessage.toString();
         }
 
-        private void apply(Plan plan) {
-            deployers.forEach(deployer -> deployer.apply(plan));
-
-            plan.bundles().forEach(this::applyBundle);
-        }
-
-        private void applyBundle(BundlePlan bundle) {
-            bundle.actualInstances().forEach(instance -> {
+        /**
+         * Downloads and parses all instances of all bundles concurrently. The artifacts are resolved on this thread,
+         * as the request scoped beans are not available on the others.
+         */
+        private LoadedPlan load(Plan plan, String sourceMessage) {
+            prefetch.prefetch(plan);
+            List<Future<LoadedBundle>> futures = plan.bundles()
+                .flatMap(bundle -> bundle.actualInstances().map(instance -> load(bundle, instance)))
+                .collect(toList());
+
+            List<LoadedPlan> bundles = new ArrayList<>();
+            for (Future<LoadedBundle> future : futures) {
+                LoadedBundle bundle = join(future);
+                bundleTimings.add(bundle.timing);
                 Expressions pop = this.expressions;
                 try {
-                    if (instance.getKey() != null)
-                        this.expressions = this.expressions.with(NAME, instance.getKey());
-                    this.expressions = this.expressions.withAllReplacing(instance.getValue());
-                    Artifact artifact = repository.resolveArtifact(bundle.getGroupId(), bundle.getArtifactId(),
-                        bundle.getVersion(), ArtifactType.bundle, bundle.getClassifier());
-                    if (artifact == null)
-                        throw new BundleNotFoundException(bundle);
-                    apply(artifact.getReader(), artifact.toString());
+                    this.expressions = bundle.expressions;
+                    bundles.add(load(bundle.plan, bundle.sourceMessage));
+                } catch (RuntimeException e) {
+                    throw failure(bundle.sourceMessage, e);
                 } finally {
                     this.expressions = pop;
                 }
-            });
+            }
+            return new LoadedPlan(sourceMessage, plan, bundles);
+        }
+
+        private Future<LoadedBundle> load(BundlePlan bundle, Entry<String, Map<VariableName, String>> instance) {
+            long start = System.nanoTime();
+            Expressions expressions = (instance.getKey() == null) ? this.expressions
+                : this.expressions.with(NAME, instance.getKey());
+            Expressions instanceExpressions = expressions.withAllReplacing(instance.getValue());
+            Artifact artifact = prefetch.resolveArtifact(bundle.getGroupId(), bundle.getArtifactId(),
+                bundle.getVersion(), ArtifactType.bundle, bundle.getClassifier());
+            if (artifact == null)
+                throw new BundleNotFoundException(bundle);
+            long resolveMillis = NANOSECONDS.toMillis(System.nanoTime() - start);
+            return CompletableFuture.supplyAsync(() -> {
+                long loadStart = System.nanoTime();
+                Plan plan = load(instanceExpressions, artifact.getReader(), artifact.toString());
+                return new LoadedBundle(instanceExpressions, artifact.toString(), plan,
+                    new BundleTiming(bundle.getName().getValue(), instance.getKey(), resolveMillis,
+                        NANOSECONDS.toMillis(System.nanoTime() - loadStart)));
+            }, executor);
+        }
+
+        private Plan load(Expressions expressions, Reader reader, String sourceMessage) {
+            try {
+                return Plan.load(expressions, reader, sourceMessage);
+            } catch (RuntimeException e) {
+                throw failure(sourceMessage, e);
+            }
         }
+
+        private LoadedBundle join(Future<LoadedBundle> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("interrupted while loading bundle", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    /** A plan with the plans of all instances of its bundles */
+    @RequiredArgsConstructor
+    private static class LoadedPlan {
+        private final String sourceMessage;
+        private final Plan plan;
+        private final List<LoadedPlan> bundles;
+
+        /** This plan and the plans of its bundles in the order they are applied */
+        Stream<Plan> plans() { return Stream.concat(Stream.of(plan), bundles.stream().flatMap(LoadedPlan::plans)); }
+    }
+
+    @RequiredArgsConstructor
+    private static class LoadedBundle {
+        private final Expressions expressions;
+        private final String sourceMessage;
+        private final Plan plan;
+        private final BundleTiming timing;
     }
 
     @Status(BAD_REQUEST) @AllArgsConstructor
@@ -0,0 +1,84 @@
+package com.github.t1.deployer.app;
+
+import com.github.t1.deployer.app.FleetResponse.Node;
+import com.github.t1.deployer.model.Checksum;
+import com.github.t1.deployer.repository.ArtifactCache;
+import com.github.t1.deployer.tools.LimitedExecutor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.github.t1.deployer.app.FleetResponse.State.applied;
+import static com.github.t1.deployer.app.FleetResponse.State.failed;
+import static com.github.t1.deployer.app.FleetResponse.State.skipped;
+
+/**
+ * Applies the same resolved plans to all nodes of a fleet, a bounded number of nodes at a time. The nodes are
+ * applied in waves: when a node fails, the nodes of the later waves are skipped, so a broken plan can be
+ * caught by a first, small wave, before it reaches the rest of the fleet.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class Fleet {
+    private final FleetConfig config;
+    private final Executor executor;
+
+    FleetResponse apply(Function<URI, AuditsResponse> node) {
+        Map<String, Node> nodes = new LinkedHashMap<>();
+        Executor limited = new LimitedExecutor(executor, Math.min(config.parallelism(), config.waveSize()));
+        for (List<String> wave : waves()) {
+            if (nodes.values().stream().anyMatch(result -> result.getState() != applied)) {
+                wave.forEach(name -> nodes.put(name, new Node(skipped, null, null)));
+                continue;
+            }
+            log.info("apply to fleet nodes {}", wave);
+            Map<String, Future<AuditsResponse>> futures = new LinkedHashMap<>();
+            wave.forEach(name -> futures.put(name,
+                CompletableFuture.supplyAsync(() -> node.apply(config.nodes().get(name)), limited)));
+            futures.forEach((name, future) -> nodes.put(name, await(name, future)));
+        }
+        return new FleetResponse(nodes);
+    }
+
+    private List<List<String>> waves() {
+        List<String> names = new ArrayList<>(config.nodes().keySet());
+        List<List<String>> waves = new ArrayList<>();
+        for (int i = 0; i < names.size(); i += config.waveSize())
+            waves.add(names.subList(i, Math.min(i + config.waveSize(), names.size())));
+        return waves;
+    }
+
+    private static Node await(String name, Future<AuditsResponse> future) {
+        try {
+            AuditsResponse audits = future.get();
+            log.info("applied to fleet node {}: {}", name, audits.getProcessState());
+            return new Node(applied, audits, null);
+        } catch (ExecutionException e) {
+            log.warn("failed to apply to fleet node {}", name, e.getCause());
+            return new Node(failed, null, e.getCause().toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return new Node(failed, null, "interrupted");
+        }
+    }
+
+    /** Download the content only once for all nodes; it's kept in a file of the cache until the fleet is done */
+    static Supplier<InputStream> shared(ArtifactCache cache, Checksum checksum, Supplier<InputStream> download) {
+        return new Supplier<>() {
+            @Override public synchronized InputStream get() { return cache.get(checksum, download); }
+        };
+    }
+}
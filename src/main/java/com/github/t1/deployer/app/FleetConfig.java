@@ -0,0 +1,29 @@
+package com.github.t1.deployer.app;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.net.URI;
+import java.util.Map;
+
+import static com.github.t1.deployer.tools.Tools.nvl;
+import static java.util.Collections.emptyMap;
+
+@Data
+@Accessors(chain = true)
+public class FleetConfig {
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /** The management endpoints of the nodes by name, e.g. <code>remote+http://node-1:9990</code> */
+    Map<String, URI> nodes;
+    /** How many nodes are applied concurrently */
+    Integer parallelism;
+    /** How many nodes are applied before the next wave starts; by default, all nodes are in one wave */
+    Integer waveSize;
+
+    Map<String, URI> nodes() { return nvl(nodes, emptyMap()); }
+
+    int parallelism() { return Math.max(1, nvl(parallelism, DEFAULT_PARALLELISM)); }
+
+    int waveSize() { return Math.max(1, nvl(waveSize, nodes().size())); }
+}
@@ -0,0 +1,20 @@
+package com.github.t1.deployer.app;
+
+import lombok.Value;
+
+import java.util.Map;
+
+/** The outcome of applying a plan to every node of the fleet, by node name */
+@Value
+public class FleetResponse {
+    public enum State {applied, failed, skipped}
+
+    @Value
+    public static class Node {
+        State state;
+        AuditsResponse audits;
+        String failure;
+    }
+
+    Map<String, Node> nodes;
+}
@@ -43,6 +43,8 @@ class LogHandlerDeployer extends
         property(name, type, LogHandlerResource.class, LogHandlerPlan.class);
     }
 
+    @Override protected LogHandlerDeployer newInstance() { return new LogHandlerDeployer(); }
+
     @Override protected String getType() { return "log-handlers"; }
 
     @Override protected Stream<LogHandlerResource> existingResources() { return container.allLogHandlers(); }
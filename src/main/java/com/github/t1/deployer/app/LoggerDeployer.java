@@ -28,6 +28,8 @@ class LoggerDeployer extends ResourceDeployer<LoggerPlan, Supplier<LoggerResourc
         return property(name, type, LoggerResource.class, LoggerPlan.class);
     }
 
+    @Override protected LoggerDeployer newInstance() { return new LoggerDeployer(); }
+
     @Override protected String getType() { return "loggers"; }
 
     @Override protected Stream<LoggerResource> existingResources() { return container.allLoggers(); }
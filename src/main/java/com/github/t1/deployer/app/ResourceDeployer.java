@@ -145,6 +145,14 @@ abstract class ResourceDeployer<
 
     private final List<Property<?>> properties = new ArrayList<>();
 
+    @Override protected ResourceDeployer<PLAN, BUILDER, RESOURCE, AUDIT> newInstance(Container container) {
+        ResourceDeployer<PLAN, BUILDER, RESOURCE, AUDIT> node = newInstance();
+        node.container = container;
+        return node;
+    }
+
+    protected abstract ResourceDeployer<PLAN, BUILDER, RESOURCE, AUDIT> newInstance();
+
 
     protected <TYPE> Property<TYPE> property(String name, Class<TYPE> type, Class<RESOURCE> resource, Class<PLAN> plan) {
         return this.<TYPE>property(name)
@@ -3,25 +3,18 @@ package com.github.t1.deployer.container;
 import com.github.t1.deployer.model.Age;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 import org.jboss.dmr.ModelNode;
 
 import java.io.InputStream;
 import java.util.Optional;
 
-import static com.github.t1.deployer.container.Batch.isNotFoundMessage;
-import static org.jboss.as.controller.client.helpers.ClientConstants.RESULT;
-import static org.jboss.as.controller.client.helpers.Operations.createReadResourceOperation;
 import static org.jboss.as.controller.client.helpers.Operations.createRemoveOperation;
-import static org.jboss.as.controller.client.helpers.Operations.getFailureDescription;
-import static org.jboss.as.controller.client.helpers.Operations.isSuccessfulOutcome;
 
 /**
  * Resources represent the configured state of the JavaEE container. They are responsible to add,
  * remove, or update (using overloaded `updateSomething` methods) the current state in the container;
  * and to provide information about an existing resource with {@link #isDeployed()} and various fluent getters.
  */
-@Slf4j
 @RequiredArgsConstructor
 public abstract class AbstractResource<T extends AbstractResource<T>> {
     @NonNull private final Batch batch;
@@ -41,22 +34,14 @@ public abstract class AbstractResource<T extends AbstractResource<T>> {
     }
 
     protected void read(ModelNode address) {
-        ModelNode readResource = createReadResourceOperation(address, true);
-        ModelNode response = batch.executeRaw(readResource);
-        if (response == null)
-            throw new RuntimeException("read-resource not properly mocked: " + this);
-        if (isSuccessfulOutcome(response)) {
-            this.deployed = true;
-            readFrom(response.get(RESULT));
-        } else if (isNotFoundMessage(response)) {
-            this.deployed = false;
-        } else {
-            log.error("failed: {}", response);
-            throw new RuntimeException("outcome " + response.get("outcome").asString()
-                    + ": " + getFailureDescription(response));
-        }
+        ModelNode result = batch.snapshot().readResource(address);
+        this.deployed = (result != null);
+        if (deployed)
+            readFrom(result);
     }
 
+    protected Batch batch() { return batch; }
+
     protected abstract ModelNode address();
 
     protected abstract void readFrom(ModelNode result);
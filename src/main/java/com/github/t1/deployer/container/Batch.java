@@ -1,71 +1,97 @@
 package com.github.t1.deployer.container;
 
+import com.github.t1.deployer.model.Checksum;
+import com.github.t1.deployer.model.Config;
 import com.github.t1.deployer.model.ProcessState;
+import com.github.t1.deployer.tools.LimitedExecutor;
 import com.github.t1.problemdetail.Extension;
 import com.github.t1.problemdetail.Status;
 import lombok.AllArgsConstructor;
-import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
-import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
 import org.jboss.as.controller.client.ModelControllerClient;
 import org.jboss.as.controller.client.Operation;
+import org.jboss.as.controller.client.OperationBuilder;
 import org.jboss.as.controller.client.OperationMessageHandler;
 import org.jboss.as.controller.client.helpers.Operations;
 import org.jboss.dmr.ModelNode;
+import org.jboss.threads.AsyncFuture;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.ws.rs.BadRequestException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
-import java.util.stream.Stream;
+import java.util.function.Supplier;
 
-import static com.github.t1.deployer.container.Batch.TypeEnum.DATA_SOURCE;
-import static com.github.t1.deployer.container.Batch.TypeEnum.DEPLOYABLE;
-import static com.github.t1.deployer.container.Batch.TypeEnum.LOGGER;
-import static com.github.t1.deployer.container.Batch.TypeEnum.LOG_HANDLER;
-import static com.github.t1.deployer.container.Batch.TypeEnum.UNKNOWN;
 import static com.github.t1.deployer.container.Container.CLI_DEBUG;
 import static com.github.t1.deployer.model.ProcessState.reloadRequired;
 import static com.github.t1.deployer.model.ProcessState.restartRequired;
 import static com.github.t1.deployer.model.ProcessState.running;
-import static java.util.Locale.US;
+import static com.github.t1.deployer.tools.Tools.nvl;
+import static java.util.Collections.singletonList;
+import static java.util.Comparator.naturalOrder;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
-import static org.jboss.as.controller.client.helpers.ClientConstants.ADDRESS;
+import static org.jboss.as.controller.client.helpers.ClientConstants.CONTENT;
 import static org.jboss.as.controller.client.helpers.ClientConstants.CONTROLLER_PROCESS_STATE_RELOAD_REQUIRED;
 import static org.jboss.as.controller.client.helpers.ClientConstants.CONTROLLER_PROCESS_STATE_RESTART_REQUIRED;
 import static org.jboss.as.controller.client.helpers.ClientConstants.CONTROLLER_PROCESS_STATE_RUNNING;
 import static org.jboss.as.controller.client.helpers.ClientConstants.CONTROLLER_PROCESS_STATE_STARTING;
 import static org.jboss.as.controller.client.helpers.ClientConstants.CONTROLLER_PROCESS_STATE_STOPPING;
 import static org.jboss.as.controller.client.helpers.ClientConstants.FAILURE_DESCRIPTION;
+import static org.jboss.as.controller.client.helpers.ClientConstants.INPUT_STREAM_INDEX;
 import static org.jboss.as.controller.client.helpers.ClientConstants.NAME;
-import static org.jboss.as.controller.client.helpers.ClientConstants.OP;
 import static org.jboss.as.controller.client.helpers.ClientConstants.OUTCOME;
 import static org.jboss.as.controller.client.helpers.ClientConstants.RESPONSE_HEADERS;
+import static org.jboss.as.controller.client.helpers.ClientConstants.RESULT;
 import static org.jboss.as.controller.client.helpers.ClientConstants.STEPS;
 import static org.jboss.as.controller.client.helpers.ClientConstants.VALUE;
 import static org.jboss.as.controller.client.helpers.ClientConstants.WRITE_ATTRIBUTE_OPERATION;
 import static org.jboss.as.controller.client.helpers.Operations.CompositeOperationBuilder;
+import static org.jboss.as.controller.client.helpers.Operations.createCompositeOperation;
 import static org.jboss.as.controller.client.helpers.Operations.createOperation;
-import static org.jboss.as.controller.client.helpers.Operations.createReadResourceOperation;
+import static org.jboss.as.controller.client.helpers.Operations.createReadAttributeOperation;
 import static org.jboss.as.controller.client.helpers.Operations.isSuccessfulOutcome;
 import static org.wildfly.plugin.core.ServerHelper.waitForStandalone;
 
 @Slf4j
 @RequestScoped
 class Batch {
-    private static int nextId = 0;
-    private final int id = nextId++;
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+    private final int id = NEXT_ID.getAndIncrement();
 
     private static final boolean DEBUG = Boolean.getBoolean(CLI_DEBUG);
     private static final int STARTUP_TIMEOUT = 30;
+    private static final int STAGING_THREADS = 4;
+    private static final Duration PROGRESS_INTERVAL = Duration.ofSeconds(10);
+    /**
+     * The container removes content that is not referenced by a deployment, when it's still unreferenced one cleanup
+     * interval after it has been marked obsolete, i.e. not before 5 minutes by default. As there is no operation to
+     * check if some content is still there, we reference staged content by hash only within this time.
+     */
+    static final Duration STAGED_CONTENT_GRACE = Duration.ofMinutes(1);
+
+    /** The current or last batch of this container, for all requests */
+    private static volatile BatchProgress progress;
 
     private static final OperationMessageHandler LOGGING = (severity, message) -> {
         switch (severity) {
@@ -82,8 +108,18 @@ class Batch {
     };
 
     @Inject ModelControllerClient client;
+    @Inject @Config("batch") BatchConfig config;
+    @Inject ExecutorService executor;
 
     private CompositeOperationBuilder batch;
+    private ContainerSnapshot snapshot;
+    /** The content of the deployments that are replaced or removed in this batch, by deployment name */
+    private final Map<String, Checksum> releasedContent = new HashMap<>();
+    private final List<RecordingInputStream> inputStreams = new ArrayList<>();
+    private final Map<Checksum, Instant> stagedContent = new ConcurrentHashMap<>();
+    Clock clock = Clock.systemUTC();
+    /** Only the batches of this container report their {@link #progress}, not those of e.g. fleet nodes */
+    boolean local = true;
 
 
     @SneakyThrows({InterruptedException.class, TimeoutException.class})
@@ -105,8 +141,15 @@ class Batch {
         executeEmptyOperation("shutdown");
     }
 
+    public boolean isRunning() {
+        ModelNode response = executeRaw(createReadAttributeOperation(new ModelNode().setEmptyList(), "server-state"));
+        return isSuccessfulOutcome(response)
+            && CONTROLLER_PROCESS_STATE_RUNNING.equals(response.get(RESULT).asString());
+    }
+
     private void executeEmptyOperation(String operation) {
         log.info(operation);
+        this.snapshot = null;
         ModelNode shutdown = Operations.createOperation(operation, new ModelNode().setEmptyList());
         ModelNode result = executeRaw(shutdown);
         if (!isSuccessfulOutcome(result))
@@ -116,10 +159,44 @@ class Batch {
 
     public int addInputStreamAndReturnIndex(InputStream inputStream) {
         int index = batch.getInputStreamCount();
-        batch.addInputStream(inputStream);
+        RecordingInputStream recording = new RecordingInputStream(inputStream);
+        inputStreams.add(recording);
+        batch.addInputStream(recording);
         return index;
     }
 
+    /**
+     * Remembers why reading failed, e.g. with a {@link com.github.t1.deployer.repository.ChecksumMismatchException},
+     * as the client only reports that the container couldn't read the stream.
+     */
+    private static class RecordingInputStream extends FilterInputStream {
+        private IOException failure;
+
+        RecordingInputStream(InputStream in) { super(in); }
+
+        @Override public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (IOException e) {
+                throw failed(e);
+            }
+        }
+
+        @Override public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                return super.read(buffer, offset, length);
+            } catch (IOException e) {
+                throw failed(e);
+            }
+        }
+
+        private IOException failed(IOException e) {
+            if (failure == null)
+                failure = e;
+            return e;
+        }
+    }
+
     public <T> void writeAttr(ModelNode address, String name, BiFunction<ModelNode, T, ModelNode> set, T value) {
         ModelNode request = createOperation(WRITE_ATTRIBUTE_OPERATION, address);
         request.get(NAME).set(name);
@@ -147,12 +224,76 @@ class Batch {
     }
 
 
-    public Stream<ModelNode> readResource(ModelNode address) {
-        ModelNode result = executeRaw(createReadResourceOperation(address, true));
-        checkResponse(result);
-        return result.get("result").asList().stream();
+    /**
+     * Read only once per request, e.g. for all resources of the effective plan, and then within a batch, as nothing
+     * is written to the container until it's committed. Committing, rolling back, or reloading reads it again.
+     */
+    ContainerSnapshot snapshot() {
+        if (snapshot == null)
+            snapshot = ContainerSnapshot.read(this);
+        return snapshot;
+    }
+
+    /**
+     * Upload the contents that are not in the container, yet, in parallel and before the batch is started,
+     * so the batch only has to reference them by hash. Content that fails to upload is uploaded with the batch.
+     * Note that the container removes content that is not referenced by a deployment after a while.
+     */
+    void stage(Map<Checksum, Supplier<InputStream>> contents) {
+        if (contents.isEmpty())
+            return;
+        Set<Checksum> existing = DeploymentResource.deployedContent(this);
+        List<Checksum> missing = contents.keySet().stream()
+            .filter(checksum -> !existing.contains(checksum))
+            .collect(toList());
+        if (missing.isEmpty())
+            return;
+        log.debug("stage {} contents", missing.size());
+        Executor limited = new LimitedExecutor(executor, STAGING_THREADS);
+        CompletableFuture.allOf(missing.stream()
+            .map(checksum -> CompletableFuture.runAsync(() -> upload(checksum, contents.get(checksum)), limited))
+            .toArray(CompletableFuture[]::new))
+            .join();
+    }
+
+    private void upload(Checksum checksum, Supplier<InputStream> content) {
+        ModelNode request = createOperation("upload-deployment-stream", new ModelNode().setEmptyList());
+        request.get(INPUT_STREAM_INDEX).set(0);
+        try (InputStream inputStream = content.get()) {
+            logCli("stage content {}", checksum);
+            ModelNode response = client.execute(OperationBuilder.create(request).addInputStream(inputStream).build(),
+                LOGGING);
+            logCli("response {}", response);
+            if (!isSuccessfulOutcome(response)) {
+                log.warn("failed to stage content {}: {}", checksum, response.get(FAILURE_DESCRIPTION));
+            } else if (!checksum.equals(Checksum.of(response.get(RESULT).asBytes()))) {
+                log.warn("staged content {} but the container has hash {}", checksum, response.get(RESULT));
+            } else {
+                stagedContent.put(checksum, clock.instant());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("failed to stage content " + checksum, e);
+        }
+    }
+
+    /** Staged content may have been removed by the container, while we were waiting for the batch to start */
+    boolean isStagedContent(Checksum checksum) {
+        Instant staged = stagedContent.get(checksum);
+        if (staged == null)
+            return false;
+        if (staged.plus(STAGED_CONTENT_GRACE).isAfter(clock.instant()))
+            return true;
+        log.debug("staged content {} may have been removed by the container", checksum);
+        return false;
+    }
+
+    void releaseContent(String deployment, Checksum checksum) {
+        if (checksum != null)
+            releasedContent.put(deployment, checksum);
     }
 
+    boolean isReleasedContent(Checksum checksum) { return releasedContent.containsValue(checksum); }
+
     public void addStep(ModelNode request) {
         assert batch != null : "batch " + id + " not started";
 
@@ -226,113 +367,149 @@ class Batch {
             throw new IllegalStateException("already started batch " + id);
         log.debug("--------- start batch {}", id);
         this.batch = CompositeOperationBuilder.create(true);
+        this.releasedContent.clear();
+        this.inputStreams.clear();
     }
 
     public void rollbackBatch() {
         if (this.batch == null)
             throw new IllegalStateException("no batch " + id + " started");
         log.debug("--------- rollback batch {}", id);
-        this.batch = null;
+        reset();
     }
 
+    /** A batch that fails is rolled back, so the next one can be started */
     @SneakyThrows(IOException.class)
     public ProcessState commitBatch() {
         if (this.batch == null)
             throw new IllegalStateException("no batch " + id + " started");
         log.debug("--------- commit batch {}", id);
-        Operation operation = batch.build();
-        logCli("------------------------------\n{}\n------------------------------", operation.getOperation());
-        assert operation.getOperation().has(STEPS);
-        ProcessState processState;
-        if (operation.getOperation().get(STEPS).has(0)) {
-            sortSteps(operation.getOperation().get(STEPS));
-            logCli("execute batch: {}", operation.getOperation());
-            ModelNode result = client.execute(operation, LOGGING);
-            logCli("response {}", result);
-            processState = checkResponse(result);
-        } else {
-            processState = running;
-            log.debug("no batch to execute");
+        try {
+            Operation operation = batch.build();
+            logCli("------------------------------\n{}\n------------------------------", operation.getOperation());
+            assert operation.getOperation().has(STEPS);
+            if (!operation.getOperation().get(STEPS).has(0)) {
+                log.debug("no batch to execute");
+                return running;
+            }
+            List<Operation> composites = plan(operation);
+            composites.forEach(composite -> logCli("execute batch: {}", composite.getOperation()));
+            List<ModelNode> results;
+            try {
+                results = executeAsync(composites);
+            } catch (IOException | RuntimeException e) {
+                checkInputStreams();
+                throw e;
+            }
+            results.forEach(result -> logCli("response {}", result));
+            checkInputStreams();
+            return results.stream().map(this::checkResponse).max(naturalOrder()).orElse(running);
+        } finally {
+            reset();
         }
+    }
+
+    /** A failure reading an input stream is more specific than the failure the container reports for it */
+    private void checkInputStreams() throws IOException {
+        for (RecordingInputStream inputStream : inputStreams)
+            if (inputStream.failure != null)
+                throw inputStream.failure;
+    }
+
+    private void reset() {
         this.batch = null;
-        return processState;
+        this.snapshot = null;
+        this.releasedContent.clear();
+        this.stagedContent.clear();
+        this.inputStreams.clear();
     }
 
     /**
-     * We sort the steps to prevent dependency problems like loggers depending on log-handlers and so that deployables
-     * can use their loggers when they are deployed.
-     * <p>
-     * - add log-handlers
-     * - add loggers
-     * - add data-sources
-     * - add deployables
-     * - all updates
-     * - remove deployables
-     * - remove data-sources
-     * - remove loggers
-     * - remove log-handlers
-     * <p>
-     * We can't reasonably do this ordering from within the deployers, as they do the adding _and_ the removing.
+     * The steps in the order of their dependencies, see {@link StepGraph}. When the batch doesn't have to be atomic,
+     * steps that don't depend on each other go into separate composites, each with the input streams it uses.
      */
-    private void sortSteps(ModelNode steps) {
-        List<ModelNode> list = new ArrayList<>(steps.asList());
-        list.sort(Comparator.comparing(Batch::operation)
-            .thenComparing(node -> operation(node).factor() * type(node).ordinal()));
-        steps.set(list);
-    }
-
-    @SuppressWarnings("unused")
-    @RequiredArgsConstructor
-    private enum OperationEnum {
-        ADD(1),
-        ADD_HANDLER(1),
-        WRITE_ATTRIBUTE(1),
-        MAP_PUT(1),
-        MAP_REMOVE(1),
-        FULL_REPLACE_DEPLOYMENT(1),
-        UNDEPLOY(-1),
-        REMOVE(-1),
-        REMOVE_HANDLER(-1);
-
-        @Getter @Accessors(fluent = true)
-        private final int factor;
-    }
-
-    enum TypeEnum {LOG_HANDLER, LOGGER, DATA_SOURCE, DEPLOYABLE, UNKNOWN}
-
-    private static OperationEnum operation(ModelNode node) {
-        return OperationEnum.valueOf(node.get(OP).asString().toUpperCase(US).replace('-', '_'));
-    }
-
-    private static TypeEnum type(ModelNode node) {
-        ModelNode address = node.get(ADDRESS);
-        if (address.asPropertyList().isEmpty())
-            return UNKNOWN;
-        switch (address.asPropertyList().get(0).getName()) {
-            case "deployment":
-                return DEPLOYABLE;
-            case "subsystem":
-                switch (address.asPropertyList().get(0).getValue().asString()) {
-                    case "logging":
-                        switch (address.asPropertyList().get(1).getName()) {
-                            case "logger":
-                                return LOGGER;
-                            case "console-handler":
-                            case "custom-handler":
-                            case "periodic-rotating-file-handler":
-                                return LOG_HANDLER;
-                        }
-                    case "datasources":
-                        switch (address.asPropertyList().get(1).getName()) {
-                            case "data-source":
-                            case "xa-data-source":
-                                return DATA_SOURCE;
-                        }
+    private List<Operation> plan(Operation operation) {
+        StepGraph graph = new StepGraph(operation.getOperation().get(STEPS).asList(), releasedContent);
+        if (config().atomic()) {
+            operation.getOperation().get(STEPS).set(graph.ordered());
+            return singletonList(operation);
+        }
+        List<List<ModelNode>> independent = graph.independent();
+        log.debug("split batch {} into {} composites", id, independent.size());
+        return independent.stream()
+            .map(steps -> composite(steps, operation.getInputStreams()))
+            .collect(toList());
+    }
+
+    private BatchConfig config() { return nvl(config, new BatchConfig()); }
+
+    private static Operation composite(List<ModelNode> steps, List<InputStream> inputStreams) {
+        ModelNode composite = createCompositeOperation();
+        List<InputStream> used = new ArrayList<>();
+        for (ModelNode step : steps) {
+            ModelNode copy = step.clone();
+            if (copy.hasDefined(CONTENT))
+                for (int i = 0; i < copy.get(CONTENT).asList().size(); i++) {
+                    ModelNode content = copy.get(CONTENT).get(i);
+                    if (content.hasDefined(INPUT_STREAM_INDEX)) {
+                        used.add(inputStreams.get(content.get(INPUT_STREAM_INDEX).asInt()));
+                        content.get(INPUT_STREAM_INDEX).set(used.size() - 1);
+                    }
                 }
+            composite.get(STEPS).add(copy);
+        }
+        OperationBuilder builder = OperationBuilder.create(composite, true);
+        used.forEach(builder::addInputStream);
+        return builder.build();
+    }
+
+    /**
+     * Wait for the composites, logging the progress from time to time, instead of blocking in the client.
+     * To not tie up a http thread while waiting, <code>POST /async</code> applies the plan in the background.
+     */
+    private List<ModelNode> executeAsync(List<Operation> composites) throws IOException {
+        BatchProgress progress = new BatchProgress(id, composites.stream()
+            .map(composite -> composite.getOperation().get(STEPS).asList())
+            .collect(toList()));
+        if (local)
+            Batch.progress = progress;
+        if (progress.isReloadPredicted())
+            log.info("batch {} will probably require a reload", id);
+        List<AsyncFuture<ModelNode>> futures = composites.stream()
+            .map(composite -> client.executeAsync(composite, progress.handler(LOGGING)))
+            .collect(toList());
+        try {
+            List<ModelNode> results = new ArrayList<>();
+            for (AsyncFuture<ModelNode> future : futures)
+                results.add(await(future, progress));
+            progress.done(results);
+            return results;
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.asyncCancel(true));
+            Thread.currentThread().interrupt();
+            progress.failed(e);
+            throw new IOException("interrupted while waiting for batch " + id, e);
+        } catch (ExecutionException e) {
+            progress.failed(e);
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new RuntimeException("batch " + id + " failed", e.getCause());
+        }
+    }
+
+    private static ModelNode await(AsyncFuture<ModelNode> future, BatchProgress progress)
+        throws InterruptedException, ExecutionException {
+        while (true) {
+            try {
+                return future.get(PROGRESS_INTERVAL.toMillis(), MILLISECONDS);
+            } catch (TimeoutException e) {
+                log.info("{}", progress);
+            }
         }
-        throw new IllegalArgumentException("unsupported node type: " + address);
     }
 
+    public BatchProgress progress() { return progress; }
+
     @Status(BAD_REQUEST)
     private static class UnexpectedlyStillStartingException extends RuntimeException {}
 
@@ -0,0 +1,28 @@
+package com.github.t1.deployer.container;
+
+import com.github.t1.deployer.model.Age;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.Duration;
+
+import static com.github.t1.deployer.tools.Tools.nvl;
+
+@Data
+@Accessors(chain = true)
+public class BatchConfig {
+    public static final Age DEFAULT_RELOAD_WINDOW = new Age(Duration.ZERO);
+
+    /**
+     * Execute all changes in one composite, so they are applied all or nothing. Otherwise, changes that don't
+     * depend on each other are executed in separate composites concurrently, and a failing one doesn't roll back
+     * the others.
+     */
+    Boolean atomic;
+    /** How long to wait for further changes that require a reload, before reloading; zero reloads immediately. */
+    Age reloadWindow;
+
+    boolean atomic() { return nvl(atomic, true); }
+
+    Duration reloadWindow() { return nvl(reloadWindow, DEFAULT_RELOAD_WINDOW).getDuration(); }
+}
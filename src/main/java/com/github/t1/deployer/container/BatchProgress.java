@@ -0,0 +1,126 @@
+package com.github.t1.deployer.container;
+
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.jboss.as.controller.client.OperationMessageHandler;
+import org.jboss.as.controller.client.helpers.Operations;
+import org.jboss.dmr.ModelNode;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.github.t1.deployer.container.BatchProgress.State.failed;
+import static com.github.t1.deployer.container.BatchProgress.State.running;
+import static com.github.t1.deployer.container.BatchProgress.State.succeeded;
+import static lombok.AccessLevel.NONE;
+import static org.jboss.as.controller.client.helpers.ClientConstants.ADDRESS;
+import static org.jboss.as.controller.client.helpers.ClientConstants.OP;
+import static org.jboss.as.controller.client.helpers.ClientConstants.OUTCOME;
+import static org.jboss.as.controller.client.helpers.ClientConstants.RESULT;
+import static org.jboss.dmr.ModelType.OBJECT;
+
+/**
+ * What the current or the last batch does, so a long running apply can be told apart from a hung one.
+ * The container executes a batch as one composite operation, so the outcome of the single steps is
+ * only known when the batch is done; until then, we have the elapsed time and the messages of the container.
+ */
+@Slf4j
+@Getter
+public class BatchProgress {
+    public enum State {running, succeeded, failed}
+
+    @Value
+    public static class Step {
+        /** The composites run concurrently, when the batch is not atomic */
+        int composite;
+        int index;
+        String operation;
+        String address;
+        /** Predicted before the batch is executed */
+        boolean reload;
+        String outcome;
+
+        private Step withOutcome(String outcome) {
+            return new Step(composite, index, operation, address, reload, outcome);
+        }
+    }
+
+    private final int batch;
+    private final String started;
+    private volatile State state = running;
+    private volatile List<Step> steps;
+    private final List<String> messages = new CopyOnWriteArrayList<>();
+
+    @Getter(NONE) private final Instant start = Instant.now();
+    @Getter(NONE) private volatile Instant end;
+
+    BatchProgress(int batch, List<List<ModelNode>> composites) {
+        this.batch = batch;
+        this.started = start.toString();
+        this.steps = IntStream.range(0, composites.size())
+            .mapToObj(c -> steps(c + 1, composites.get(c)))
+            .flatMap(List::stream)
+            .collect(Collectors.toList());
+    }
+
+    private static List<Step> steps(int composite, List<ModelNode> steps) {
+        return IntStream.range(0, steps.size())
+            .mapToObj(i -> new Step(composite, i + 1, steps.get(i).get(OP).asString(), address(steps.get(i)),
+                StepGraph.requiresReload(steps.get(i)), null))
+            .collect(Collectors.toList());
+    }
+
+    private static String address(ModelNode step) {
+        return step.get(ADDRESS).asPropertyList().stream()
+            .map(property -> "/" + property.getName() + "=" + property.getValue().asString())
+            .collect(Collectors.joining());
+    }
+
+    public boolean isReloadPredicted() { return steps.stream().anyMatch(Step::isReload); }
+
+    public long getDurationMillis() {
+        return Duration.between(start, (end == null) ? Instant.now() : end).toMillis();
+    }
+
+    /** Also collects the messages the container sends while executing */
+    OperationMessageHandler handler(OperationMessageHandler delegate) {
+        return (severity, message) -> {
+            messages.add(severity + ": " + message);
+            delegate.handleReport(severity, message);
+        };
+    }
+
+    /** The responses of the composites */
+    void done(List<ModelNode> responses) {
+        this.steps = steps.stream()
+            .map(step -> step.withOutcome(outcome(responses.get(step.getComposite() - 1).get(RESULT), step.getIndex())))
+            .collect(Collectors.toList());
+        finish(responses.stream().allMatch(Operations::isSuccessfulOutcome) ? succeeded : failed);
+    }
+
+    private static String outcome(ModelNode results, int index) {
+        String key = "step-" + index;
+        return (results.getType() == OBJECT && results.has(key) && results.get(key).hasDefined(OUTCOME))
+            ? results.get(key).get(OUTCOME).asString() : null;
+    }
+
+    void failed(Exception e) {
+        messages.add("failed: " + e);
+        finish(failed);
+    }
+
+    private void finish(State state) {
+        this.end = Instant.now();
+        this.state = state;
+        log.debug("{}", this);
+    }
+
+    @Override public String toString() {
+        return "batch " + batch + " " + state + " after " + getDurationMillis() + " ms with " + steps.size() + " steps";
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.t1.deployer.container;
 
+import com.github.t1.deployer.model.Checksum;
 import com.github.t1.deployer.model.DataSourceName;
 import com.github.t1.deployer.model.DeploymentName;
 import com.github.t1.deployer.model.LogHandlerName;
@@ -8,13 +9,18 @@ import com.github.t1.deployer.model.LoggerCategory;
 import com.github.t1.deployer.model.ProcessState;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.jboss.as.controller.client.ModelControllerClient;
 
 import javax.inject.Inject;
 import javax.management.ObjectName;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 @Slf4j
@@ -35,7 +41,22 @@ public class Container {
     @SneakyThrows(InterruptedException.class)
     private static void sleep(Duration duration) { Thread.sleep(duration.toMillis()); }
 
+    /**
+     * A container outside of the request scope, e.g. for a node of a fleet; it can't
+     * {@link #requestReload(Object) request reloads}, and its batches don't report their {@link #progress()}
+     */
+    public static Container of(ModelControllerClient client, BatchConfig config, ExecutorService executor) {
+        Container container = new Container();
+        container.batch = new Batch();
+        container.batch.client = client;
+        container.batch.config = config;
+        container.batch.executor = executor;
+        container.batch.local = false;
+        return container;
+    }
+
     @Inject Batch batch;
+    @Inject Reloads reloads;
 
     public void waitForBoot() { batch.waitForBoot(); }
 
@@ -45,6 +66,12 @@ public class Container {
 
     public void reload() { batch.reload(); }
 
+    /** The current server state, not the result of a batch */
+    public boolean isRunning() { return batch.isRunning(); }
+
+    /** Suspend and reload, maybe coalesced with other requests; see {@link Reloads} */
+    public void requestReload(Object lock) { reloads.request(lock, this); }
+
     public static Path getConfigDir() {
         return Stream.of(
             System.getenv("DEPLOYER_CONFIG_DIR"),
@@ -73,9 +100,15 @@ public class Container {
 
     public Stream<DeploymentResource> allDeployments() { return DeploymentResource.allDeployments(batch); }
 
+    /** Upload the contents before the batch is started, so the batch can reference them by hash */
+    public void stage(Map<Checksum, Supplier<InputStream>> contents) { batch.stage(contents); }
+
     public void startBatch() { batch.startBatch(); }
 
     public ProcessState commitBatch() { return batch.commitBatch(); }
 
+    /** The progress of the current or last batch, or <code>null</code> if there was none, yet */
+    public BatchProgress progress() { return batch.progress(); }
+
     public void rollbackBatch() { batch.rollbackBatch(); }
 }
@@ -0,0 +1,82 @@
+package com.github.t1.deployer.container;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jboss.dmr.ModelNode;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+import static org.jboss.as.controller.client.helpers.ClientConstants.ADDRESS;
+import static org.jboss.as.controller.client.helpers.ClientConstants.RESULT;
+import static org.jboss.as.controller.client.helpers.ClientConstants.STEPS;
+import static org.jboss.as.controller.client.helpers.Operations.createCompositeOperation;
+import static org.jboss.as.controller.client.helpers.Operations.isSuccessfulOutcome;
+
+/**
+ * All resources the deployers manage, i.e. the deployments and the resources of the logging and the datasources
+ * subsystems. They are read with one composite operation, instead of one <code>read-resource</code> for every
+ * resource and every kind of resource. Only the attributes in the {@link Projection}s are read and kept.
+ */
+@Slf4j
+class ContainerSnapshot {
+    static final List<Projection> PROJECTIONS = Stream.of(
+            Stream.of(DeploymentResource.PROJECTION),
+            LoggerResource.PROJECTIONS.stream(),
+            LogHandlerResource.PROJECTIONS.stream(),
+            DataSourceResource.PROJECTIONS.stream())
+        .flatMap(identity())
+        .collect(toList());
+
+    static ContainerSnapshot read(Batch batch) {
+        ModelNode operation = createCompositeOperation();
+        PROJECTIONS.forEach(projection -> operation.get(STEPS).add(projection.operation()));
+        ModelNode response = batch.executeRaw(operation);
+        if (!isSuccessfulOutcome(response))
+            batch.fail(response);
+        return new ContainerSnapshot(response.get(RESULT));
+    }
+
+    /** The results of the wildcard reads by their path, each with the address, outcome, and result */
+    private final Map<String, List<ModelNode>> all = new LinkedHashMap<>();
+    /** The result of every single resource by its path */
+    private final Map<String, ModelNode> resources = new HashMap<>();
+
+    private ContainerSnapshot(ModelNode result) {
+        for (int i = 0; i < PROJECTIONS.size(); i++) {
+            Projection projection = PROJECTIONS.get(i);
+            List<ModelNode> nodes = result.get("step-" + (i + 1)).get(RESULT).asList();
+            nodes.forEach(node -> node.get(RESULT).set(projection.project(node.get(RESULT))));
+            all.put(path(projection.getAddress()), nodes);
+            nodes.forEach(node -> resources.put(path(node.get(ADDRESS)), node.get(RESULT)));
+        }
+        log.debug("read {} resources from container", resources.size());
+    }
+
+    /** Like a wildcard <code>read-resource</code>, i.e. the nodes contain the address, outcome, and result */
+    Stream<ModelNode> readResources(ModelNode address) {
+        List<ModelNode> nodes = all.get(path(address));
+        if (nodes == null)
+            throw new IllegalArgumentException("not in container snapshot: " + path(address));
+        return nodes.stream();
+    }
+
+    /** The result of a <code>read-resource</code> or <code>null</code>, if the resource doesn't exist */
+    ModelNode readResource(ModelNode address) {
+        String path = path(address);
+        if (!all.containsKey(path.substring(0, path.lastIndexOf('=') + 1) + "*"))
+            throw new IllegalArgumentException("not in container snapshot: " + path);
+        return resources.get(path);
+    }
+
+    private static String path(ModelNode address) {
+        return address.asPropertyList().stream()
+            .map(property -> "/" + property.getName() + "=" + property.getValue().asString())
+            .collect(joining());
+    }
+}
@@ -48,16 +48,24 @@ public final class DataSourceResource extends AbstractResource<DataSourceResourc
         this.name = name;
     }
 
+    static final List<Projection> PROJECTIONS = asList(
+        Projection.of(address(ALL, false), "connection-url", "jndi-name", "driver-name", "user-name", "password",
+            "min-pool-size", "initial-pool-size", "max-pool-size", "idle-timeout-minutes"),
+        Projection.of(address(ALL, true), "xa-datasource-properties", "jndi-name", "driver-name", "user-name",
+            "password", "min-pool-size", "initial-pool-size", "max-pool-size", "idle-timeout-minutes")
+            .withChildren());
+
     public static List<DataSourceResource> allDataSources(Batch batch) {
+        ContainerSnapshot snapshot = batch.snapshot();
         return Stream.concat(
-            readDataSources(batch, false),
-            readDataSources(batch, true))
+            readDataSources(snapshot, batch, false),
+            readDataSources(snapshot, batch, true))
             .sorted(comparing(DataSourceResource::name))
             .collect(toList());
     }
 
-    private static Stream<DataSourceResource> readDataSources(Batch batch, boolean xa) {
-        return batch.readResource(address(ALL, xa))
+    private static Stream<DataSourceResource> readDataSources(ContainerSnapshot snapshot, Batch batch, boolean xa) {
+        return snapshot.readResources(address(ALL, xa))
             .map(node -> toDataSourceResource(name(node, xa), batch, node.get("result"), xa));
     }
 
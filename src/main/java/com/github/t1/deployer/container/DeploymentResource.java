@@ -10,41 +10,61 @@ import lombok.extern.slf4j.Slf4j;
 import org.jboss.dmr.ModelNode;
 
 import java.io.InputStream;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import static com.github.t1.deployer.model.DeploymentName.ALL;
 import static java.lang.Boolean.TRUE;
 import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toSet;
 import static org.jboss.as.controller.client.helpers.ClientConstants.ADD;
 import static org.jboss.as.controller.client.helpers.ClientConstants.CONTENT;
 import static org.jboss.as.controller.client.helpers.ClientConstants.DEPLOYMENT_UNDEPLOY_OPERATION;
 import static org.jboss.as.controller.client.helpers.ClientConstants.INPUT_STREAM_INDEX;
 import static org.jboss.as.controller.client.helpers.ClientConstants.NAME;
+import static org.jboss.as.controller.client.helpers.ClientConstants.RESULT;
 import static org.jboss.as.controller.client.helpers.Operations.createAddress;
 import static org.jboss.as.controller.client.helpers.Operations.createOperation;
 import static org.jboss.as.controller.client.helpers.Operations.createRemoveOperation;
+import static org.jboss.as.controller.client.helpers.Operations.isSuccessfulOutcome;
 
 @Slf4j
 @Getter @Setter @Accessors(fluent = true, chain = true)
 public class DeploymentResource extends AbstractResource<DeploymentResource> {
     public static final String WAR_SUFFIX = ".war";
+    private static final String HASH = "hash";
     private static final int TIMEOUT = 30;
 
     @NonNull @Getter private final DeploymentName name;
     private Checksum checksum;
-    private InputStream inputStream;
+    /** The checksum of the content to deploy, so it doesn't have to be uploaded, if the container already has it */
+    private Checksum contentChecksum;
+    private Supplier<InputStream> inputStream;
 
     public DeploymentResource(@NonNull DeploymentName name, Batch batch) {
         super(batch);
         this.name = name;
     }
 
+    static final Projection PROJECTION = Projection.of(address(ALL), NAME, CONTENT);
+
     public static Stream<DeploymentResource> allDeployments(Batch batch) {
-        return batch.readResource(address(ALL))
+        return batch.snapshot().readResources(address(ALL))
             .map(match -> toDeployment(match.get("result"), batch))
             .sorted(comparing(DeploymentResource::name));
     }
 
+    /** The checksums of all deployments, read directly, i.e. also when no batch is running */
+    static Set<Checksum> deployedContent(Batch batch) {
+        ModelNode response = batch.executeRaw(PROJECTION.operation());
+        if (!isSuccessfulOutcome(response))
+            batch.fail(response);
+        return response.get(RESULT).asList().stream()
+            .map(match -> readHash(match.get(RESULT)))
+            .collect(toSet());
+    }
+
     private static DeploymentResource toDeployment(ModelNode node, Batch batch) {
         DeploymentName name = readName(node);
         Checksum hash = readHash(node);
@@ -81,7 +101,7 @@ public class DeploymentResource extends AbstractResource<DeploymentResource> {
 
     public static byte[] hash(ModelNode cliDeployment) {
         try {
-            return cliDeployment.get("content").get(0).get("hash").asBytes();
+            return cliDeployment.get(CONTENT).get(0).get(HASH).asBytes();
         } catch (RuntimeException e) {
             log.error("failed to get hash for {}", cliDeployment.get("name"));
             return new byte[0];
@@ -97,21 +117,40 @@ public class DeploymentResource extends AbstractResource<DeploymentResource> {
     public void redeploy() {
         checkDeployed();
         assert deployed == TRUE;
+        batch().releaseContent(name.getValue(), checksum);
         addDeployOperation("full-replace-deployment", new ModelNode().setEmptyList());
     }
 
     private void addDeployOperation(String operationName, ModelNode address) {
-        assert inputStream != null : "need an input stream to redeploy";
-        int index = addInputStreamAndReturnIndex(inputStream);
         ModelNode operation = createOperation(operationName, address);
         operation.get("enabled").set(true);
         if (address.asList().isEmpty())
             operation.get(NAME).set(name.getValue());
-        operation.get(CONTENT).set(new ModelNode().add(new ModelNode().set(INPUT_STREAM_INDEX, index)));
+        operation.get(CONTENT).set(new ModelNode().add(content()));
         addStep(operation);
     }
 
+    private ModelNode content() {
+        if (contentChecksum != null
+            && (isInContentRepository(contentChecksum) || batch().isStagedContent(contentChecksum))) {
+            log.debug("content {} of {} is already in the container", contentChecksum, name);
+            return new ModelNode().set(HASH, contentChecksum.getBytes());
+        }
+        assert inputStream != null : "need an input stream to deploy";
+        return new ModelNode().set(INPUT_STREAM_INDEX, addInputStreamAndReturnIndex(inputStream.get()));
+    }
+
+    /**
+     * The content repository keeps only content that is referenced by a deployment,
+     * and the content that is replaced or removed in this batch may be gone after the commit.
+     */
+    private boolean isInContentRepository(Checksum checksum) {
+        return !batch().isReleasedContent(checksum)
+            && allDeployments(batch()).anyMatch(deployment -> checksum.equals(deployment.checksum()));
+    }
+
     @Override public void addRemoveStep() {
+        batch().releaseContent(name.getValue(), checksum);
         addStep(createOperation(DEPLOYMENT_UNDEPLOY_OPERATION, address()));
         addStep(createRemoveOperation(address()));
         this.deployed = false;
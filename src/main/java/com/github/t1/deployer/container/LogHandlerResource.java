@@ -53,10 +53,16 @@ public final class LogHandlerResource extends AbstractResource<LogHandlerResourc
         this.name = name;
     }
 
+    static final List<Projection> PROJECTIONS = Arrays.stream(LogHandlerType.values())
+        .map(type -> Projection.of(address(type, ALL), "level", "formatter", "named-formatter", "encoding",
+            "file", "suffix", "module", "class", "properties"))
+        .collect(toList());
+
     static List<LogHandlerResource> allHandlers(Batch batch) {
+        ContainerSnapshot snapshot = batch.snapshot();
         return Arrays.stream(LogHandlerType.values())
-            .flatMap(type -> batch
-                .readResource(address(type, ALL))
+            .flatMap(type -> snapshot
+                .readResources(address(type, ALL))
                 .map(node -> toLoggerResource(type(node), name(node), batch, node.get("result"))))
             .sorted(comparing(LogHandlerResource::name))
             .collect(toList());
@@ -23,6 +23,7 @@ import static com.github.t1.log.LogLevel.OFF;
 import static com.github.t1.log.LogLevel.TRACE;
 import static com.github.t1.log.LogLevel.WARN;
 import static java.lang.Boolean.TRUE;
+import static java.util.Arrays.asList;
 import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.toList;
 import static org.jboss.as.controller.client.helpers.Operations.createAddOperation;
@@ -74,13 +75,18 @@ public final class LoggerResource extends AbstractResource<LoggerResource> {
         this.category = category;
     }
 
+    static final List<Projection> PROJECTIONS = asList(
+        Projection.of(createAddress("subsystem", "logging", "root-logger", "*"), "level", "handlers"),
+        Projection.of(address(LoggerCategory.ALL), "level", "handlers", "use-parent-handlers"));
+
     public static List<LoggerResource> allLoggers(Batch batch) {
+        ContainerSnapshot snapshot = batch.snapshot();
         List<LoggerResource> loggers =
-            batch.readResource(address(LoggerCategory.ALL))
+            snapshot.readResources(address(LoggerCategory.ALL))
                 .map(node -> toLoggerResource(category(node), batch, node.get("result")))
                 .sorted(comparing(LoggerResource::category))
                 .collect(toList());
-        loggers.add(0, readRootLogger(batch));
+        loggers.add(0, readRootLogger(snapshot, batch));
         return loggers;
     }
 
@@ -200,11 +206,11 @@ public final class LoggerResource extends AbstractResource<LoggerResource> {
         return logger;
     }
 
-    private static LoggerResource readRootLogger(Batch batch) {
-        LoggerResource root = new LoggerResource(ROOT, batch);
-        root.checkDeployed();
-        assert root.isRoot();
-        return root;
+    private static LoggerResource readRootLogger(ContainerSnapshot snapshot, Batch batch) {
+        ModelNode node = snapshot.readResource(address(ROOT));
+        if (node == null)
+            throw new RuntimeException("not deployed '" + ROOT + "'");
+        return toLoggerResource(ROOT, batch, node);
     }
 
     @Override public String getId() { return category.getValue(); }
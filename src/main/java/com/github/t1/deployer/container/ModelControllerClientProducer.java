@@ -4,8 +4,8 @@ import com.github.t1.log.Logged;
 import lombok.extern.slf4j.Slf4j;
 import org.jboss.as.controller.client.ModelControllerClient;
 
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
-import javax.enterprise.inject.Disposes;
 import javax.enterprise.inject.Produces;
 import javax.management.JMException;
 import javax.management.MBeanServer;
@@ -44,11 +44,18 @@ public class ModelControllerClientProducer implements Serializable {
 
     private static final MBeanServer MBEAN = ManagementFactory.getPlatformMBeanServer();
 
+    private transient SharedModelControllerClient client;
+
+    /** Shared by all batches, so it's closed only when the application stops */
     @Produces
-    ModelControllerClient produceModelControllerClient() throws IOException {
-        URI uri = getContainerUriFromMBeans();
-        log.info("connect to JBoss AS on: {}", uri);
-        return createModelControllerClient(uri);
+    synchronized ModelControllerClient produceModelControllerClient() {
+        if (client == null)
+            client = new SharedModelControllerClient(() -> {
+                URI uri = getContainerUriFromMBeans();
+                log.info("connect to JBoss AS on: {}", uri);
+                return createModelControllerClient(uri);
+            });
+        return client;
     }
 
     private URI getContainerUriFromMBeans() {
@@ -96,6 +103,14 @@ public class ModelControllerClientProducer implements Serializable {
         }
     }
 
+    /** A client for another server, e.g. a node of a fleet; it connects lazily and has to be closed by the caller */
+    public static ModelControllerClient connect(URI uri) {
+        return new SharedModelControllerClient(() -> {
+            log.info("connect to JBoss AS on: {}", uri);
+            return createModelControllerClient(uri);
+        });
+    }
+
     private static ModelControllerClient createModelControllerClient(URI uri) throws UnknownHostException {
         String host = uri.getHost();
         int port = uri.getPort();
@@ -103,7 +118,8 @@ public class ModelControllerClientProducer implements Serializable {
         return ModelControllerClient.Factory.create(uri.getScheme(), host, port);
     }
 
-    void disposeModelControllerClient(@Disposes ModelControllerClient client) throws IOException {
-        client.close();
+    @PreDestroy synchronized void close() throws IOException {
+        if (client != null)
+            client.close();
     }
 }
@@ -0,0 +1,46 @@
+package com.github.t1.deployer.container;
+
+import lombok.Value;
+import org.jboss.dmr.ModelNode;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.jboss.as.controller.client.helpers.ClientConstants.READ_RESOURCE_OPERATION;
+import static org.jboss.as.controller.client.helpers.Operations.createOperation;
+
+/**
+ * The attributes of a kind of resource that we actually read, so we don't have to pull the complete subtree,
+ * e.g. the undertow servlets and ejb metadata of every deployment.
+ */
+@Value
+class Projection {
+    static Projection of(ModelNode address, String... attributes) {
+        return new Projection(address, 0, asList(attributes));
+    }
+
+    /** A wildcard address */
+    ModelNode address;
+    /** 0 reads only the attributes, more also reads the child resources, e.g. the xa-datasource-properties */
+    int depth;
+    List<String> attributes;
+
+    Projection withChildren() { return new Projection(address, 1, attributes); }
+
+    ModelNode operation() {
+        ModelNode operation = createOperation(READ_RESOURCE_OPERATION, address);
+        if (depth == 0)
+            operation.get("attributes-only").set(true);
+        else
+            operation.get("recursive-depth").set(depth);
+        return operation;
+    }
+
+    ModelNode project(ModelNode result) {
+        ModelNode projected = new ModelNode().setEmptyObject();
+        attributes.stream()
+            .filter(result::has)
+            .forEach(name -> projected.get(name).set(result.get(name)));
+        return projected;
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.t1.deployer.container;
+
+import com.github.t1.deployer.model.Config;
+import lombok.extern.slf4j.Slf4j;
+import org.jboss.as.controller.client.ModelControllerClient;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import static com.github.t1.deployer.tools.Tools.nvl;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Every reload means downtime, so the reloads requested within the reload window are coalesced into one, and the
+ * container is reloaded only when it still requires it, i.e. nobody else has reloaded it in the meantime.
+ */
+@Slf4j
+@ApplicationScoped
+class Reloads {
+    @Inject ModelControllerClient client;
+    @Inject @Config("batch") BatchConfig config;
+    @Inject ScheduledExecutorService scheduler;
+
+    private ScheduledFuture<?> pending;
+    private int coalesced;
+
+    /**
+     * Reload now, like before there was a reload window, or within the reload window; the delayed reload holds
+     * the lock, so it doesn't interfere with a batch.
+     */
+    void request(Object lock, Container container) {
+        Duration window = nvl(config, new BatchConfig()).reloadWindow();
+        if (window.isZero()) {
+            container.suspend();
+            container.reload();
+        } else {
+            schedule(lock, window);
+        }
+    }
+
+    private synchronized void schedule(Object lock, Duration window) {
+        if (pending != null) {
+            coalesced++;
+            log.info("reload already pending; coalesced {} requests", coalesced);
+        } else {
+            log.info("reload in {}", window);
+            pending = scheduler.schedule(() -> reloadIfRequired(lock), window.toMillis(), MILLISECONDS);
+        }
+    }
+
+    /** There is no request scope on the scheduler thread, so this needs a container of its own */
+    private void reloadIfRequired(Object lock) {
+        Container container = Container.of(client, config, scheduler);
+        synchronized (lock) {
+            synchronized (this) {
+                pending = null;
+                log.info("reload for {} coalesced requests", coalesced + 1);
+                coalesced = 0;
+            }
+            if (container.isRunning()) {
+                log.info("container doesn't require a reload anymore");
+            } else {
+                container.suspend();
+                container.reload();
+            }
+        }
+    }
+
+    @PreDestroy synchronized void shutdown() {
+        if (pending != null)
+            pending.cancel(false);
+    }
+}
@@ -0,0 +1,168 @@
+package com.github.t1.deployer.container;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.Operation;
+import org.jboss.as.controller.client.OperationMessageHandler;
+import org.jboss.as.controller.client.OperationResponse;
+import org.jboss.dmr.ModelNode;
+import org.jboss.threads.AsyncFuture;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.jboss.as.controller.client.helpers.ClientConstants.COMPOSITE;
+import static org.jboss.as.controller.client.helpers.ClientConstants.OP;
+import static org.jboss.as.controller.client.helpers.ClientConstants.STEPS;
+import static org.jboss.as.controller.client.helpers.Operations.createReadAttributeOperation;
+import static org.jboss.as.controller.client.helpers.Operations.isSuccessfulOutcome;
+
+/**
+ * One connection to the management interface for all batches, as setting up a connection is expensive.
+ * It connects lazily, probes the connection when it was idle for a while, and reconnects when it failed,
+ * e.g. after the server was reloaded. Operations that only read are retried once on the new connection.
+ */
+@Slf4j
+class SharedModelControllerClient implements ModelControllerClient {
+    static final Duration PROBE_AFTER_IDLE = Duration.ofSeconds(10);
+
+    private static final ModelNode PROBE = createReadAttributeOperation(new ModelNode().setEmptyList(), "server-state");
+
+    interface Connector {
+        ModelControllerClient connect() throws IOException;
+    }
+
+    private final Connector connector;
+    private final Clock clock;
+
+    private ModelControllerClient delegate;
+    private Instant lastUsed;
+
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong connectMillis = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    SharedModelControllerClient(Connector connector) { this(connector, Clock.systemUTC()); }
+
+    SharedModelControllerClient(Connector connector, Clock clock) {
+        this.connector = connector;
+        this.clock = clock;
+    }
+
+    private synchronized ModelControllerClient client() throws IOException {
+        if (delegate != null && isIdle() && !isAlive(delegate)) {
+            log.info("management connection is dead; reconnect");
+            failures.incrementAndGet();
+            disconnect(delegate);
+        }
+        if (delegate == null)
+            delegate = connect();
+        lastUsed = clock.instant();
+        return delegate;
+    }
+
+    private boolean isIdle() { return lastUsed.plus(PROBE_AFTER_IDLE).isBefore(clock.instant()); }
+
+    private ModelControllerClient connect() throws IOException {
+        Instant start = clock.instant();
+        ModelControllerClient client = connector.connect();
+        if (!isAlive(client)) {
+            client.close();
+            throw new IOException("can't connect to management interface");
+        }
+        long millis = Duration.between(start, clock.instant()).toMillis();
+        connects.incrementAndGet();
+        connectMillis.addAndGet(millis);
+        log.info("connected to management interface in {} ms; {}", millis, this);
+        return client;
+    }
+
+    private static boolean isAlive(ModelControllerClient client) {
+        try {
+            return isSuccessfulOutcome(client.execute(PROBE));
+        } catch (IOException | RuntimeException e) {
+            log.debug("probe failed", e);
+            return false;
+        }
+    }
+
+    private synchronized void disconnect(ModelControllerClient failed) {
+        if (delegate != failed)
+            return; // another thread already reconnected
+        delegate = null;
+        try {
+            failed.close();
+        } catch (IOException e) {
+            log.debug("failed to close management connection", e);
+        }
+    }
+
+    private interface Execution<T> {
+        T on(ModelControllerClient client) throws IOException;
+    }
+
+    private <T> T execute(ModelNode operation, Execution<T> execution) throws IOException {
+        ModelControllerClient client = client();
+        try {
+            return execution.on(client);
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            disconnect(client);
+            if (!isReadOnly(operation))
+                throw e;
+            log.info("reconnect and retry read: {}", e.toString());
+            return execution.on(client());
+        }
+    }
+
+    static boolean isReadOnly(ModelNode operation) {
+        String name = operation.get(OP).asString();
+        if (COMPOSITE.equals(name))
+            return operation.get(STEPS).asList().stream().allMatch(SharedModelControllerClient::isReadOnly);
+        return name.startsWith("read-");
+    }
+
+    @Override public ModelNode execute(ModelNode operation, OperationMessageHandler handler) throws IOException {
+        return execute(operation, client -> client.execute(operation, handler));
+    }
+
+    @Override public ModelNode execute(Operation operation, OperationMessageHandler handler) throws IOException {
+        return execute(operation.getOperation(), client -> client.execute(operation, handler));
+    }
+
+    @Override public OperationResponse executeOperation(Operation operation, OperationMessageHandler handler)
+        throws IOException {
+        return execute(operation.getOperation(), client -> client.executeOperation(operation, handler));
+    }
+
+    @Override public AsyncFuture<ModelNode> executeAsync(Operation operation, OperationMessageHandler handler) {
+        return connected().executeAsync(operation, handler);
+    }
+
+    @Override public AsyncFuture<OperationResponse> executeOperationAsync(Operation operation,
+                                                                        OperationMessageHandler handler) {
+        return connected().executeOperationAsync(operation, handler);
+    }
+
+    private ModelControllerClient connected() {
+        try {
+            return client();
+        } catch (IOException e) {
+            throw new RuntimeException("can't connect to management interface", e);
+        }
+    }
+
+    @Override public synchronized void close() throws IOException {
+        if (delegate != null) {
+            delegate.close();
+            delegate = null;
+        }
+    }
+
+    @Override public String toString() {
+        return "management connection: " + connects + " connects in " + connectMillis + " ms, " + failures + " failures";
+    }
+}
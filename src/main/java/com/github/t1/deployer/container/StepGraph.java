@@ -0,0 +1,287 @@
+package com.github.t1.deployer.container;
+
+import com.github.t1.deployer.model.Checksum;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.Accessors;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.Property;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static com.github.t1.deployer.container.StepGraph.Type.DATA_SOURCE;
+import static com.github.t1.deployer.container.StepGraph.Type.DEPLOYABLE;
+import static com.github.t1.deployer.container.StepGraph.Type.LOGGER;
+import static com.github.t1.deployer.container.StepGraph.Type.LOG_HANDLER;
+import static com.github.t1.deployer.container.StepGraph.Type.UNKNOWN;
+import static java.util.Collections.emptyMap;
+import static java.util.Locale.US;
+import static java.util.stream.Collectors.toList;
+import static org.jboss.as.controller.client.helpers.ClientConstants.ADDRESS;
+import static org.jboss.as.controller.client.helpers.ClientConstants.CONTENT;
+import static org.jboss.as.controller.client.helpers.ClientConstants.NAME;
+import static org.jboss.as.controller.client.helpers.ClientConstants.OP;
+
+/**
+ * The steps of a batch and the dependencies between them, so they can be executed in an order that works, and
+ * steps that don't depend on each other can be executed in separate composites.
+ * <p>
+ * - loggers need the log-handlers they add
+ * - deployables need the log-handlers, loggers, and data-sources that are added, as they may use them
+ * - deployables that reference content by hash come before replacing or removing the deployable that holds it,
+ * so they stay in one composite, and the container doesn't remove the content in between
+ * <p>
+ * Removing goes the other way round. Which data-source or logger a deployable actually uses is not visible in the
+ * management model, so the deployables depend on all of them. Where there is no dependency, the steps are sorted:
+ * <p>
+ * - add log-handlers
+ * - add loggers
+ * - add data-sources
+ * - add deployables
+ * - all updates
+ * - remove deployables
+ * - remove data-sources
+ * - remove loggers
+ * - remove log-handlers
+ * <p>
+ * We can't reasonably do this ordering from within the deployers, as they do the adding _and_ the removing.
+ * <p>
+ * Some steps will probably put the container into <code>reload-required</code>; they are kept together, so all of
+ * them can be covered by one reload.
+ */
+class StepGraph {
+    @SuppressWarnings("unused")
+    @RequiredArgsConstructor
+    enum Operation {
+        ADD(1),
+        ADD_HANDLER(1),
+        WRITE_ATTRIBUTE(1),
+        MAP_PUT(1),
+        MAP_REMOVE(1),
+        FULL_REPLACE_DEPLOYMENT(1),
+        UNDEPLOY(-1),
+        REMOVE(-1),
+        REMOVE_HANDLER(-1);
+
+        @Getter @Accessors(fluent = true)
+        private final int factor;
+
+        boolean isAdding() { return this == ADD || this == ADD_HANDLER; }
+
+        boolean isDeploying() { return this == ADD || this == FULL_REPLACE_DEPLOYMENT; }
+
+        boolean isRemoving() { return factor < 0; }
+    }
+
+    enum Type {LOG_HANDLER, LOGGER, DATA_SOURCE, DEPLOYABLE, UNKNOWN}
+
+    private static class Step {
+        private final int index;
+        private final ModelNode node;
+        private final Operation operation;
+        private final Type type;
+        private final String name;
+        /** The log-handlers a logger step adds or removes */
+        private final Set<String> handlers = new HashSet<>();
+        /** The content a deploying step references by hash */
+        private final Checksum content;
+        /** The content a step replacing or removing a deployable releases */
+        private final Checksum released;
+        private final List<Step> dependents = new ArrayList<>();
+        private int dependencies;
+
+        private Step(int index, ModelNode node, Map<String, Checksum> releasedContent) {
+            this.index = index;
+            this.node = node;
+            this.operation = Operation.valueOf(node.get(OP).asString().toUpperCase(US).replace('-', '_'));
+            List<Property> address = node.get(ADDRESS).asPropertyList();
+            this.type = type(address);
+            this.name = (operation == Operation.FULL_REPLACE_DEPLOYMENT) ? node.get(NAME).asString() : name(address);
+            if (type == LOGGER) {
+                if (operation == Operation.ADD_HANDLER || operation == Operation.REMOVE_HANDLER)
+                    handlers.add(node.get(NAME).asString());
+                else if (node.hasDefined("handlers"))
+                    node.get("handlers").asList().forEach(handler -> handlers.add(handler.asString()));
+            }
+            boolean deployable = typeOrDeployable() == DEPLOYABLE;
+            this.content = (deployable && node.hasDefined(CONTENT) && node.get(CONTENT).get(0).hasDefined("hash"))
+                ? Checksum.of(node.get(CONTENT).get(0).get("hash").asBytes()) : null;
+            this.released = (deployable && operation != Operation.ADD) ? releasedContent.get(name) : null;
+        }
+
+        private Type typeOrDeployable() { return (operation == Operation.FULL_REPLACE_DEPLOYMENT) ? DEPLOYABLE : type; }
+
+        private String resource() { return typeOrDeployable() + ":" + name; }
+
+        private void before(Step dependent) {
+            dependents.add(dependent);
+            dependent.dependencies++;
+        }
+    }
+
+    /**
+     * A prediction, not a promise: the container's response tells for sure. Changing or removing a data-source
+     * generally requires a reload, as do the class or module of a custom log-handler; adding resources or deployables
+     * doesn't, neither does changing loggers or other log-handler attributes.
+     */
+    static boolean requiresReload(ModelNode node) {
+        Operation operation = Operation.valueOf(node.get(OP).asString().toUpperCase(US).replace('-', '_'));
+        List<Property> address = node.get(ADDRESS).asPropertyList();
+        if (address.size() < 2)
+            return false;
+        switch (type(address)) {
+            case DATA_SOURCE:
+                return operation == Operation.WRITE_ATTRIBUTE || operation == Operation.REMOVE;
+            case LOG_HANDLER:
+                return operation == Operation.WRITE_ATTRIBUTE && address.get(1).getName().equals("custom-handler")
+                    && RELOADING_CUSTOM_HANDLER_ATTRIBUTES.contains(node.get(NAME).asString());
+            default:
+                return false;
+        }
+    }
+
+    private static final Set<String> RELOADING_CUSTOM_HANDLER_ATTRIBUTES = Set.of("class", "module");
+
+    private static final Comparator<Step> ORDER = Comparator.<Step, Operation>comparing(step -> step.operation)
+        .thenComparing(step -> step.operation.factor() * step.type.ordinal())
+        .thenComparing(step -> step.index);
+
+    private final List<Step> steps;
+
+    StepGraph(List<ModelNode> nodes) { this(nodes, emptyMap()); }
+
+    /** @param releasedContent the content of the deployables replaced or removed by the steps, by deployable name */
+    StepGraph(List<ModelNode> nodes, Map<String, Checksum> releasedContent) {
+        this.steps = IntStream.range(0, nodes.size())
+            .mapToObj(i -> new Step(i, nodes.get(i), releasedContent))
+            .collect(toList());
+        for (Step step : steps)
+            for (Step other : steps)
+                if (dependsOn(other, step))
+                    step.before(other);
+    }
+
+    private static boolean dependsOn(Step step, Step other) {
+        if (step == other)
+            return false;
+        switch (step.typeOrDeployable()) {
+            case LOGGER:
+                if (step.operation.isRemoving())
+                    return isUndeploying(other);
+                return other.type == LOG_HANDLER && other.operation.isAdding() && step.handlers.contains(other.name);
+            case LOG_HANDLER:
+                if (!step.operation.isRemoving())
+                    return false;
+                return isUndeploying(other) || other.type == LOGGER && other.operation.isRemoving()
+                    && (other.operation == Operation.REMOVE || other.handlers.contains(step.name));
+            case DATA_SOURCE:
+                return step.operation.isRemoving() && isUndeploying(other);
+            case DEPLOYABLE:
+                if (step.released != null && step.released.equals(other.content))
+                    return true;
+                return step.operation.isDeploying() && other.operation.isAdding() && other.type != DEPLOYABLE;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isUndeploying(Step step) {
+        return step.typeOrDeployable() == DEPLOYABLE && step.operation.isRemoving();
+    }
+
+    /** All steps in one order */
+    List<ModelNode> ordered() { return order(steps); }
+
+    /** The steps in groups that don't depend on each other, each in order */
+    List<List<ModelNode>> independent() {
+        Map<Step, Step> roots = new LinkedHashMap<>();
+        steps.forEach(step -> roots.put(step, step));
+        List<Step> reloading = steps.stream().filter(step -> requiresReload(step.node)).collect(toList());
+        reloading.forEach(step -> union(roots, reloading.get(0), step));
+        for (Step step : steps) {
+            step.dependents.forEach(dependent -> union(roots, step, dependent));
+            steps.stream()
+                .filter(other -> other.resource().equals(step.resource()))
+                .forEach(other -> union(roots, step, other));
+        }
+        Map<Step, List<Step>> groups = new LinkedHashMap<>();
+        steps.forEach(step -> groups.computeIfAbsent(root(roots, step), root -> new ArrayList<>()).add(step));
+        return groups.values().stream().map(StepGraph::order).collect(toList());
+    }
+
+    private static void union(Map<Step, Step> roots, Step a, Step b) { roots.put(root(roots, a), root(roots, b)); }
+
+    private static Step root(Map<Step, Step> roots, Step step) {
+        while (roots.get(step) != step)
+            step = roots.get(step);
+        return step;
+    }
+
+    /** Topological sort, taking the steps that are ready in the default order */
+    private static List<ModelNode> order(List<Step> group) {
+        Map<Step, Integer> dependencies = new LinkedHashMap<>();
+        group.forEach(step -> dependencies.put(step, step.dependencies));
+        PriorityQueue<Step> ready = new PriorityQueue<>(ORDER);
+        group.stream().filter(step -> step.dependencies == 0).forEach(ready::add);
+        List<ModelNode> ordered = new ArrayList<>();
+        while (!ready.isEmpty()) {
+            Step step = ready.poll();
+            ordered.add(step.node);
+            step.dependents.stream()
+                .filter(dependencies::containsKey)
+                .filter(dependent -> dependencies.merge(dependent, -1, Integer::sum) == 0)
+                .forEach(ready::add);
+        }
+        if (ordered.size() < group.size())
+            throw new IllegalStateException("cyclic dependencies between steps " + group.stream()
+                .map(step -> step.node).collect(toList()));
+        return ordered;
+    }
+
+    /** The name of the resource, even for a child resource like the properties of an xa-data-source */
+    private static String name(List<Property> address) {
+        switch (address.size()) {
+            case 0:
+                return "";
+            case 1:
+                return address.get(0).getValue().asString();
+            default:
+                return address.get(1).getValue().asString();
+        }
+    }
+
+    private static Type type(List<Property> address) {
+        if (address.isEmpty())
+            return UNKNOWN;
+        switch (address.get(0).getName()) {
+            case "deployment":
+                return DEPLOYABLE;
+            case "subsystem":
+                switch (address.get(0).getValue().asString()) {
+                    case "logging":
+                        String kind = address.get(1).getName();
+                        if (kind.equals("logger") || kind.equals("root-logger"))
+                            return LOGGER;
+                        if (kind.endsWith("-handler"))
+                            return LOG_HANDLER;
+                        break;
+                    case "datasources":
+                        switch (address.get(1).getName()) {
+                            case "data-source":
+                            case "xa-data-source":
+                                return DATA_SOURCE;
+                        }
+                        break;
+                }
+        }
+        throw new IllegalArgumentException("unsupported node type: " + address);
+    }
+}
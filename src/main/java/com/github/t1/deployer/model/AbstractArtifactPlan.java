@@ -23,13 +23,14 @@ public abstract class AbstractArtifactPlan implements Plan.AbstractPlan {
     private Classifier classifier;
     private Checksum checksum;
 
-    static void fromJson(JsonNode node, AbstractArtifactPlan builder, String defaultStateExpression, String defaultArtifactId, String defaultVersion) {
-        apply(node, "state", builder::setState, DeploymentState::valueOf, defaultStateExpression);
-        apply(node, "group-id", builder::setGroupId, GroupId::of, "default.group-id");
-        apply(node, "artifact-id", builder::setArtifactId, ArtifactId::new, "«" + defaultArtifactId + "»");
-        apply(node, "version", builder::setVersion, Version::new, defaultVersion);
-        apply(node, "classifier", builder::setClassifier, Classifier::new);
-        apply(node, "checksum", builder::setChecksum, Checksum::fromString);
+    static void fromJson(Expressions expressions, JsonNode node, AbstractArtifactPlan builder,
+                         String defaultStateExpression, String defaultArtifactId, String defaultVersion) {
+        apply(expressions, node, "state", builder::setState, DeploymentState::valueOf, defaultStateExpression);
+        apply(expressions, node, "group-id", builder::setGroupId, GroupId::of, "default.group-id");
+        apply(expressions, node, "artifact-id", builder::setArtifactId, ArtifactId::new, "«" + defaultArtifactId + "»");
+        apply(expressions, node, "version", builder::setVersion, Version::new, defaultVersion);
+        apply(expressions, node, "classifier", builder::setClassifier, Classifier::new);
+        apply(expressions, node, "checksum", builder::setChecksum, Checksum::fromString);
         verify(builder);
     }
 
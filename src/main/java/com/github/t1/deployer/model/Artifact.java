@@ -29,6 +29,12 @@ public class Artifact {
     private Supplier<Checksum> checksumSupplier;
     private Supplier<InputStream> inputStreamSupplier;
 
+    /** A shallow copy, so e.g. a cached artifact can be handed out and changed without affecting the others */
+    public Artifact copy() {
+        return new Artifact(groupId, artifactId, version, type, error, classifier, checksum, checksumSupplier,
+            inputStreamSupplier);
+    }
+
     public Checksum getChecksumRaw() { return checksum; }
 
     public Checksum getChecksum() {
@@ -48,11 +48,11 @@ public class BundlePlan extends AbstractArtifactPlan {
     }
 
 
-    static BundlePlan fromJson(BundleName name, JsonNode node) {
+    static BundlePlan fromJson(Expressions expressions, BundleName name, JsonNode node) {
         if (node.isNull())
             throw new Plan.PlanLoadingException("incomplete bundles plan '" + name + "'");
         BundlePlan plan = new BundlePlan(name);
-        AbstractArtifactPlan.fromJson(node, plan, null, name.getValue(), null);
+        AbstractArtifactPlan.fromJson(expressions, node, plan, null, name.getValue(), null);
         if (node.has("instances") && !node.get("instances").isNull()) {
             Iterator<Map.Entry<String, JsonNode>> instances = node.get("instances").fields();
             while (instances.hasNext()) {
@@ -16,6 +16,7 @@ import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlSchemaType;
 import javax.xml.bind.annotation.XmlValue;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -32,6 +33,8 @@ import static lombok.AccessLevel.PRIVATE;
 @XmlAccessorType(XmlAccessType.NONE)
 @JsonbTypeDeserializer(ChecksumDeserializer.class)
 public class Checksum {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     public static Checksum of(byte[] bytes) { return new Checksum(bytes); }
 
     public static Checksum fromString(String hexString) { return ofHexString(hexString); }
@@ -40,18 +43,28 @@ public class Checksum {
 
     public static Checksum sha1(Path path) { return of(path, "SHA-1"); }
 
+    public static Checksum sha256(Path path) { return of(path, "SHA-256"); }
+
     public static Checksum md5(Path path) { return of(path, "MD5"); }
 
+    /** Streams the file through the digest, so even big artifacts don't have to fit into the heap */
     @SneakyThrows(IOException.class)
-    private static Checksum of(Path path, String algorithm) { return of(Files.readAllBytes(path), algorithm); }
+    private static Checksum of(Path path, String algorithm) {
+        MessageDigest digest = digest(algorithm);
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int n = inputStream.read(buffer); n >= 0; n = inputStream.read(buffer))
+                digest.update(buffer, 0, n);
+        }
+        return of(digest.digest());
+    }
 
     public static Checksum sha1(byte[] bytes) { return of(bytes, "SHA-1"); }
 
+    private static Checksum of(byte[] bytes, String algorithm) { return of(digest(algorithm).digest(bytes)); }
+
     @SneakyThrows(NoSuchAlgorithmException.class)
-    private static Checksum of(byte[] bytes, String algorithm) {
-        MessageDigest hash = MessageDigest.getInstance(algorithm);
-        return of(hash.digest(bytes));
-    }
+    public static MessageDigest digest(String algorithm) { return MessageDigest.getInstance(algorithm); }
 
     @NonNull
     @XmlValue
@@ -51,26 +51,26 @@ public final class DataSourcePlan implements Plan.AbstractPlan {
 
     @Override public String getId() { return name.getValue(); }
 
-    static DataSourcePlan fromJson(DataSourceName name, JsonNode node) {
+    static DataSourcePlan fromJson(Expressions expressions, DataSourceName name, JsonNode node) {
         if (node.isNull())
             throw new Plan.PlanLoadingException("incomplete data-sources plan '" + name + "'");
         DataSourcePlan builder = new DataSourcePlan(name);
-        apply(node, "xa", builder::setXa, Tools::trueOrNull, "false");
-        apply(node, "state", builder::setState, DeploymentState::valueOf);
-        apply(node, "uri", builder::setUri, URI::create);
-        apply(node, "jndi-name", builder::setJndiName, identity(), "«java:/datasources/" + name + "»");
-        apply(node, "driver", builder::setDriver, identity(), defaultDriver(builder.uri));
+        apply(expressions, node, "xa", builder::setXa, Tools::trueOrNull, "false");
+        apply(expressions, node, "state", builder::setState, DeploymentState::valueOf);
+        apply(expressions, node, "uri", builder::setUri, URI::create);
+        apply(expressions, node, "jndi-name", builder::setJndiName, identity(), "«java:/datasources/" + name + "»");
+        apply(expressions, node, "driver", builder::setDriver, identity(), defaultDriver(builder.uri));
 
-        apply(node, "user-name", builder::setUserName, identity());
-        apply(node, "password", builder::setPassword, identity());
+        apply(expressions, node, "user-name", builder::setUserName, identity());
+        apply(expressions, node, "password", builder::setPassword, identity());
 
         if (node.hasNonNull("pool")) {
             PoolPlan pool = new PoolPlan();
             JsonNode poolNode = node.get("pool");
-            apply(poolNode, "min", pool::setMin, Integer::valueOf);
-            apply(poolNode, "initial", pool::setInitial, Integer::valueOf);
-            apply(poolNode, "max", pool::setMax, Integer::valueOf);
-            apply(poolNode, "max-age", pool::setMaxAge, Age::new);
+            apply(expressions, poolNode, "min", pool::setMin, Integer::valueOf);
+            apply(expressions, poolNode, "initial", pool::setInitial, Integer::valueOf);
+            apply(expressions, poolNode, "max", pool::setMax, Integer::valueOf);
+            apply(expressions, poolNode, "max-age", pool::setMaxAge, Age::new);
             builder.setPool(pool);
         }
 
@@ -36,10 +36,10 @@ public class DeployablePlan extends AbstractArtifactPlan {
 
     @Override public DeployablePlan setChecksum(Checksum checksum) { super.setChecksum(checksum); return this; }
 
-    static DeployablePlan fromJson(DeploymentName name, JsonNode node) {
+    static DeployablePlan fromJson(Expressions expressions, DeploymentName name, JsonNode node) {
         DeployablePlan plan = new DeployablePlan(name);
-        AbstractArtifactPlan.fromJson(node, plan, name + ".state or «deployed»", name.getValue(), name + ".version or «CURRENT»");
-        apply(node, "type", plan::setType, ArtifactType::valueOf, "default.deployable-type or «war»");
+        AbstractArtifactPlan.fromJson(expressions, node, plan, name + ".state or «deployed»", name.getValue(), name + ".version or «CURRENT»");
+        apply(expressions, node, "type", plan::setType, ArtifactType::valueOf, "default.deployable-type or «war»");
         return plan.verify();
     }
 
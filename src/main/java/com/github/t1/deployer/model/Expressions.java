@@ -23,10 +23,14 @@ import javax.ws.rs.BadRequestException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -39,9 +43,9 @@ import static com.github.t1.deployer.model.Expressions.Match.Mode.proceed;
 import static com.github.t1.deployer.model.Expressions.Match.Mode.stop;
 import static java.util.Collections.singletonMap;
 import static java.util.Locale.US;
-import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
 import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static lombok.AccessLevel.NONE;
 import static lombok.AccessLevel.PRIVATE;
 
 @Slf4j
@@ -69,24 +73,33 @@ public class Expressions {
         @Override public int compareTo(@NotNull VariableName that) { return this.value.compareTo(that.value); }
     }
 
-    @SneakyThrows(UnknownHostException.class)
-    public static String hostName() { return InetAddress.getLocalHost().getHostName().split("\\.")[0]; }
+    public static String hostName() { return hostName(localHostName()); }
+
+    public static String domainName() { return domainName(localHostName()); }
 
+    /** May block on a slow DNS, so the functions in expressions {@link Memo memoize} it */
     @SneakyThrows(UnknownHostException.class)
-    public static String domainName() {
-        String[] split = InetAddress.getLocalHost().getHostName().split("\\.", 2);
+    private static String localHostName() { return InetAddress.getLocalHost().getHostName(); }
+
+    private static String hostName(String localHostName) { return localHostName.split("\\.")[0]; }
+
+    private static String domainName(String localHostName) {
+        String[] split = localHostName.split("\\.", 2);
         return (split.length == 2) ? split[1] : null;
     }
 
     private static final Pattern VAR = Pattern.compile("\\$\\{([^}]*)}");
-    private static final Pattern VARIABLE_VALUE = Pattern.compile("[- ._a-zA-Z0-9?*:|\\\\{}()\\[\\]]{1,256}");
+    private static final String VARIABLE_VALUE_SPECIAL_CHARS = "- ._?*:|\\{}()[]";
 
     private final ImmutableMap<VariableName, String> variables;
     private final RootBundleConfig rootBundleConfig;
     private final KeyStoreConfig keyStore;
     private final Resolver finalResolver;
+    @With(NONE) private final Memo memo;
+    /** Stateless, so it can be reused for every expression */
+    @With(NONE) private final Resolver resolver = expression -> OrExpression.of(expression).match(this);
 
-    public Expressions() { this(ImmutableMap.copyOf(systemProperties()), null, null, null); }
+    public Expressions() { this(ImmutableMap.copyOf(systemProperties()), null, null, null, new Memo()); }
 
     private static Map<VariableName, String> systemProperties() {
         return System.getProperties().stringPropertyNames().stream()
@@ -123,6 +136,9 @@ public class Expressions {
 
     public boolean contains(VariableName name) { return variables.containsKey(name); }
 
+    /** How often each function, e.g. <code>hostName#0</code>, was evaluated by these and all related expressions */
+    public Map<String, Long> functionEvaluations() { return memo.evaluations(); }
+
 
     /**
      * Replaces all expressions starting with `${` and ending with `}` - may be escaped with a second `$`,
@@ -130,53 +146,16 @@ public class Expressions {
      */
     public String resolve(String line) { return resolve(line, null); }
 
-    public String resolve(String line, String alternative) {
-        StringBuilder out = new StringBuilder();
-        if (line.contains("#"))
-            line = line.substring(0, line.indexOf('#'));
-        Matcher matcher = VAR.matcher(line);
-        int tail = 0;
-        boolean hasNullValue = false;
-        while (matcher.find()) {
-            out.append(line, tail, matcher.start());
-            if (matcher.start() > 0 && line.charAt(matcher.start() - 1) == '$') {
-                // +1 to skip the var-$ as we already copied the escape-$
-                out.append(line, matcher.start() + 1, matcher.end());
-            } else {
-                String expression = groupOneOr(matcher, alternative);
-                Match match = resolver().match(expression);
-                String value = match.orElseThrow(() -> new UnresolvedVariableException(expression));
-                if (value == null)
-                    hasNullValue = true;
-                else
-                    out.append(value);
-            }
-            tail = matcher.end();
-        }
-        out.append(line.substring(tail));
-        return (hasNullValue && out.length() == 0) ? null : out.toString();
-    }
+    public String resolve(String line, String alternative) { return template(line, alternative).evaluate(this); }
 
-    private String groupOneOr(Matcher matcher, String alternative) {
-        String expression = matcher.group(1);
-        if (alternative != null)
-            expression += " or " + alternative;
-        return expression;
+    static Template template(String line, String alternative) {
+        CompileCache<String, Template> templates = (alternative == null) ? TEMPLATES
+            : ALTERNATIVE_TEMPLATES.computeIfAbsent(alternative, key -> new CompileCache<>());
+        Template template = templates.get(line);
+        return (template == null) ? templates.put(line, Template.compile(line, alternative)) : template;
     }
 
-    public Resolver resolver() {
-        ImmutableList.Builder<Resolver> resolvers = ImmutableList.builder();
-        resolvers.add(new NullResolver());
-        resolvers.add(new BooleanResolver());
-        resolvers.add(new SwitchResolver());
-        resolvers.add(new LiteralResolver());
-        resolvers.add(new FunctionResolver());
-        resolvers.add(new RootBundleResolver());
-        resolvers.add(new VariableResolver());
-        if (finalResolver != null)
-            resolvers.add(finalResolver);
-        return new OrResolver(resolvers.build());
-    }
+    public Resolver resolver() { return resolver; }
 
     public interface Resolver {
         Match match(String expression);
@@ -208,65 +187,195 @@ public class Expressions {
         String getValueOrNull() { return (mode == matches) ? value : null; }
     }
 
-    @RequiredArgsConstructor
-    private static class OrResolver implements Resolver {
-        private final ImmutableList<Resolver> resolvers;
-
-        @Override public Match match(String expression) {
-            for (String subExpression : split(expression, " or ")) {
-                log.trace("try to resolve variable expression [{}]", subExpression);
-                resolvers:
-                for (Resolver resolver : resolvers) {
-                    Match match = resolver.match(subExpression);
-                    switch (match.mode) {
-                        case matches:
-                            return match;
-                        case stop:
-                            break resolvers;
-                        case proceed:
-                            //noinspection UnnecessaryContinue
-                            continue resolvers;
-                    }
+
+    /**
+     * The lines and expressions we have already parsed. Bundles with many instances resolve the same lines again and
+     * again, only with other variables; so we parse them only once, and evaluate the parsed nodes.
+     */
+    private static final CompileCache<String, Template> TEMPLATES = new CompileCache<>();
+    /** There are only a few alternatives, e.g. <code>default.group-id</code> */
+    private static final Map<String, CompileCache<String, Template>> ALTERNATIVE_TEMPLATES = new ConcurrentHashMap<>();
+    private static final CompileCache<String, OrExpression> EXPRESSIONS = new CompileCache<>();
+
+    static class CompileCache<K, V> {
+        static final int MAX_ENTRIES = 1000;
+
+        /** access ordered, i.e. the first entry is the least recently used */
+        private final Map<K, V> entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<K, V> eldest) { return size() > MAX_ENTRIES; }
+        };
+
+        synchronized V get(K key) { return entries.get(key); }
+
+        /** Compiling may recursively use the cache, so it's not done within the lock */
+        synchronized V put(K key, V value) {
+            entries.put(key, value);
+            return value;
+        }
+
+        synchronized int size() { return entries.size(); }
+    }
+
+    /** A line split into the literal texts and the expressions between them */
+    @RequiredArgsConstructor(access = PRIVATE)
+    static class Template {
+        /** one more than expressions */
+        private final List<String> texts;
+        private final List<OrExpression> expressions;
+
+        private static Template compile(String line, String alternative) {
+            List<String> texts = new ArrayList<>();
+            List<OrExpression> expressions = new ArrayList<>();
+            if (line.contains("#"))
+                line = line.substring(0, line.indexOf('#'));
+            StringBuilder text = new StringBuilder();
+            Matcher matcher = VAR.matcher(line);
+            int tail = 0;
+            while (matcher.find()) {
+                text.append(line, tail, matcher.start());
+                if (matcher.start() > 0 && line.charAt(matcher.start() - 1) == '$') {
+                    // +1 to skip the var-$ as we already copied the escape-$
+                    text.append(line, matcher.start() + 1, matcher.end());
+                } else {
+                    texts.add(text.toString());
+                    text.setLength(0);
+                    String expression = matcher.group(1);
+                    if (alternative != null)
+                        expression += " or " + alternative;
+                    expressions.add(OrExpression.of(expression));
                 }
+                tail = matcher.end();
             }
-            return Match.PROCEED;
+            texts.add(text.append(line.substring(tail)).toString());
+            return new Template(ImmutableList.copyOf(texts), ImmutableList.copyOf(expressions));
+        }
+
+        private String evaluate(Expressions context) {
+            if (expressions.isEmpty())
+                return texts.get(0);
+            StringBuilder out = new StringBuilder(texts.get(0));
+            boolean hasNullValue = false;
+            for (int i = 0; i < expressions.size(); i++) {
+                OrExpression expression = expressions.get(i);
+                String value = expression.match(context)
+                    .orElseThrow(() -> new UnresolvedVariableException(expression.text));
+                if (value == null)
+                    hasNullValue = true;
+                else
+                    out.append(value);
+                out.append(texts.get(i + 1));
+            }
+            return (hasNullValue && out.length() == 0) ? null : out.toString();
         }
     }
 
+    /** The first of the alternatives that matches */
+    @RequiredArgsConstructor(access = PRIVATE)
+    private static class OrExpression {
+        private final String text;
+        private final List<Alternative> alternatives;
 
-    private static class NullResolver implements Resolver {
-        @Override public Match match(String expression) {
-            return "null".equals(expression) ? Match.of((String) null) : Match.PROCEED;
+        private static OrExpression of(String expression) {
+            OrExpression compiled = EXPRESSIONS.get(expression);
+            return (compiled == null) ? EXPRESSIONS.put(expression, compile(expression)) : compiled;
+        }
+
+        private static OrExpression compile(String expression) {
+            return new OrExpression(expression, split(expression, " or ").stream()
+                .map(Alternative::new)
+                .collect(ImmutableList.toImmutableList()));
+        }
+
+        private Match match(Expressions context) {
+            for (Alternative alternative : alternatives) {
+                Match match = alternative.match(context);
+                if (match.mode == matches)
+                    return match;
+            }
+            return Match.PROCEED;
         }
     }
 
+    /**
+     * The node for the built-in expression this alternative can be, if any; when it doesn't match, the
+     * final resolver gets the expression text, unless the node says to stop.
+     */
+    private static class Alternative {
+        private final String text;
+        private final Node node;
 
-    private static class BooleanResolver implements Resolver {
-        @Override public Match match(String expression) {
-            return ("true".equals(expression) || "false".equals(expression)) ? Match.of(expression) : Match.PROCEED;
+        private Alternative(String text) {
+            this.text = text;
+            this.node = Node.compile(text);
+        }
+
+        private Match match(Expressions context) {
+            log.trace("try to resolve variable expression [{}]", text);
+            Match match = node.match(context);
+            if (match.mode == proceed && context.finalResolver != null)
+                match = context.finalResolver.match(text);
+            return match;
         }
     }
 
+    private interface Node {
+        Node NONE = context -> Match.PROCEED;
 
-    private class SwitchResolver implements Resolver {
-        @Override public Match match(String expression) {
-            if (!expression.startsWith("switch"))
-                return Match.PROCEED;
-            return Match.of(doSwitch(expression.substring(6)));
+        Match match(Expressions context);
+
+        static Node compile(String expression) {
+            try {
+                return parse(expression);
+            } catch (RuntimeException e) {
+                // fail only when the expression is evaluated, as an earlier alternative may match
+                return context -> parse(expression).match(context);
+            }
+        }
+
+        /** The kind of an expression only depends on its text, so there's at most one kind of node that can match */
+        private static Node parse(String expression) {
+            if ("null".equals(expression))
+                return constant(Match.of((String) null));
+            if ("true".equals(expression) || "false".equals(expression))
+                return constant(Match.of(expression));
+            if (expression.startsWith("switch"))
+                return SwitchNode.compile(expression.substring(6));
+            if (expression.indexOf('«') == 0)
+                return constant(Match.of(findBrackets("«»", expression)));
+            Matcher function = FUNCTION.matcher(expression);
+            if (function.matches())
+                return FunctionNode.compile(function.group("name"), function.group("body"));
+            if (expression.startsWith(ROOT_BUNDLE))
+                return RootBundleNode.compile(expression.substring(ROOT_BUNDLE.length()));
+            if (NAME_TOKEN.matcher(expression).matches())
+                return new VariableNode(new VariableName(expression));
+            return NONE;
         }
 
-        private String doSwitch(String expression) {
+        private static Node constant(Match match) { return context -> match; }
+    }
+
+    @RequiredArgsConstructor(access = PRIVATE)
+    private static class SwitchNode implements Node {
+        private final String head;
+        private final OrExpression value;
+        private final String body;
+
+        private static SwitchNode compile(String expression) {
             String head = findBrackets("()", expression)
                 .orElseThrow(() -> new IllegalArgumentException("unmatched brackets for switch statement"));
-            String value = resolver().match(head).orElseThrow(() ->
+            return new SwitchNode(head, OrExpression.of(head), expression.substring(head.length() + 2));
+        }
+
+        @Override public Match match(Expressions context) {
+            String value = this.value.match(context).orElseThrow(() ->
                 new IllegalArgumentException("no variable defined in switch header: '" + head + "'"));
-            String body = expression.substring(head.length() + 2);
             int i = body.indexOf(" " + value + ":");
             if (i < 0)
                 throw new IllegalArgumentException("no case label for '" + value + "' in switch statement");
             String rest = body.substring(i + value.length() + 2).trim();
-            return findBrackets("«»", rest)
-                .orElseThrow(() -> new IllegalArgumentException("unmatched brackets for switch literal"));
+            return Match.of(findBrackets("«»", rest)
+                .orElseThrow(() -> new IllegalArgumentException("unmatched brackets for switch literal")));
         }
     }
 
@@ -294,32 +403,38 @@ public class Expressions {
     }
 
 
-    private static class LiteralResolver implements Resolver {
-        @Override public Match match(String expression) {
-            return Match.of(findBrackets("«»", expression));
-        }
-    }
-
+    @RequiredArgsConstructor
+    private static class VariableNode implements Node {
+        private final VariableName variableName;
 
-    private class VariableResolver implements Resolver {
-        @Override public Match match(String expression) {
-            Matcher matcher = NAME_TOKEN.matcher(expression);
-            if (!matcher.matches())
-                return Match.PROCEED;
-            VariableName variableName = new VariableName(matcher.group());
-            if (variables.containsKey(variableName)) {
-                String value = resolve(variables.get(variableName), "null");
-                if (value != null && !VARIABLE_VALUE.matcher(value).matches())
+        @Override public Match match(Expressions context) {
+            if (context.variables.containsKey(variableName)) {
+                String value = context.resolve(context.variables.get(variableName), "null");
+                if (value != null && !isValidVariableValue(value))
                     throw new BadRequestException("invalid character in variable value for [" + variableName + "]");
                 return Match.of(value);
             } else {
-                log.trace("undefined variable [{}]", expression);
+                log.trace("undefined variable [{}]", variableName);
                 return Match.PROCEED;
             }
         }
     }
 
 
+    /** Like a regex, but without allocating a matcher for every variable */
+    private static boolean isValidVariableValue(String value) {
+        if (value.isEmpty() || value.length() > 256)
+            return false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                || VARIABLE_VALUE_SPECIAL_CHARS.indexOf(c) >= 0))
+                return false;
+        }
+        return true;
+    }
+
+
     private static final String ROOT_BUNDLE = "root-bundle:";
     private static final ImmutableMap<String, Function<RootBundleConfig, String>> BUNDLE = ImmutableMap.of(
         "group-id", c -> (c.getGroupId() == null) ? null : c.getGroupId().getValue(),
@@ -327,131 +442,151 @@ public class Expressions {
         "classifier", c -> (c.getClassifier() == null) ? null : c.getClassifier().getValue(),
         "version", c -> (c.getVersion() == null) ? null : c.getVersion().getValue());
 
-    private class RootBundleResolver implements Resolver {
-        @Override public Match match(String expression) {
-            if (!expression.startsWith(ROOT_BUNDLE))
-                return Match.PROCEED;
-            String fieldName = expression.substring(ROOT_BUNDLE.length());
+    @RequiredArgsConstructor(access = PRIVATE)
+    private static class RootBundleNode implements Node {
+        private final Function<RootBundleConfig, String> field;
+
+        private static RootBundleNode compile(String fieldName) {
             if (!BUNDLE.containsKey(fieldName))
-                throw new IllegalArgumentException("undefined root-bundle expression: [" + expression + "]");
-            if (rootBundleConfig == null)
+                throw new IllegalArgumentException("undefined root-bundle expression: [" + ROOT_BUNDLE + fieldName + "]");
+            return new RootBundleNode(BUNDLE.get(fieldName));
+        }
+
+        @Override public Match match(Expressions context) {
+            if (context.rootBundleConfig == null)
                 return Match.STOP;
-            String subExpression = BUNDLE.get(fieldName).apply(rootBundleConfig);
+            String subExpression = field.apply(context.rootBundleConfig);
             if (subExpression == null)
                 return Match.STOP;
-            return Match.of(Expressions.this.resolve(subExpression));
+            return Match.of(context.resolve(subExpression));
         }
-
     }
 
-    private static final Pattern FUNCTION = Pattern.compile("(?<name>" + NAME_TOKEN + ")" + "(\\((?<body>.*)\\))");
+    /**
+     * Shared by all expressions derived from the same one, i.e. for one apply. The environment doesn't change within
+     * one apply, but may change between them, e.g. when the host is renamed.
+     */
+    private static class Memo {
+        private final Map<String, String> environment = new HashMap<>();
+        private final Map<String, LongAdder> evaluations = new ConcurrentHashMap<>();
+
+        private synchronized String environment(String name, Supplier<String> supplier) {
+            if (!environment.containsKey(name))
+                environment.put(name, supplier.get());
+            return environment.get(name);
+        }
 
-    private class FunctionResolver implements Resolver {
-        private final CipherService cipher = new CipherService();
+        private void evaluated(String signature) { evaluations.computeIfAbsent(signature, key -> new LongAdder()).increment(); }
 
-        @Override public Match match(String expression) {
-            Matcher matcher = FUNCTION.matcher(expression);
-            if (!matcher.matches())
-                return Match.PROCEED;
-            return new FunctionMatch(matcher.group("name"), params(matcher.group("body"))).match();
+        private Map<String, Long> evaluations() {
+            Map<String, Long> result = new TreeMap<>();
+            evaluations.forEach((signature, count) -> result.put(signature, count.sum()));
+            return result;
         }
+    }
 
-        @RequiredArgsConstructor
-        private class FunctionMatch {
-            private final String functionName;
-            private final List<Supplier<String>> params;
-
-            private Match match() {
-                log.trace("found function name [{}] with {} params", functionName, params.size());
-                switch (functionName + "#" + params.size()) {
-                    case "hostName#0":
-                        return Match.of(hostName());
-                    case "domainName#0":
-                        return Match.of(domainName());
-                    case "toUpperCase#1":
-                        return apply1(s -> s.toUpperCase(US));
-                    case "toLowerCase#1":
-                        return apply1(s -> s.toLowerCase(US));
-                    case "toInitCap#1":
-                        return apply1(this::toInitCap);
-                    case "decrypt#1":
-                        return apply1(this::decrypt);
-                    case "decrypt#2":
-                        return apply2(this::decrypt);
-                    case "regex#2":
-                        return applyRegex();
-                    default:
-                        throw new BadRequestException("undefined function [" + functionName + "] with " + params.size() + " params");
-                }
-            }
+    private static final CompileCache<String, Pattern> PATTERNS = new CompileCache<>();
 
-            private Match apply1(Function<String, String> function) {
-                return Match.of(param(0).map(function));
-            }
+    private static Pattern pattern(String regex) {
+        Pattern pattern = PATTERNS.get(regex);
+        return (pattern == null) ? PATTERNS.put(regex, Pattern.compile(regex)) : pattern;
+    }
 
-            private Match apply2(BiFunction<String, String, String> function) {
-                Optional<String> param0 = param(0);
-                Optional<String> param1 = param(1);
-                return (param0.isPresent() && param1.isPresent())
-                    ? Match.of(function.apply(param0.get(), param1.get()))
-                    : Match.PROCEED;
-            }
+    private static final Pattern FUNCTION = Pattern.compile("(?<name>" + NAME_TOKEN + ")" + "(\\((?<body>.*)\\))");
+    private static final CipherService CIPHER = new CipherService();
 
-            private Optional<String> param(int index) { return Optional.ofNullable(params.get(index).get()); }
+    @RequiredArgsConstructor(access = PRIVATE)
+    private static class FunctionNode implements Node {
+        private final String functionName;
+        /** Evaluated only when the function needs them */
+        private final List<OrExpression> params;
+        private final String signature;
 
-            private String toInitCap(String text) {
-                return (text.length() == 0) ? "" : (Character.toUpperCase(text.charAt(0)) + text.substring(1));
+        private static FunctionNode compile(String name, String body) {
+            List<OrExpression> params = split(body, ",").stream()
+                .map(String::trim)
+                .map(OrExpression::of)
+                .collect(ImmutableList.toImmutableList());
+            return new FunctionNode(name, params, name + "#" + params.size());
+        }
+
+        @Override public Match match(Expressions context) {
+            log.trace("found function [{}]", signature);
+            context.memo.evaluated(signature);
+            switch (signature) {
+                case "hostName#0":
+                    return Match.of(hostName(context.memo.environment("localHostName", Expressions::localHostName)));
+                case "domainName#0":
+                    return Match.of(domainName(context.memo.environment("localHostName", Expressions::localHostName)));
+                case "toUpperCase#1":
+                    return apply1(context, s -> s.toUpperCase(US));
+                case "toLowerCase#1":
+                    return apply1(context, s -> s.toLowerCase(US));
+                case "toInitCap#1":
+                    return apply1(context, FunctionNode::toInitCap);
+                case "decrypt#1":
+                    return apply1(context, text -> CIPHER.decrypt(text, context.keyStore));
+                case "decrypt#2":
+                    return apply2(context, (text, alias) -> CIPHER.decrypt(text, context.keyStore.withAlias(alias)));
+                case "regex#2":
+                    return applyRegex(context);
+                default:
+                    throw new BadRequestException("undefined function [" + functionName + "] with " + params.size() + " params");
             }
+        }
 
-            private String decrypt(String text) { return cipher.decrypt(text, keyStore); }
+        private Match apply1(Expressions context, Function<String, String> function) {
+            String param = param(context, 0);
+            String result = (param == null) ? null : function.apply(param);
+            return (result == null) ? Match.PROCEED : Match.of(result);
+        }
 
-            private String decrypt(String text, String alias) {
-                return cipher.decrypt(text, keyStore.setAlias(alias));
-            }
+        private Match apply2(Expressions context, BiFunction<String, String, String> function) {
+            String param0 = param(context, 0);
+            String param1 = param(context, 1);
+            return (param0 != null && param1 != null) ? Match.of(function.apply(param0, param1)) : Match.PROCEED;
+        }
 
-            private Match applyRegex() {
-                Optional<String> text = param(0);
-                Optional<Pattern> pattern = param(1).map(Pattern::compile);
-                if (!text.isPresent() || !pattern.isPresent())
-                    return Match.PROCEED;
-                Matcher matcher = pattern.get().matcher(text.get());
-                return matcher.matches() ? Match.of(matcher.group(1)) : Match.PROCEED;
-            }
+        private String param(Expressions context, int index) { return params.get(index).match(context).getValue(); }
+
+        private static String toInitCap(String text) {
+            return (text.length() == 0) ? "" : (Character.toUpperCase(text.charAt(0)) + text.substring(1));
         }
 
-        private List<Supplier<String>> params(CharSequence body) {
-            return split(body, ",")
-                .stream()
-                .map(String::trim)
-                .map(expression -> (Supplier<String>) () -> resolver().match(expression).getValue())
-                .collect(toList());
+        private Match applyRegex(Expressions context) {
+            String text = param(context, 0);
+            String pattern = param(context, 1);
+            if (text == null || pattern == null)
+                return Match.PROCEED;
+            Matcher matcher = pattern(pattern).matcher(text);
+            return matcher.matches() ? Match.of(matcher.group(1)) : Match.PROCEED;
         }
     }
 
     /** Like String#split, but considering round braces */
     private static List<String> split(CharSequence expression, String pattern) {
         List<String> list = new ArrayList<>();
-        String current = "";
+        StringBuilder current = new StringBuilder();
+        int nesting = 0;
         if (expression.length() > 0)
             for (String split : expression.toString().split(pattern)) {
-                current += split;
-                if (count('(', current) == count(')', current)) {
-                    list.add(current);
-                    current = "";
+                current.append(split);
+                nesting += count('(', split) - count(')', split);
+                if (nesting == 0) {
+                    list.add(current.toString());
+                    current.setLength(0);
                 } else {
-                    current += pattern;
+                    current.append(pattern);
                 }
             }
         return list;
     }
 
     private static int count(char c, String string) {
-        int n = -1, offset = -1;
-        do
-        {
-            ++n;
-            offset = string.indexOf(c, offset + 1);
-        } while (offset >= 0);
+        int n = 0;
+        for (int i = 0; i < string.length(); i++)
+            if (string.charAt(i) == c)
+                n++;
         return n;
     }
 
@@ -20,7 +20,6 @@ import static com.github.t1.deployer.model.LogHandlerType.periodicRotatingFile;
 import static com.github.t1.deployer.model.Plan.AbstractPlan;
 import static com.github.t1.deployer.model.Plan.PlanLoadingException;
 import static com.github.t1.deployer.model.Plan.apply;
-import static com.github.t1.deployer.model.Plan.expressions;
 import static java.util.function.Function.identity;
 
 @Data @Accessors(chain = true)
@@ -51,35 +50,35 @@ public final class LogHandlerPlan implements AbstractPlan {
 
     public void addProperty(String key, String value) { properties.put(key, value); }
 
-    static LogHandlerPlan fromJson(LogHandlerName name, JsonNode node) {
+    static LogHandlerPlan fromJson(Expressions expressions, LogHandlerName name, JsonNode node) {
         LogHandlerPlan plan = new LogHandlerPlan(name);
-        apply(node, "state", plan::setState, DeploymentState::valueOf);
-        apply(node, "level", plan::setLevel, LogLevel::valueOf, "«ALL»");
-        apply(node, "type", plan::setType, LogHandlerType::valueOfTypeName,
+        apply(expressions, node, "state", plan::setState, DeploymentState::valueOf);
+        apply(expressions, node, "level", plan::setLevel, LogLevel::valueOf, "«ALL»");
+        apply(expressions, node, "type", plan::setType, LogHandlerType::valueOfTypeName,
             "default.log-handler-type or «" + periodicRotatingFile + "»");
-        if (node.has("format") || (!node.has("formatter") && !Plan.expressions.contains(DEFAULT_LOG_FORMATTER)))
-            apply(node, "format", plan::setFormat, identity(), "default.log-format or null");
-        apply(node, "formatter", plan::setFormatter, identity(), "default.log-formatter");
-        apply(node, "encoding", plan::setEncoding, identity(), "default.log-encoding");
-        applyByType(node, plan);
+        if (node.has("format") || (!node.has("formatter") && !expressions.contains(DEFAULT_LOG_FORMATTER)))
+            apply(expressions, node, "format", plan::setFormat, identity(), "default.log-format or null");
+        apply(expressions, node, "formatter", plan::setFormatter, identity(), "default.log-formatter");
+        apply(expressions, node, "encoding", plan::setEncoding, identity(), "default.log-encoding");
+        applyByType(expressions, node, plan);
         return plan.validate();
     }
 
-    private static void applyByType(JsonNode node, LogHandlerPlan plan) {
+    private static void applyByType(Expressions expressions, JsonNode node, LogHandlerPlan plan) {
         switch (plan.type) {
             case console:
                 // nothing more to load here
                 return;
             case periodicRotatingFile:
-                apply(node, "file", plan::setFile, identity(),
+                apply(expressions, node, "file", plan::setFile, identity(),
                     "«" + (plan.name.getValue().toLowerCase() + ".log") + "»");
-                applySuffix(node, plan, true);
+                applySuffix(expressions, node, plan, true);
                 return;
             case custom:
-                apply(node, "file", plan::setFile, identity(), null);
-                applySuffix(node, plan, false);
-                apply(node, "module", plan::setModule, identity());
-                apply(node, "class", plan::setClass_, identity());
+                apply(expressions, node, "file", plan::setFile, identity(), null);
+                applySuffix(expressions, node, plan, false);
+                apply(expressions, node, "module", plan::setModule, identity());
+                apply(expressions, node, "class", plan::setClass_, identity());
                 if (node.has("properties") && !node.get("properties").isNull())
                     node.get("properties").fieldNames().forEachRemaining(fieldName ->
                         plan.addProperty(
@@ -91,8 +90,8 @@ public final class LogHandlerPlan implements AbstractPlan {
             + " in [" + plan.name + "]");
     }
 
-    private static void applySuffix(JsonNode node, LogHandlerPlan plan, boolean defaultSuffix) {
-        apply(node, "suffix", plan::setSuffix, identity(),
+    private static void applySuffix(Expressions expressions, JsonNode node, LogHandlerPlan plan, boolean defaultSuffix) {
+        apply(expressions, node, "suffix", plan::setSuffix, identity(),
             "default.log-file-suffix" + (defaultSuffix ? " or «" + DEFAULT_SUFFIX + "»" : ""));
     }
 
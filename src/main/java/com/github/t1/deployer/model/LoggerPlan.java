@@ -40,26 +40,26 @@ public final class LoggerPlan implements Plan.AbstractPlan {
         return this;
     }
 
-    static LoggerPlan fromJson(LoggerCategory category, JsonNode node) {
+    static LoggerPlan fromJson(Expressions expressions, LoggerCategory category, JsonNode node) {
         if (node.isNull())
             throw new Plan.PlanLoadingException("incomplete loggers plan '" + category + "'");
         LoggerPlan plan = new LoggerPlan(category);
-        apply(node, "state", plan::setState, DeploymentState::valueOf);
-        apply(node, "level", plan::setLevel, LogLevel::valueOf, "default.log-level or «DEBUG»");
-        applyHandlers(node, plan);
-        apply(node, "use-parent-handlers", plan::setUseParentHandlers, Boolean::valueOf);
+        apply(expressions, node, "state", plan::setState, DeploymentState::valueOf);
+        apply(expressions, node, "level", plan::setLevel, LogLevel::valueOf, "default.log-level or «DEBUG»");
+        applyHandlers(expressions, node, plan);
+        apply(expressions, node, "use-parent-handlers", plan::setUseParentHandlers, Boolean::valueOf);
         return plan.validate();
     }
 
-    private static void applyHandlers(JsonNode node, LoggerPlan plan) {
+    private static void applyHandlers(Expressions expressions, JsonNode node, LoggerPlan plan) {
         if (node.has("handler")) {
             if (node.has("handlers"))
                 throw new Plan.PlanLoadingException("Can't have 'handler' _and_ 'handlers'");
-            apply(node, "handler", plan::addHandler, identity());
+            apply(expressions, node, "handler", plan::addHandler, identity());
         } else if (node.has("handlers")) {
             Iterator<JsonNode> handlers = node.get("handlers").elements();
             while (handlers.hasNext())
-                plan.addHandler(Plan.expressions.resolve(handlers.next().textValue()));
+                plan.addHandler(expressions.resolve(handlers.next().textValue()));
         }
     }
 
@@ -1,8 +1,10 @@
 package com.github.t1.deployer.model;
 
+import com.fasterxml.jackson.annotation.JacksonInject;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.InjectableValues;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies.KebabCaseStrategy;
@@ -19,8 +21,6 @@ import java.io.IOException;
 import java.io.Reader;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.Callable;
-import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -59,8 +59,6 @@ public final class Plan {
         private PlanLoadingException(String message, Throwable cause) { super(message, cause); }
     }
 
-    static Expressions expressions = null;
-
     @JsonProperty private Map<LogHandlerName, LogHandlerPlan> logHandlers = new LinkedHashMap<>();
     @JsonProperty private Map<LoggerCategory, LoggerPlan> loggers = new LinkedHashMap<>();
     @JsonProperty private Map<DataSourceName, DataSourcePlan> dataSources = new LinkedHashMap<>();
@@ -90,44 +88,45 @@ public final class Plan {
     public Plan addBundle(BundlePlan bundlePlan) { bundles.put(bundlePlan.getName(), bundlePlan); return this; }
 
 
+    /**
+     * The expressions are passed to {@link #fromJson(JsonNode, Expressions)} as an injectable value of this one read,
+     * so several plans can be loaded concurrently, e.g. nested bundles.
+     */
     public static Plan load(@NotNull Expressions expressions, Reader reader, String sourceMessage) {
-        return Plan.with(expressions, sourceMessage, () -> {
-            Plan plan = YAML.readValue(reader, Plan.class);
+        try {
+            Plan plan = YAML.readerFor(Plan.class)
+                .with(new InjectableValues.Std().addValue(Expressions.class, expressions))
+                .readValue(reader);
             if (plan == null)
                 plan = new Plan();
             log.debug("plan loaded from {}:\n{}", sourceMessage, plan);
             return plan;
-        });
-    }
-
-    public static synchronized Plan with(Expressions expressions, String sourceMessage, Callable<Plan> callable) {
-        assert Plan.expressions == null : "can not reenter Plan#load";
-        Plan.expressions = expressions;
-        try {
-            return callable.call();
         } catch (Exception e) {
             throw new PlanLoadingException("exception while loading plan from " + sourceMessage, e);
-        } finally {
-            Plan.expressions = null;
         }
     }
 
-    @JsonCreator(mode = DELEGATING) public static Plan fromJson(JsonNode json) {
+    @JsonCreator(mode = DELEGATING)
+    public static Plan fromJson(JsonNode json, @JacksonInject Expressions expressions) {
         Plan plan = new Plan();
-        readAll(json.get("log-handlers"), LogHandlerName::new, LogHandlerPlan::fromJson, plan::addLogHandler);
-        readAll(json.get("loggers"), LoggerCategory::of, LoggerPlan::fromJson, plan::addLogger);
-        readAll(json.get("data-sources"), DataSourceName::new, DataSourcePlan::fromJson, plan::addDataSource);
-        readAll(json.get("deployables"), DeploymentName::new, DeployablePlan::fromJson, plan::addDeployable);
-        readAll(json.get("bundles"), BundleName::new, BundlePlan::fromJson, plan::addBundle);
+        readAll(expressions, json.get("log-handlers"), LogHandlerName::new, LogHandlerPlan::fromJson, plan::addLogHandler);
+        readAll(expressions, json.get("loggers"), LoggerCategory::of, LoggerPlan::fromJson, plan::addLogger);
+        readAll(expressions, json.get("data-sources"), DataSourceName::new, DataSourcePlan::fromJson, plan::addDataSource);
+        readAll(expressions, json.get("deployables"), DeploymentName::new, DeployablePlan::fromJson, plan::addDeployable);
+        readAll(expressions, json.get("bundles"), BundleName::new, BundlePlan::fromJson, plan::addBundle);
         return plan;
     }
 
-    private static <K, V> void readAll(JsonNode jsonNode, Function<String, K> toKey, BiFunction<K, JsonNode, V> toPlan,
-                                       Consumer<V> consumer) {
+    private interface PlanReader<K, V> {
+        V read(Expressions expressions, K key, JsonNode node);
+    }
+
+    private static <K, V> void readAll(Expressions expressions, JsonNode jsonNode, Function<String, K> toKey,
+                                       PlanReader<K, V> toPlan, Consumer<V> consumer) {
         if (jsonNode != null)
             jsonNode.fieldNames().forEachRemaining(
                 name -> consumer.accept(
-                    toPlan.apply(toKey.apply(expressions.resolve(name, null)), jsonNode.get(name))));
+                    toPlan.read(expressions, toKey.apply(expressions.resolve(name, null)), jsonNode.get(name))));
     }
 
     public interface AbstractPlan {
@@ -137,11 +136,12 @@ public final class Plan {
     }
 
 
-    static <T> void apply(JsonNode node, String fieldName, Consumer<T> setter, Function<String, T> convert) {
-        apply(node, fieldName, setter, convert, null);
+    static <T> void apply(Expressions expressions, JsonNode node, String fieldName, Consumer<T> setter,
+                          Function<String, T> convert) {
+        apply(expressions, node, fieldName, setter, convert, null);
     }
 
-    static <T> void apply(JsonNode node, String fieldName, Consumer<T> setter, Function<String, T> convert,
+    static <T> void apply(Expressions expressions, JsonNode node, String fieldName, Consumer<T> setter, Function<String, T> convert,
                           String alternativeExpression) {
         String value = (node.has(fieldName) && !node.get(fieldName).isNull())
             ? expressions.resolve(node.get(fieldName).asText(), alternativeExpression)
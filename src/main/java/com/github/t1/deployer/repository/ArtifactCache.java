@@ -0,0 +1,187 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Artifact;
+import com.github.t1.deployer.model.Checksum;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Stores the artifacts downloaded from a {@link Repository} on the local disk, addressed by their SHA-1
+ * {@link Checksum}, so they don't have to be downloaded again. A download is first written to a temporary file,
+ * and only renamed to its final name, if the {@link ChecksumVerifyingInputStream checksum matches}. The checksum
+ * is verified again when reading, so a corrupted file is simply downloaded again. When the total size exceeds the
+ * maximum, the least recently used files are evicted.
+ */
+@Slf4j
+public class ArtifactCache {
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Path dir;
+    private final long maxBytes;
+
+    /** access ordered, i.e. the first entry is the least recently used */
+    private final Map<Checksum, Long> sizes = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    @SneakyThrows(IOException.class)
+    ArtifactCache(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(dir);
+        scan();
+        log.info("artifact cache in {} contains {} files with {} bytes", dir, sizes.size(), totalBytes);
+    }
+
+    /** A cache in a new temporary directory, e.g. to share the downloads of a fleet; {@link #delete()} it when done */
+    @SneakyThrows(IOException.class)
+    public static ArtifactCache temporary() {
+        return new ArtifactCache(Files.createTempDirectory("deployer-artifacts-"), Long.MAX_VALUE);
+    }
+
+    private synchronized void scan() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(dir, 2)) {
+            files = stream.filter(Files::isRegularFile).collect(toList());
+        }
+        files.stream()
+            .filter(this::isNotStaleTempFile)
+            .sorted(Comparator.comparing(ArtifactCache::lastModified))
+            .forEach(file -> add(Checksum.ofHexString(file.getFileName().toString()), size(file)));
+        evict();
+    }
+
+    private boolean isNotStaleTempFile(Path file) {
+        if (!file.getFileName().toString().endsWith(TMP_SUFFIX))
+            return true;
+        log.debug("delete stale temp file {}", file);
+        delete(file);
+        return false;
+    }
+
+    /** Route the downloads of this artifact through this cache. */
+    Artifact cached(Artifact artifact) {
+        Supplier<InputStream> download = artifact.getInputStreamSupplier();
+        return artifact.setInputStreamSupplier(() -> get(artifact.getChecksum(), download));
+    }
+
+    @SneakyThrows(IOException.class)
+    public InputStream get(Checksum checksum, Supplier<InputStream> download) {
+        if (checksum == null || checksum.isEmpty())
+            return download.get();
+        Path file = file(checksum);
+        if (Files.isRegularFile(file)) {
+            if (Checksum.sha1(file).equals(checksum)) {
+                log.debug("cache hit for {}", checksum);
+                touch(checksum, file);
+                return Files.newInputStream(file);
+            }
+            log.warn("evict corrupted cache file {}", file);
+            remove(checksum);
+        }
+        log.debug("cache miss for {}", checksum);
+        store(checksum, download);
+        return Files.newInputStream(file);
+    }
+
+    private void store(Checksum checksum, Supplier<InputStream> download) throws IOException {
+        Path file = file(checksum);
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), TMP_SUFFIX);
+        try {
+            try (InputStream inputStream = new ChecksumVerifyingInputStream(download.get(), () -> checksum)) {
+                Files.copy(inputStream, tmp, REPLACE_EXISTING);
+            }
+            Files.move(tmp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        synchronized (this) {
+            add(checksum, size(file));
+            evict();
+        }
+    }
+
+    private void touch(Checksum checksum, Path file) throws IOException {
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+        synchronized (this) {
+            sizes.get(checksum); // access order
+        }
+    }
+
+    private void add(Checksum checksum, long size) {
+        Long old = sizes.put(checksum, size);
+        totalBytes += size - ((old == null) ? 0 : old);
+    }
+
+    private synchronized void remove(Checksum checksum) {
+        Long size = sizes.remove(checksum);
+        if (size != null)
+            totalBytes -= size;
+        delete(file(checksum));
+    }
+
+    /** Evict the least recently used files, but always keep the most recent one */
+    private void evict() {
+        Iterator<Map.Entry<Checksum, Long>> iterator = sizes.entrySet().iterator();
+        while (totalBytes > maxBytes && sizes.size() > 1) {
+            Map.Entry<Checksum, Long> eldest = iterator.next();
+            log.debug("evict {} with {} bytes", eldest.getKey(), eldest.getValue());
+            delete(file(eldest.getKey()));
+            totalBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    /** Delete all files and the directory of this cache */
+    @SneakyThrows(IOException.class)
+    public synchronized void delete() {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(dir)) {
+            files = stream.sorted(Comparator.reverseOrder()).collect(toList());
+        }
+        files.forEach(ArtifactCache::delete);
+        sizes.clear();
+        totalBytes = 0;
+    }
+
+    synchronized long totalBytes() { return totalBytes; }
+
+    synchronized boolean contains(Checksum checksum) { return sizes.containsKey(checksum); }
+
+    private Path file(Checksum checksum) {
+        String hex = checksum.toString();
+        return dir.resolve(hex.substring(0, 2)).resolve(hex);
+    }
+
+    @SneakyThrows(IOException.class)
+    private static long size(Path file) { return Files.size(file); }
+
+    @SneakyThrows(IOException.class)
+    private static FileTime lastModified(Path file) { return Files.getLastModifiedTime(file); }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("can't delete {}: {}", file, e.toString());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.github.t1.deployer.repository;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+public class ArtifactCacheConfig {
+    public static final int DEFAULT_MAX_MEGABYTES = 1024;
+
+    /** The directory to store the cached artifacts in. The cache is disabled, if this is not configured. */
+    String path;
+    Integer maxMegabytes;
+
+    long maxBytes() { return ((maxMegabytes == null) ? DEFAULT_MAX_MEGABYTES : maxMegabytes) * 1024L * 1024L; }
+}
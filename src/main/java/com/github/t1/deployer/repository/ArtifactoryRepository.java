@@ -1,5 +1,7 @@
 package com.github.t1.deployer.repository;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.github.t1.deployer.model.Artifact;
 import com.github.t1.deployer.model.ArtifactId;
 import com.github.t1.deployer.model.ArtifactType;
@@ -13,8 +15,10 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.json.bind.annotation.JsonbProperty;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
@@ -27,13 +31,22 @@ import java.io.InputStream;
 import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
+import static javax.ws.rs.core.HttpHeaders.ETAG;
+import static javax.ws.rs.core.HttpHeaders.IF_MODIFIED_SINCE;
+import static javax.ws.rs.core.HttpHeaders.IF_NONE_MATCH;
+import static javax.ws.rs.core.HttpHeaders.LAST_MODIFIED;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 import static javax.ws.rs.core.MediaType.APPLICATION_XML_TYPE;
+import static javax.ws.rs.core.Response.Status.NOT_MODIFIED;
 import static javax.xml.bind.annotation.XmlAccessType.FIELD;
 
 @Slf4j
@@ -43,6 +56,12 @@ public class ArtifactoryRepository extends Repository {
     @NonNull private final URI artifactoryUri;
     @NonNull private final String repositorySnapshots;
     @NonNull private final String repositoryReleases;
+    private SnapshotCache snapshotCache;
+
+    ArtifactoryRepository cachedIn(SnapshotCache snapshotCache) {
+        this.snapshotCache = snapshotCache;
+        return this;
+    }
 
     /**
      * It's not really nice to get the version out of the repo path, but where else would I get it? Even with the
@@ -72,7 +91,7 @@ public class ArtifactoryRepository extends Repository {
                 return item.getUri();
             default:
                 log.error("checksum not unique in repository: '{}'", checksum);
-                throw new RuntimeException("checksum not unique in repository: '" + checksum + "'");
+                throw new NonUniqueChecksumException(checksum);
         }
     }
 
@@ -90,6 +109,63 @@ public class ArtifactoryRepository extends Repository {
         }
     }
 
+    /** Find all checksums with one <a href="https://www.jfrog.com/confluence/display/JFROG/Artifactory+Query+Language">AQL</a> query */
+    @Override public Map<Checksum, Artifact> searchByChecksums(Collection<Checksum> checksums) {
+        log.debug("searchByChecksums({})", checksums);
+        Map<Checksum, List<URI>> uris = new LinkedHashMap<>();
+        for (AqlItem item : searchByChecksumsResults(checksums))
+            uris.computeIfAbsent(item.getSha1(), sha1 -> new ArrayList<>()).add(item.uri(artifactoryUri));
+        Map<Checksum, Artifact> result = new LinkedHashMap<>();
+        uris.forEach((checksum, list) -> {
+            if (list.size() > 1) {
+                log.error("checksum not unique in repository: '{}': {}", checksum, list);
+                result.put(checksum, notUnique(checksum));
+            } else {
+                result.put(checksum, artifactFromArtifactoryUri(checksum, list.get(0)));
+            }
+        });
+        log.debug("found {}", result);
+        return result;
+    }
+
+    private List<AqlItem> searchByChecksumsResults(Collection<Checksum> checksums) {
+        String query = "items.find({\"$or\":["
+            + checksums.stream().map(checksum -> "{\"actual_sha1\":\"" + checksum + "\"}").collect(joining(","))
+            + "]}).include(\"repo\",\"path\",\"name\",\"actual_sha1\")";
+        Invocation.Builder request = client.target(artifactoryUri)
+            .path("api/search/aql")
+            .request(APPLICATION_JSON_TYPE);
+        try {
+            return request.post(Entity.text(query), AqlResult.class).getResults();
+        } catch (RuntimeException e) {
+            log.error("can't search by checksums " + checksums + " with " + query, e);
+            throw e;
+        }
+    }
+
+    @lombok.Data
+    @lombok.NoArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class AqlResult {
+        List<AqlItem> results;
+
+        public List<AqlItem> getResults() { return (results == null) ? emptyList() : results; }
+    }
+
+    @lombok.Data
+    @lombok.NoArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class AqlItem {
+        String repo, path, name;
+        @JsonProperty("actual_sha1") @JsonbProperty("actual_sha1") String actualSha1;
+
+        Checksum getSha1() { return Checksum.ofHexString(actualSha1); }
+
+        URI uri(URI artifactoryUri) {
+            return URI.create(artifactoryUri + "/" + API_STORAGE + "/" + repo + "/" + path + "/" + name);
+        }
+    }
+
     @lombok.Data
     @lombok.NoArgsConstructor
     @VendorType("org.jfrog.artifactory.search.ChecksumSearchResult")
@@ -135,12 +211,15 @@ public class ArtifactoryRepository extends Repository {
         @Data
         @XmlAccessorType(FIELD)
         static class Versioning {
+            private String lastUpdated;
+
             @XmlElementWrapper
             @XmlElement(name = "snapshotVersion")
             private List<SnapshotVersion> snapshotVersions;
 
             @Data
             static class SnapshotVersion {
+                private String classifier;
                 private String extension;
                 private String value;
                 private String updated;
@@ -155,8 +234,10 @@ public class ArtifactoryRepository extends Repository {
         @NonNull Version version,
         @NonNull ArtifactType type,
         Classifier classifier) {
-        String fileName = getFileName(groupId, artifactId, version, type, classifier);
-        FileInfo fileInfo = fetch(API_STORAGE + "/{repoKey}/{orgPath}/{module}/{baseRev}/" + fileName,
+        FileInfo fileInfo = version.isSnapshot()
+            ? snapshotFileInfo(groupId, artifactId, version, type, classifier)
+            : fetch(API_STORAGE + "/{repoKey}/{orgPath}/{module}/{baseRev}/{module}-{baseRev}"
+                + ((classifier == null) ? "" : "-" + classifier) + ".{ext}",
             FileInfo.class, groupId, artifactId, version, type);
         //noinspection resource
         return new Artifact()
@@ -169,14 +250,35 @@ public class ArtifactoryRepository extends Repository {
     }
 
     @Override public List<Version> listVersions(GroupId groupId, ArtifactId artifactId, boolean snapshot) {
+        return listVersions(groupId, artifactId, snapshot, null).getVersions();
+    }
+
+    @Override
+    VersionListing listVersions(GroupId groupId, ArtifactId artifactId, boolean snapshot, VersionListing previous) {
         WebTarget resolvedTarget = client.target(artifactoryUri).path("api/storage/" + "{repoKey}/{orgPath}/{module}")
             .resolveTemplate("repoKey", snapshot ? repositorySnapshots : repositoryReleases)
             .resolveTemplate("orgPath", groupId.asPath())
             .resolveTemplate("module", artifactId);
         log.debug("fetch folder from {}", resolvedTarget.getUri());
-        Response response = resolvedTarget.request(APPLICATION_JSON_TYPE).get();
-        checkStatus(response, "folder for " + groupId + ":" + artifactId);
-        FolderInfo fileInfo = response.readEntity(FolderInfo.class);
+        Invocation.Builder request = resolvedTarget.request(APPLICATION_JSON_TYPE);
+        if (previous != null)
+            conditional(request, previous.getEtag(), previous.getLastModified());
+        Response response = request.get();
+        if (previous != null && response.getStatus() == NOT_MODIFIED.getStatusCode()) {
+            response.close();
+            log.debug("folder not modified");
+            return previous;
+        }
+        FolderInfo fileInfo;
+        String etag, lastModified;
+        try {
+            checkStatus(response, "folder for " + groupId + ":" + artifactId);
+            fileInfo = response.readEntity(FolderInfo.class);
+            etag = response.getHeaderString(ETAG);
+            lastModified = response.getHeaderString(LAST_MODIFIED);
+        } finally {
+            response.close();
+        }
         log.debug("found folder: {}", fileInfo);
         List<Version> versions = fileInfo
             .getChildren()
@@ -186,7 +288,7 @@ public class ArtifactoryRepository extends Repository {
             .sorted()
             .collect(toList());
         log.debug("found versions: {}", versions);
-        return versions;
+        return new VersionListing(versions, etag, lastModified);
     }
 
     private Version toVersion(FileInfo file) {
@@ -196,22 +298,57 @@ public class ArtifactoryRepository extends Repository {
         return new Version(string);
     }
 
-    private String getFileName(GroupId groupId, ArtifactId artifactId, Version version, ArtifactType type,
-                               Classifier classifier) {
-        String classifierSuffix = (classifier == null) ? "" : "-" + classifier;
-        if (version.isSnapshot()) {
-            MavenMetadata metadata = fetch("{repoKey}/{orgPath}/{module}/{baseRev}/maven-metadata.xml",
-                MavenMetadata.class, groupId, artifactId, version, type);
-            String snapshot = metadata
-                .getVersioning().getSnapshotVersions().stream()
-                .filter(snapshotVersion -> type.extension().equals(snapshotVersion.getExtension()))
-                .map(MavenMetadata.Versioning.SnapshotVersion::getValue)
-                .findAny()
-                .orElseThrow(() -> new NotFoundException("no metadata for extension [" + type.extension() + "]"));
-            return artifactId + "-" + snapshot + classifierSuffix + "." + type.extension();
-        } else {
-            return "{module}-{baseRev}" + classifierSuffix + ".{ext}";
+    private static void conditional(Invocation.Builder request, String etag, String lastModified) {
+        if (etag != null)
+            request.header(IF_NONE_MATCH, etag);
+        if (lastModified != null)
+            request.header(IF_MODIFIED_SINCE, lastModified);
+    }
+
+    /**
+     * Resolves the metadata and the file info of a snapshot in one go, so both can be reused as long as the
+     * snapshot doesn't change. Then only one conditional request for the metadata is left.
+     */
+    private FileInfo snapshotFileInfo(GroupId groupId, ArtifactId artifactId, Version version, ArtifactType type,
+                                      Classifier classifier) {
+        SnapshotMetadata metadata = snapshotMetadata(groupId, artifactId, version, type);
+        String fileName = metadata.fileName(artifactId, type, classifier);
+        return metadata.fileInfo(fileName, name -> fetch(API_STORAGE + "/{repoKey}/{orgPath}/{module}/{baseRev}/" + name,
+            FileInfo.class, groupId, artifactId, version, type));
+    }
+
+    private SnapshotMetadata snapshotMetadata(GroupId groupId, ArtifactId artifactId, Version version,
+                                              ArtifactType type) {
+        WebTarget target = target("{repoKey}/{orgPath}/{module}/{baseRev}/maven-metadata.xml",
+            groupId, artifactId, version, type);
+        URI uri = target.getUri();
+        SnapshotMetadata previous = (snapshotCache == null) ? null : snapshotCache.get(uri);
+        log.debug("fetch maven metadata from {}", uri);
+        Invocation.Builder request = target.request(APPLICATION_XML_TYPE);
+        if (previous != null)
+            conditional(request, previous.getEtag(), previous.getLastModified());
+        Response response = request.get();
+        if (previous != null && response.getStatus() == NOT_MODIFIED.getStatusCode()) {
+            response.close();
+            log.debug("maven metadata not modified");
+            return previous;
         }
+        MavenMetadata metadata;
+        String etag, lastModified;
+        try {
+            checkStatus(response, "maven metadata for " + groupId + ":" + artifactId + ":" + version);
+            metadata = response.readEntity(MavenMetadata.class);
+            etag = response.getHeaderString(ETAG);
+            lastModified = response.getHeaderString(LAST_MODIFIED);
+        } finally {
+            response.close();
+        }
+        SnapshotMetadata current = (previous == null)
+            ? new SnapshotMetadata(metadata, etag, lastModified)
+            : previous.revalidated(metadata, etag, lastModified);
+        if (snapshotCache != null)
+            snapshotCache.put(uri, current);
+        return current;
     }
 
     private <T> T fetch(String path,
@@ -220,7 +357,24 @@ public class ArtifactoryRepository extends Repository {
                         ArtifactId artifactId,
                         Version version,
                         ArtifactType artifactType) {
-        WebTarget target = client.target(artifactoryUri).path(path)
+        WebTarget target = target(path, groupId, artifactId, version, artifactType);
+        MediaType mediaType = vendorTypeOf(type);
+        log.debug("fetch {} {} from {}", mediaType, type.getSimpleName(), target.getUri());
+        Response response = target.request(mediaType).get();
+        try {
+            checkStatus(response, type.getSimpleName()
+                + " for " + groupId + ":" + artifactId + ":" + version + ":" + artifactType);
+            T result = response.readEntity(type);
+            log.debug("found {}: {}", type.getSimpleName(), result);
+            return result;
+        } finally {
+            response.close(); // return the connection to the pool, even for a 404
+        }
+    }
+
+    private WebTarget target(String path, GroupId groupId, ArtifactId artifactId, Version version,
+                             ArtifactType artifactType) {
+        return client.target(artifactoryUri).path(path)
             .resolveTemplate("repoKey", version.isSnapshot() ? repositorySnapshots : repositoryReleases)
             .resolveTemplate("org", groupId)
             .resolveTemplate("orgPath", groupId.asPath())
@@ -231,14 +385,6 @@ public class ArtifactoryRepository extends Repository {
             // (-{classifier})
             .resolveTemplate("ext", artifactType)
             .resolveTemplate("type", artifactType);
-        MediaType mediaType = vendorTypeOf(type);
-        log.debug("fetch {} {} from {}", mediaType, type.getSimpleName(), target.getUri());
-        Response response = target.request(mediaType).get();
-        checkStatus(response, type.getSimpleName()
-            + " for " + groupId + ":" + artifactId + ":" + version + ":" + artifactType);
-        T result = response.readEntity(type);
-        log.debug("found {}: {}", type.getSimpleName(), result);
-        return result;
     }
 
     private static <T> MediaType vendorTypeOf(Class<T> type) {
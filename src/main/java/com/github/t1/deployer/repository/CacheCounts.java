@@ -0,0 +1,10 @@
+package com.github.t1.deployer.repository;
+
+import lombok.Value;
+
+/** How often a cache could answer a lookup itself, and how often it had to ask the repository */
+@Value
+public class CacheCounts {
+    long hits;
+    long misses;
+}
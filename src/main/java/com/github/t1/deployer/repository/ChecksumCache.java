@@ -0,0 +1,134 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Artifact;
+import com.github.t1.deployer.model.Checksum;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Remembers the metadata of the artifacts found by {@link Repository#searchByChecksum(Checksum) checksum},
+ * so repeated lookups, e.g. for every read of the effective plan, don't have to go to the repository again.
+ * Checksums that are unknown to the repository are remembered, too, but for a shorter time, as they may be
+ * uploaded any time. Other errors are not cached at all.
+ * <p>
+ * Callers change the artifacts they get, e.g. to verify the download, so the cache hands out copies.
+ */
+@Slf4j
+class ChecksumCache {
+    private final int maxEntries;
+    private final Duration positiveTtl;
+    private final Duration negativeTtl;
+    private final Clock clock;
+
+    /** access ordered, i.e. the first entry is the least recently used */
+    private final Map<Checksum, Entry> entries = new LinkedHashMap<Checksum, Entry>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<Checksum, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    ChecksumCache(ChecksumCacheConfig config) { this(config, Clock.systemUTC()); }
+
+    ChecksumCache(ChecksumCacheConfig config, Clock clock) {
+        this.maxEntries = config.maxEntries();
+        this.positiveTtl = config.positiveTtl();
+        this.negativeTtl = config.negativeTtl();
+        this.clock = clock;
+    }
+
+    /** A `null` artifact stands for an {@link UnknownChecksumException unknown checksum} */
+    @Value private static class Entry {
+        Artifact artifact;
+        Instant expires;
+    }
+
+    Artifact lookup(Checksum checksum, Function<Checksum, Artifact> search) {
+        Entry entry = get(checksum);
+        if (entry != null) {
+            hits.incrementAndGet();
+            log.debug("checksum cache hit for {}; {}", checksum, this);
+            if (entry.artifact == null)
+                throw new UnknownChecksumException(checksum);
+            return entry.artifact.copy();
+        }
+        misses.incrementAndGet();
+        log.debug("checksum cache miss for {}; {}", checksum, this);
+        try {
+            Artifact artifact = search.apply(checksum);
+            put(checksum, artifact, positiveTtl);
+            return artifact;
+        } catch (UnknownChecksumException e) {
+            put(checksum, null, negativeTtl);
+            throw e;
+        }
+    }
+
+    /**
+     * Like {@link #lookup(Checksum, Function)}, but searches all misses at once.
+     * Unknown checksums are not contained in the search results, nor in the results returned.
+     * Error artifacts, e.g. for {@link Repository#notUnique(Checksum) non-unique checksums}, are not cached.
+     */
+    Map<Checksum, Artifact> lookupAll(Collection<Checksum> checksums,
+                                      Function<Collection<Checksum>, Map<Checksum, Artifact>> search) {
+        Map<Checksum, Artifact> result = new LinkedHashMap<>();
+        List<Checksum> missing = new ArrayList<>();
+        for (Checksum checksum : checksums) {
+            Entry entry = get(checksum);
+            if (entry == null) {
+                missing.add(checksum);
+            } else if (entry.artifact != null) {
+                result.put(checksum, entry.artifact.copy());
+            }
+        }
+        hits.addAndGet(checksums.size() - missing.size());
+        misses.addAndGet(missing.size());
+        log.debug("checksum cache: {} of {} checksums missing; {}", missing.size(), checksums.size(), this);
+        if (!missing.isEmpty()) {
+            Map<Checksum, Artifact> found = search.apply(missing);
+            for (Checksum checksum : missing) {
+                Artifact artifact = found.get(checksum);
+                if (artifact == null || artifact.getError() == null)
+                    put(checksum, artifact, (artifact == null) ? negativeTtl : positiveTtl);
+                if (artifact != null)
+                    result.put(checksum, artifact);
+            }
+        }
+        return result;
+    }
+
+    private synchronized Entry get(Checksum checksum) {
+        Entry entry = entries.get(checksum);
+        if (entry != null && !clock.instant().isBefore(entry.expires)) {
+            entries.remove(checksum);
+            return null;
+        }
+        return entry;
+    }
+
+    private synchronized void put(Checksum checksum, Artifact artifact, Duration ttl) {
+        entries.put(checksum, new Entry((artifact == null) ? null : artifact.copy(), clock.instant().plus(ttl)));
+    }
+
+    synchronized int size() { return entries.size(); }
+
+    long hits() { return hits.get(); }
+
+    long misses() { return misses.get(); }
+
+    CacheCounts counts() { return new CacheCounts(hits(), misses()); }
+
+    @Override public String toString() { return "checksum cache: " + hits + " hits, " + misses + " misses"; }
+}
@@ -0,0 +1,30 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Age;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.Duration;
+
+import static com.github.t1.deployer.tools.Tools.nvl;
+
+@Data
+@Accessors(chain = true)
+public class ChecksumCacheConfig {
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final Age DEFAULT_POSITIVE_TTL = Age.ofMinutes(60);
+    public static final Age DEFAULT_NEGATIVE_TTL = Age.ofMinutes(1);
+
+    /** The cache is disabled, if this is `0`. */
+    Integer maxEntries;
+    /** How long a checksum found in the repository is cached. */
+    Age positiveTtl;
+    /** How long an unknown checksum is cached. */
+    Age negativeTtl;
+
+    int maxEntries() { return nvl(maxEntries, DEFAULT_MAX_ENTRIES); }
+
+    Duration positiveTtl() { return nvl(positiveTtl, DEFAULT_POSITIVE_TTL).getDuration(); }
+
+    Duration negativeTtl() { return nvl(negativeTtl, DEFAULT_NEGATIVE_TTL).getDuration(); }
+}
@@ -0,0 +1,25 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Checksum;
+import com.github.t1.problemdetail.Extension;
+import com.github.t1.problemdetail.Status;
+
+import java.io.IOException;
+
+import static javax.ws.rs.core.Response.Status.BAD_GATEWAY;
+
+/**
+ * The bytes downloaded from the repository don't match the checksum the repository reported for them.
+ * It's an {@link IOException}, as it's thrown while reading, e.g. when the client uploads the content to the container.
+ */
+@Status(BAD_GATEWAY)
+public class ChecksumMismatchException extends IOException {
+    @Extension Checksum expected;
+    @Extension Checksum actual;
+
+    public ChecksumMismatchException(Checksum expected, Checksum actual) {
+        super("downloaded artifact has checksum [" + actual + "] but expected [" + expected + "]");
+        this.expected = expected;
+        this.actual = actual;
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Checksum;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.function.Supplier;
+
+/**
+ * Computes the SHA-1 of the bytes while they stream through, e.g. to the container or the
+ * {@link ArtifactCache cache}, and throws a {@link ChecksumMismatchException} when the end is reached and the
+ * checksum doesn't match. So the artifact is neither buffered on the heap nor read twice, and whoever
+ * consumes the stream fails instead of using corrupted bytes.
+ * <p>
+ * The expected checksum is only required at the end, as some repositories need an extra request to get it.
+ */
+@Slf4j
+class ChecksumVerifyingInputStream extends FilterInputStream {
+    private final Supplier<Checksum> expected;
+    private final MessageDigest digest = Checksum.digest("SHA-1");
+    private boolean verified = false;
+
+    ChecksumVerifyingInputStream(InputStream in, Supplier<Checksum> expected) {
+        super(in);
+        this.expected = expected;
+    }
+
+    @Override public int read() throws IOException {
+        int b = super.read();
+        if (b < 0)
+            verify();
+        else
+            digest.update((byte) b);
+        return b;
+    }
+
+    @Override public int read(byte[] buffer, int offset, int length) throws IOException {
+        int n = super.read(buffer, offset, length);
+        if (n < 0)
+            verify();
+        else
+            digest.update(buffer, offset, n);
+        return n;
+    }
+
+    @Override public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+            if (read < 0)
+                break;
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override public boolean markSupported() { return false; }
+
+    @Override public synchronized void mark(int readLimit) {}
+
+    @Override public synchronized void reset() throws IOException { throw new IOException("mark/reset not supported"); }
+
+    private void verify() throws IOException {
+        if (verified)
+            return;
+        verified = true;
+        Checksum actual = Checksum.of(digest.digest());
+        Checksum expectedChecksum = expected.get();
+        if (expectedChecksum == null || expectedChecksum.isEmpty()) {
+            log.debug("no checksum to verify {} against", actual);
+            return;
+        }
+        if (!actual.equals(expectedChecksum))
+            throw new ChecksumMismatchException(expectedChecksum, actual);
+        log.debug("verified checksum {}", actual);
+    }
+}
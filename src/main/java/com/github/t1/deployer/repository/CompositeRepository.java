@@ -0,0 +1,264 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Artifact;
+import com.github.t1.deployer.model.ArtifactId;
+import com.github.t1.deployer.model.ArtifactType;
+import com.github.t1.deployer.model.Checksum;
+import com.github.t1.deployer.model.Classifier;
+import com.github.t1.deployer.model.GroupId;
+import com.github.t1.deployer.model.Version;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.ws.rs.NotFoundException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Delegates to several repositories, e.g. a local Artifactory, a regional mirror, and Maven Central.
+ * A request first goes to the preferred repository, i.e. the healthy one with the lowest latency. If it doesn't
+ * reply within the configured percentile of its latencies, a second, hedged request goes to the next repository,
+ * and the first reply wins. If a repository fails or doesn't know an artifact, the next one is asked.
+ * The versions of an artifact are listed in all repositories, as each may know only some of them.
+ */
+@Slf4j
+class CompositeRepository extends Repository {
+    private static final int SAMPLES = 100;
+    private static final int MIN_SAMPLES = 10;
+
+    private final List<Backend> backends;
+    private final int percentile;
+    private final Duration delay;
+    private final Duration unhealthy;
+    private final Executor executor;
+
+    CompositeRepository(HedgingConfig config, List<Repository> repositories, Executor executor) {
+        this.executor = executor;
+        this.percentile = config.percentile();
+        this.delay = config.delay();
+        this.unhealthy = config.unhealthy();
+        this.backends = repositories.stream().map(Backend::new).collect(toList());
+    }
+
+    @RequiredArgsConstructor
+    private class Backend {
+        private final Repository repository;
+        /** ring buffer of the latest latencies in nanos */
+        private final long[] latencies = new long[SAMPLES];
+        private int count = 0;
+        private boolean failed = false;
+        private long failedAt;
+
+        synchronized void succeeded(long nanos) {
+            latencies[count++ % SAMPLES] = nanos;
+            failed = false;
+        }
+
+        synchronized void failed() {
+            failed = true;
+            failedAt = System.nanoTime();
+        }
+
+        synchronized boolean isHealthy() { return !failed || System.nanoTime() - failedAt > unhealthy.toNanos(); }
+
+        /** The latency percentile or <code>null</code>, if there are not enough samples yet */
+        synchronized Long latency() {
+            if (count < MIN_SAMPLES)
+                return null;
+            long[] sorted = Arrays.copyOf(latencies, Math.min(count, SAMPLES));
+            Arrays.sort(sorted);
+            return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+        }
+
+        long hedgeDelayNanos() {
+            Long latency = latency();
+            return (latency == null) ? delay.toNanos() : latency;
+        }
+
+        @Override public String toString() {
+            Long latency = latency();
+            return repository.getClass().getSimpleName() + ((latency == null) ? "" : "@" + latency / 1_000_000 + "ms");
+        }
+    }
+
+    /** Healthy first, then the fastest; unknown latencies count as fast, so new repositories get a chance */
+    private List<Backend> preferred() {
+        Map<Backend, Long> keys = new LinkedHashMap<>(); // stable, while the statistics change concurrently
+        for (Backend backend : backends) {
+            Long latency = backend.latency();
+            keys.put(backend, (backend.isHealthy() ? 0 : Long.MAX_VALUE / 2) + ((latency == null) ? 0 : latency));
+        }
+        List<Backend> list = new ArrayList<>(backends);
+        list.sort(Comparator.comparing(keys::get));
+        return list;
+    }
+
+    @Value private class Reply<T> {
+        Backend backend;
+        T result;
+    }
+
+    private <T> T call(String what, Function<Repository, T> request) { return reply(what, request).result; }
+
+    private <T> Reply<T> reply(String what, Function<Repository, T> request) {
+        List<Backend> preferred = preferred();
+        log.debug("{} from {}", what, preferred);
+        CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<T>, Backend> running = new LinkedHashMap<>();
+        Iterator<Backend> next = preferred.iterator();
+        RuntimeException notFound = null;
+        RuntimeException failure = null;
+        Backend first = next.next();
+        running.put(submit(completion, first, request), first);
+        try {
+            while (!running.isEmpty()) {
+                Future<T> done = (running.size() == 1 && next.hasNext())
+                    ? completion.poll(first.hedgeDelayNanos(), NANOSECONDS)
+                    : completion.take();
+                if (done == null) {
+                    Backend hedge = next.next();
+                    log.debug("{} is slow for {}; hedge with {}", first, what, hedge);
+                    running.put(submit(completion, hedge, request), hedge);
+                    continue;
+                }
+                Backend backend = running.remove(done);
+                try {
+                    T result = done.get();
+                    running.keySet().forEach(future -> future.cancel(false));
+                    return new Reply<>(backend, result);
+                } catch (ExecutionException e) {
+                    RuntimeException cause = (e.getCause() instanceof RuntimeException)
+                        ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+                    if (isNotFound(cause)) {
+                        log.debug("{} not found in {}", what, backend);
+                        notFound = (notFound == null) ? cause : notFound;
+                    } else {
+                        log.warn("{} failed in {}: {}", what, backend, cause.toString());
+                        failure = (failure == null) ? cause : failure;
+                    }
+                    if (running.isEmpty() && next.hasNext()) {
+                        first = next.next();
+                        running.put(submit(completion, first, request), first);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running.keySet().forEach(future -> future.cancel(false));
+            throw new RuntimeException("interrupted while waiting for " + what, e);
+        }
+        throw (notFound != null) ? notFound : failure;
+    }
+
+    private <T> Future<T> submit(CompletionService<T> completion, Backend backend, Function<Repository, T> request) {
+        return completion.submit(timed(backend, request)::get);
+    }
+
+    private <T> Supplier<T> timed(Backend backend, Function<Repository, T> request) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                T result = request.apply(backend.repository);
+                backend.succeeded(System.nanoTime() - start);
+                return result;
+            } catch (RuntimeException e) {
+                if (isNotFound(e))
+                    backend.succeeded(System.nanoTime() - start);
+                else
+                    backend.failed();
+                throw e;
+            }
+        };
+    }
+
+    private static boolean isNotFound(RuntimeException e) {
+        return e instanceof NotFoundException || e instanceof UnknownChecksumException;
+    }
+
+    @Override public Artifact searchByChecksum(Checksum checksum) {
+        return call("checksum " + checksum, repository -> repository.searchByChecksum(checksum));
+    }
+
+    /** The checksums not found (or not unique) in the fastest repository are searched for in the others */
+    @Override public Map<Checksum, Artifact> searchByChecksums(Collection<Checksum> checksums) {
+        Reply<Map<Checksum, Artifact>> reply = reply(checksums.size() + " checksums",
+            repository -> repository.searchByChecksums(checksums));
+        Map<Checksum, Artifact> result = new LinkedHashMap<>(reply.result);
+        for (Backend backend : preferred()) {
+            if (backend == reply.backend)
+                continue;
+            List<Checksum> missing = checksums.stream()
+                .filter(checksum -> !isFound(result.get(checksum)))
+                .collect(toList());
+            if (missing.isEmpty())
+                break;
+            try {
+                backend.repository.searchByChecksums(missing).forEach((checksum, artifact) -> {
+                    if (isFound(artifact) || !result.containsKey(checksum))
+                        result.put(checksum, artifact);
+                });
+            } catch (RuntimeException e) {
+                log.warn("searching {} checksums failed in {}: {}", missing.size(), backend, e.toString());
+            }
+        }
+        Map<Checksum, Artifact> ordered = new LinkedHashMap<>();
+        checksums.stream().filter(result::containsKey).forEach(checksum -> ordered.put(checksum, result.get(checksum)));
+        return ordered;
+    }
+
+    private static boolean isFound(Artifact artifact) { return artifact != null && artifact.getError() == null; }
+
+    @Override protected Artifact lookupArtifact(GroupId groupId, ArtifactId artifactId, Version version,
+                                                ArtifactType type, Classifier classifier) {
+        return call("artifact " + groupId + ":" + artifactId + ":" + version + ":" + type,
+            repository -> repository.lookupArtifact(groupId, artifactId, version, type, classifier));
+    }
+
+    /** The union of the versions in all repositories that replied; fails only if none did */
+    @Override public List<Version> listVersions(GroupId groupId, ArtifactId artifactId, boolean snapshot) {
+        String what = "versions of " + groupId + ":" + artifactId;
+        Map<Backend, CompletableFuture<List<Version>>> futures = new LinkedHashMap<>();
+        for (Backend backend : preferred())
+            futures.put(backend, CompletableFuture.supplyAsync(
+                timed(backend, repository -> repository.listVersions(groupId, artifactId, snapshot)), executor));
+        Set<Version> versions = new TreeSet<>();
+        RuntimeException failure = null;
+        boolean replied = false;
+        for (Map.Entry<Backend, CompletableFuture<List<Version>>> entry : futures.entrySet()) {
+            try {
+                versions.addAll(entry.getValue().join());
+                replied = true;
+            } catch (CompletionException e) {
+                RuntimeException cause = (e.getCause() instanceof RuntimeException)
+                    ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+                log.warn("{} failed in {}: {}", what, entry.getKey(), cause.toString());
+                failure = (failure == null) ? cause : failure;
+            }
+        }
+        if (!replied && failure != null)
+            throw failure;
+        return new ArrayList<>(versions);
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.t1.deployer.repository;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import static javax.ws.rs.core.HttpHeaders.ACCEPT_ENCODING;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_ENCODING;
+
+/**
+ * Asks for gzipped json and xml responses, i.e. the metadata like search results and folder listings, and unzips
+ * them. Artifacts are already compressed, so they are requested as they are.
+ */
+class GzipMetadataFilter implements ClientRequestFilter, ReaderInterceptor {
+    private static final String GZIP = "gzip";
+
+    @Override public void filter(ClientRequestContext request) {
+        if (isMetadata(request) && !request.getHeaders().containsKey(ACCEPT_ENCODING))
+            request.getHeaders().putSingle(ACCEPT_ENCODING, GZIP);
+    }
+
+    private static boolean isMetadata(ClientRequestContext request) {
+        return request.getAcceptableMediaTypes().stream().anyMatch(GzipMetadataFilter::isMetadata);
+    }
+
+    private static boolean isMetadata(MediaType mediaType) {
+        return mediaType.getSubtype().endsWith("json") || mediaType.getSubtype().endsWith("xml");
+    }
+
+    @Override public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException {
+        if (GZIP.equalsIgnoreCase(context.getHeaders().getFirst(CONTENT_ENCODING))) {
+            context.getHeaders().remove(CONTENT_ENCODING);
+            context.setInputStream(new GZIPInputStream(context.getInputStream()));
+        }
+        return context.proceed();
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Age;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.Duration;
+
+import static com.github.t1.deployer.tools.Tools.nvl;
+
+@Data
+@Accessors(chain = true)
+public class HedgingConfig {
+    public static final int DEFAULT_PERCENTILE = 95;
+    public static final Age DEFAULT_DELAY = new Age("500 ms");
+    public static final Age DEFAULT_UNHEALTHY = new Age("30 s");
+
+    /** Send a second request to the next repository, when the first takes longer than this percentile. */
+    Integer percentile;
+    /** The delay before the second request, as long as there are not enough requests for the percentile. */
+    Age delay;
+    /** How long a failing repository is tried only after the others. */
+    Age unhealthy;
+
+    int percentile() { return nvl(percentile, DEFAULT_PERCENTILE); }
+
+    Duration delay() { return nvl(delay, DEFAULT_DELAY).getDuration(); }
+
+    Duration unhealthy() { return nvl(unhealthy, DEFAULT_UNHEALTHY).getDuration(); }
+}
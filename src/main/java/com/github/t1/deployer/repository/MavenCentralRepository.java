@@ -1,6 +1,7 @@
 package com.github.t1.deployer.repository;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.github.t1.deployer.model.Artifact;
 import com.github.t1.deployer.model.ArtifactId;
 import com.github.t1.deployer.model.ArtifactType;
@@ -13,33 +14,47 @@ import lombok.Data;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.json.bind.annotation.JsonbProperty;
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.client.Client;
 import javax.ws.rs.client.WebTarget;
-import java.io.IOException;
+import javax.ws.rs.core.Response;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
 import java.net.URI;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 import static javax.ws.rs.core.Response.Status.BAD_GATEWAY;
 
 @Slf4j
 public class MavenCentralRepository extends Repository {
+    private final Client client;
     private final WebTarget searchUri;
+    private final WebTarget bulkSearchUri;
     private final WebTarget listVersionsTemplate;
-    private final WebTarget downloadUri;
+    private final URI downloadUri;
 
-    MavenCentralRepository(WebTarget baseTarget) {
+    MavenCentralRepository(Client client, URI baseUri) {
+        this.client = client;
+        WebTarget baseTarget = client.target(baseUri);
         this.searchUri = baseTarget
             .path("solrsearch")
             .path("select")
             .queryParam("q", "1:{checksum}")
             .queryParam("rows", "20")
             .queryParam("wt", "json");
+        this.bulkSearchUri = baseTarget
+            .path("solrsearch")
+            .path("select");
         this.listVersionsTemplate = baseTarget
             .path("solrsearch")
             .path("select")
@@ -48,7 +63,8 @@ public class MavenCentralRepository extends Repository {
             .queryParam("rows", "10000")
             .queryParam("wt", "json");
         this.downloadUri = baseTarget
-            .path("remotecontent");
+            .path("remotecontent")
+            .getUri();
     }
 
     @Data
@@ -70,12 +86,13 @@ public class MavenCentralRepository extends Repository {
         String a;
         String v;
         String p;
+        @JsonProperty("1") @JsonbProperty("1") String sha1;
     }
 
     @Override public Artifact searchByChecksum(Checksum checksum) {
         MavenCentralSearchResult result = searchUri
             .resolveTemplate("checksum", checksum)
-            .request()
+            .request(APPLICATION_JSON_TYPE)
             .get(MavenCentralSearchResult.class);
 
         switch (result.response.docs.size()) {
@@ -87,8 +104,49 @@ public class MavenCentralRepository extends Repository {
                 log.debug("got {}", doc);
                 return toArtifact(checksum, doc);
             default:
-                throw new RuntimeException("checksum not unique in repository: '" + checksum + "'");
+                throw new NonUniqueChecksumException(checksum);
+        }
+    }
+
+    /**
+     * Find all checksums with one query of OR'ed terms. The <code>1</code> field is requested, so the docs can be
+     * mapped back to the checksums; if the docs don't contain that field, the checksums are searched individually.
+     */
+    @Override public Map<Checksum, Artifact> searchByChecksums(Collection<Checksum> checksums) {
+        List<MavenCentralSearchResponseDocs> docs = bulkSearchUri
+            .queryParam("q", checksums.stream().map(checksum -> "1:" + checksum).collect(joining(" OR ")))
+            .queryParam("fl", "g,a,v,p,1")
+            .queryParam("rows", Math.max(20, checksums.size() * 2))
+            .queryParam("wt", "json")
+            .request(APPLICATION_JSON_TYPE)
+            .get(MavenCentralSearchResult.class)
+            .response.docs;
+        boolean mappable = docs.stream().allMatch(doc -> doc.sha1 != null);
+        Map<Checksum, List<MavenCentralSearchResponseDocs>> bySha1 = docs.stream()
+            .filter(doc -> doc.sha1 != null)
+            .collect(groupingBy(doc -> Checksum.ofHexString(doc.sha1)));
+
+        Map<Checksum, Artifact> artifacts = new LinkedHashMap<>();
+        for (Checksum checksum : checksums) {
+            List<MavenCentralSearchResponseDocs> found = bySha1.getOrDefault(checksum, emptyList());
+            if (found.size() == 1) {
+                artifacts.put(checksum, toArtifact(checksum, found.get(0)));
+            } else if (found.size() > 1) {
+                log.error("checksum not unique in repository: '{}'", checksum);
+                artifacts.put(checksum, notUnique(checksum));
+            } else if (mappable) {
+                log.debug("not found: {}", checksum);
+            } else {
+                try {
+                    artifacts.put(checksum, searchByChecksum(checksum));
+                } catch (UnknownChecksumException e) {
+                    log.debug("not found: {}", checksum);
+                } catch (NonUniqueChecksumException e) {
+                    artifacts.put(checksum, notUnique(checksum));
+                }
+            }
         }
+        return artifacts;
     }
 
     private Artifact toArtifact(Checksum checksum, MavenCentralSearchResponseDocs doc) {
@@ -127,7 +185,7 @@ public class MavenCentralRepository extends Repository {
         MavenCentralSearchResult result = listVersionsTemplate
             .resolveTemplate("group-id", groupId)
             .resolveTemplate("artifact-id", artifactId)
-            .request()
+            .request(APPLICATION_JSON_TYPE)
             .get(MavenCentralSearchResult.class);
         return result
             .response
@@ -152,25 +210,20 @@ public class MavenCentralRepository extends Repository {
             .resolve(artifactId.getValue())
             .resolve(version.getValue())
             .resolve(artifactId + "-" + version + "." + type.extension() + suffix);
-        // Don't use JAX-RS here, because Maven Central requires (theoretically invalid) unencoded slashes in the query param
-        URI uri = URI.create(downloadUri.getUri() + "?filepath=" + downloadPath);
+        // Don't use `queryParam`, because Maven Central requires (theoretically invalid) unencoded slashes in the query param
+        URI uri = URI.create(downloadUri + "?filepath=" + downloadPath);
         log.debug("download from {}", uri);
-        try {
-            HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
-            switch (connection.getResponseCode()) {
-                case 404:
-                    throw new NotFoundException("artifact not in repository: " + groupId + ":" + artifactId + ":" + version + ":" + type);
-                case 200:
-                    return connection.getInputStream();
-                default:
-                    throw new DownloadFailedException("can't download " + groupId + ":" + artifactId + ":" + version + ":" + type + "\n"
-                        + "received " + connection.getResponseCode() + " " + connection.getResponseMessage() + " from " + uri + "\n"
-                        + "body: " + read(connection.getErrorStream()));
-            }
-        } catch (MalformedURLException e) {
-            throw new RuntimeException("can't construct URL from " + uri);
-        } catch (IOException e) {
-            throw new RuntimeException("can't connect to / read from " + uri);
+        Response response = client.target(uri).request().get();
+        switch (response.getStatus()) {
+            case 404:
+                response.close();
+                throw new NotFoundException("artifact not in repository: " + groupId + ":" + artifactId + ":" + version + ":" + type);
+            case 200:
+                return response.readEntity(InputStream.class);
+            default:
+                throw new DownloadFailedException("can't download " + groupId + ":" + artifactId + ":" + version + ":" + type + "\n"
+                    + "received " + response.getStatus() + " " + response.getStatusInfo().getReasonPhrase() + " from " + uri + "\n"
+                    + "body: " + response.readEntity(String.class));
         }
     }
 
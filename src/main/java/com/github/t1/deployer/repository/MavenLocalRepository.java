@@ -0,0 +1,253 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Artifact;
+import com.github.t1.deployer.model.ArtifactId;
+import com.github.t1.deployer.model.ArtifactType;
+import com.github.t1.deployer.model.Checksum;
+import com.github.t1.deployer.model.Classifier;
+import com.github.t1.deployer.model.GroupId;
+import com.github.t1.deployer.model.Version;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.ws.rs.NotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Comparator.naturalOrder;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A Maven repository in the local file system, e.g. <code>~/.m2/repository</code> or a mirror synced to a local
+ * disk. The checksums are taken from the <code>.sha1</code> side files. They are indexed when a checksum is not
+ * found, but only the side files that are new or changed since the last scan have to be read. A mirror synced
+ * with e.g. <code>rsync</code> keeps the original modification times, so they are compared per file.
+ * As unknown checksums would otherwise walk the whole tree every time, it's scanned at most once per
+ * {@link #MIN_RESCAN_INTERVAL}.
+ */
+@Slf4j
+public class MavenLocalRepository extends Repository {
+    static final Path DEFAULT_ROOT = Paths.get(System.getProperty("user.home"), ".m2", "repository");
+    private static final String SHA1_SUFFIX = ".sha1";
+    /** the file name of a snapshot deployed to a remote repository, e.g. <code>1.0-20200101.120000-1</code> */
+    private static final Pattern TIMESTAMP = Pattern.compile("\\d{8}\\.\\d{6}-\\d+");
+    static final Duration MIN_RESCAN_INTERVAL = Duration.ofSeconds(10);
+
+    private final Path root;
+    private final Clock clock;
+    private final Map<Checksum, Path> index = new ConcurrentHashMap<>();
+    private final Map<Path, FileTime> scanned = new ConcurrentHashMap<>();
+    private Instant lastScan;
+
+    MavenLocalRepository(Path root) { this(root, Clock.systemUTC()); }
+
+    MavenLocalRepository(Path root, Clock clock) {
+        this.root = root;
+        this.clock = clock;
+        log.info("use local maven repository in {}", root);
+    }
+
+    @Override public Artifact searchByChecksum(Checksum checksum) {
+        Path file = indexed(checksum);
+        if (file == null) {
+            scan();
+            file = indexed(checksum);
+        }
+        if (file == null) {
+            log.debug("not found: {}", checksum);
+            throw new UnknownChecksumException(checksum);
+        }
+        return artifactFrom(checksum, file);
+    }
+
+    /** Scan only once for all checksums not in the index */
+    @Override public Map<Checksum, Artifact> searchByChecksums(Collection<Checksum> checksums) {
+        if (checksums.stream().anyMatch(checksum -> indexed(checksum) == null))
+            scan();
+        Map<Checksum, Artifact> result = new LinkedHashMap<>();
+        for (Checksum checksum : checksums) {
+            Path file = indexed(checksum);
+            if (file != null)
+                result.put(checksum, artifactFrom(checksum, file));
+        }
+        return result;
+    }
+
+    private Path indexed(Checksum checksum) {
+        Path file = index.get(checksum);
+        if (file != null && !Files.isRegularFile(file)) {
+            log.debug("indexed file was removed: {}", file);
+            index.remove(checksum, file);
+            scanned.remove(file.resolveSibling(file.getFileName() + SHA1_SUFFIX));
+            return null;
+        }
+        return file;
+    }
+
+    @SneakyThrows(IOException.class)
+    private synchronized void scan() {
+        Instant now = clock.instant();
+        if (lastScan != null && now.isBefore(lastScan.plus(MIN_RESCAN_INTERVAL))) {
+            log.debug("skip scan of {}; last scan was at {}", root, lastScan);
+            return;
+        }
+        lastScan = now;
+        int count = 0;
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path sha1File : (Iterable<Path>) files::iterator) {
+                if (!sha1File.getFileName().toString().endsWith(SHA1_SUFFIX))
+                    continue;
+                FileTime lastModified = Files.getLastModifiedTime(sha1File);
+                if (lastModified.equals(scanned.get(sha1File)))
+                    continue;
+                Path file = artifactFileOf(sha1File);
+                Checksum checksum = readSha1(sha1File);
+                if (checksum != null && Files.isRegularFile(file)) {
+                    index.put(checksum, file);
+                    scanned.put(sha1File, lastModified);
+                    count++;
+                }
+            }
+        }
+        log.debug("indexed {} changed checksums in {}; total {}", count, root, index.size());
+    }
+
+    private static Path artifactFileOf(Path sha1File) {
+        String fileName = sha1File.getFileName().toString();
+        return sha1File.resolveSibling(fileName.substring(0, fileName.length() - SHA1_SUFFIX.length()));
+    }
+
+    /** The side files may contain only the hex string or also the file name */
+    private static Checksum readSha1(Path sha1File) {
+        try {
+            String content = new String(Files.readAllBytes(sha1File), US_ASCII).trim();
+            return Checksum.ofHexString(content.split("\\s+", 2)[0]);
+        } catch (IOException | RuntimeException e) {
+            log.warn("can't read checksum file {}: {}", sha1File, e.toString());
+            return null;
+        }
+    }
+
+    private Artifact artifactFrom(Checksum checksum, Path file) {
+        Path path = root.relativize(file);
+        int count = path.getNameCount();
+        if (count < 4)
+            throw new IllegalStateException("not in maven layout: " + path);
+        ArtifactId artifactId = new ArtifactId(path.getName(count - 3).toString());
+        Version version = new Version(path.getName(count - 2).toString());
+        String fileName = path.getFileName().toString();
+        int extensionIndex = fileName.lastIndexOf('.');
+        return new Artifact()
+            .setGroupId(new GroupId(path.subpath(0, count - 3).toString().replace(path.getFileSystem().getSeparator(), ".")))
+            .setArtifactId(artifactId)
+            .setVersion(version)
+            .setType(typeOf(fileName.substring(extensionIndex + 1)))
+            .setClassifier(classifierOf(fileName.substring(0, extensionIndex), artifactId, version))
+            .setChecksum(checksum)
+            .setInputStreamSupplier(() -> open(file));
+    }
+
+    private static ArtifactType typeOf(String extension) {
+        try {
+            return ArtifactType.valueOf(extension);
+        } catch (IllegalArgumentException e) {
+            return ArtifactType.unknown;
+        }
+    }
+
+    private static Classifier classifierOf(String baseName, ArtifactId artifactId, Version version) {
+        String rest = baseName.substring(Math.min(baseName.length(), artifactId.getValue().length() + 1));
+        String stableVersion = version.getValue().replaceFirst("-SNAPSHOT$", "");
+        if (rest.startsWith(version.getValue())) {
+            rest = rest.substring(version.getValue().length());
+        } else if (version.isSnapshot() && rest.startsWith(stableVersion + "-")) {
+            Matcher matcher = TIMESTAMP.matcher(rest).region(stableVersion.length() + 1, rest.length());
+            if (matcher.lookingAt())
+                rest = rest.substring(matcher.end());
+        }
+        return rest.startsWith("-") ? Classifier.of(rest.substring(1)) : null;
+    }
+
+    @Override protected Artifact lookupArtifact(GroupId groupId, ArtifactId artifactId, Version version,
+                                                ArtifactType type, Classifier classifier) {
+        Path file = findFile(groupId, artifactId, version, type, classifier);
+        Path sha1File = file.resolveSibling(file.getFileName() + SHA1_SUFFIX);
+        Artifact artifact = new Artifact()
+            .setGroupId(groupId)
+            .setArtifactId(artifactId)
+            .setVersion(version)
+            .setType(type)
+            .setClassifier(classifier)
+            .setInputStreamSupplier(() -> open(file));
+        Checksum checksum = Files.isRegularFile(sha1File) ? readSha1(sha1File) : null;
+        if (checksum == null)
+            return artifact.setChecksumSupplier(() -> Checksum.sha1(file));
+        index.put(checksum, file);
+        return artifact.setChecksum(checksum);
+    }
+
+    private Path findFile(GroupId groupId, ArtifactId artifactId, Version version, ArtifactType type,
+                          Classifier classifier) {
+        Path dir = root.resolve(groupId.asPath()).resolve(artifactId.getValue()).resolve(version.getValue());
+        String suffix = ((classifier == null) ? "" : "-" + classifier) + "." + type.extension();
+        Path file = dir.resolve(artifactId + "-" + version + suffix);
+        if (!Files.isRegularFile(file) && version.isSnapshot())
+            file = latestTimestamped(dir, artifactId, version, suffix);
+        if (file == null || !Files.isRegularFile(file))
+            throw new NotFoundException("artifact not in repository: "
+                + groupId + ":" + artifactId + ":" + version + ":" + type);
+        return file;
+    }
+
+    @SneakyThrows(IOException.class)
+    private static Path latestTimestamped(Path dir, ArtifactId artifactId, Version version, String suffix) {
+        if (!Files.isDirectory(dir))
+            return null;
+        Pattern pattern = Pattern.compile(Pattern.quote(artifactId + "-" + version.getValue().replaceFirst("-SNAPSHOT$", "") + "-")
+            + TIMESTAMP.pattern() + Pattern.quote(suffix));
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                .filter(file -> pattern.matcher(file.getFileName().toString()).matches())
+                .max(naturalOrder())
+                .orElse(null);
+        }
+    }
+
+    @SneakyThrows(IOException.class)
+    private static InputStream open(Path file) {
+        log.debug("open {}", file);
+        return Files.newInputStream(file);
+    }
+
+    @SneakyThrows(IOException.class)
+    @Override public List<Version> listVersions(GroupId groupId, ArtifactId artifactId, boolean snapshot) {
+        Path dir = root.resolve(groupId.asPath()).resolve(artifactId.getValue());
+        if (!Files.isDirectory(dir))
+            return new ArrayList<>();
+        try (Stream<Path> dirs = Files.list(dir)) {
+            return dirs
+                .filter(Files::isDirectory)
+                .map(versionDir -> new Version(versionDir.getFileName().toString()))
+                .filter(version -> version.isSnapshot() == snapshot)
+                .sorted()
+                .collect(toList());
+        }
+    }
+}
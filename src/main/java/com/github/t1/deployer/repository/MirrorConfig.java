@@ -0,0 +1,16 @@
+package com.github.t1.deployer.repository;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.net.URI;
+
+/** A further repository to use, when the main repository is slow or doesn't have an artifact */
+@Data
+@Accessors(chain = true)
+public class MirrorConfig {
+    RepositoryType type;
+    URI uri;
+    String snapshots;
+    String releases;
+}
@@ -0,0 +1,17 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Checksum;
+import com.github.t1.problemdetail.Extension;
+import com.github.t1.problemdetail.Status;
+
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+
+@Status(BAD_REQUEST)
+public class NonUniqueChecksumException extends RuntimeException {
+    @Extension Checksum checksum;
+
+    public NonUniqueChecksumException(Checksum checksum) {
+        super("checksum not unique in repository: '" + checksum + "'");
+        this.checksum = checksum;
+    }
+}
@@ -11,21 +11,51 @@ import com.github.t1.log.Logged;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.ws.rs.BadRequestException;
+import java.io.InputStream;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 import static com.github.t1.deployer.model.ArtifactType.unknown;
+import static java.util.stream.Collectors.toList;
 
 /** Stores artifacts, e.g. Maven Central or Artifactory */
 @Slf4j
 @Logged
 public abstract class Repository {
+    private ArtifactCache cache;
+    private ChecksumCache checksumCache;
+    private VersionsCache versionsCache;
+
+    Repository cachedIn(ArtifactCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    Repository cachedIn(ChecksumCache checksumCache) {
+        this.checksumCache = checksumCache;
+        return this;
+    }
+
+    Repository cachedIn(VersionsCache versionsCache) {
+        this.versionsCache = versionsCache;
+        return this;
+    }
+
+    /** The hits and misses of the checksum cache since it was created, or <code>null</code> if there is none */
+    public CacheCounts checksumCacheCounts() { return (checksumCache == null) ? null : checksumCache.counts(); }
+
     /** find artifact in repository or return a dummy representing `unknown` or `error`. */
     public Artifact lookupByChecksum(Checksum checksum) {
         if (checksum == null || checksum.isEmpty())
             return errorArtifact(checksum, "empty checksum");
         try {
-            Artifact artifact = searchByChecksum(checksum);
+            Artifact artifact = (checksumCache == null)
+                ? searchByChecksum(checksum)
+                : checksumCache.lookup(checksum, this::searchByChecksum);
             if (!artifact.getChecksumRaw().equals(checksum))
                 throw new AssertionError("expected checksum from repository [" + artifact.getChecksumRaw() + "] "
                     + "to be equal to the checksum requested with [" + checksum + "]");
@@ -38,7 +68,41 @@ public abstract class Repository {
         }
     }
 
-    private Artifact errorArtifact(Checksum checksum, String error) {
+    /**
+     * Like {@link #lookupByChecksum(Checksum)}, but for many checksums with only one round trip to the repository.
+     * The result contains an entry for each checksum, in the same order.
+     */
+    public Map<Checksum, Artifact> lookupByChecksums(Collection<Checksum> checksums) {
+        List<Checksum> valid = checksums.stream()
+            .filter(checksum -> checksum != null && !checksum.isEmpty())
+            .distinct()
+            .collect(toList());
+        Map<Checksum, Artifact> found;
+        try {
+            found = valid.isEmpty() ? Map.of()
+                : (checksumCache == null) ? searchByChecksums(valid)
+                : checksumCache.lookupAll(valid, this::searchByChecksums);
+        } catch (RuntimeException e) {
+            log.error("error retrieving artifacts by checksums " + valid, e);
+            found = null;
+        }
+        Map<Checksum, Artifact> result = new LinkedHashMap<>();
+        for (Checksum checksum : checksums)
+            result.put(checksum,
+                (checksum == null || checksum.isEmpty()) ? errorArtifact(checksum, "empty checksum")
+                    : (found == null) ? errorArtifact(checksum, "error retrieving artifact")
+                    : found.containsKey(checksum) ? found.get(checksum)
+                    : errorArtifact(checksum, "unknown"));
+        return result;
+    }
+
+    /**
+     * The result of a {@link #searchByChecksums(Collection) bulk search} for a checksum found more than once;
+     * it's the same error artifact that {@link #lookupByChecksum(Checksum)} returns in this case.
+     */
+    static Artifact notUnique(Checksum checksum) { return errorArtifact(checksum, "error retrieving artifact"); }
+
+    private static Artifact errorArtifact(Checksum checksum, String error) {
         return new Artifact()
             .setGroupId(new GroupId("unknown"))
             .setArtifactId(new ArtifactId("unknown"))
@@ -53,27 +117,73 @@ public abstract class Repository {
 
     public abstract Artifact searchByChecksum(Checksum checksum);
 
+    /**
+     * Search for all these checksums; unknown checksums are simply missing in the result,
+     * checksums found more than once are {@link #notUnique(Checksum) marked as errors}.
+     * Repositories that support it, should override this to search with a single request.
+     */
+    public Map<Checksum, Artifact> searchByChecksums(Collection<Checksum> checksums) {
+        Map<Checksum, Artifact> result = new LinkedHashMap<>();
+        for (Checksum checksum : checksums) {
+            try {
+                Artifact artifact = searchByChecksum(checksum);
+                if (artifact != null)
+                    result.put(checksum, artifact);
+            } catch (UnknownChecksumException e) {
+                log.debug("not found: {}", checksum);
+            } catch (NonUniqueChecksumException e) {
+                result.put(checksum, notUnique(checksum));
+            }
+        }
+        return result;
+    }
+
     public final Artifact resolveArtifact(GroupId groupId, ArtifactId artifactId, Version version,
                                           ArtifactType type, Classifier classifier) {
         if ("LATEST".equals(version.getValue()))
             version = findVersion(groupId, artifactId, false, version);
         else if ("UNSTABLE".equals(version.getValue()))
             version = findVersion(groupId, artifactId, true, version);
-        return lookupArtifact(groupId, artifactId, version, type, classifier);
+        Artifact artifact = lookupArtifact(groupId, artifactId, version, type, classifier);
+        if (artifact == null)
+            return null;
+        return (cache == null) ? verified(artifact) : cache.cached(artifact); // the cache verifies, too
+    }
+
+    /** Verify the checksum of the download while it streams, e.g. to the container */
+    private static Artifact verified(Artifact artifact) {
+        if (artifact.getChecksumRaw() == null && artifact.getChecksumSupplier() == null)
+            return artifact;
+        Supplier<InputStream> download = artifact.getInputStreamSupplier();
+        return artifact.setInputStreamSupplier(() -> new ChecksumVerifyingInputStream(download.get(), artifact::getChecksum));
     }
 
     private Version findVersion(GroupId groupId, ArtifactId artifactId, boolean snapshots, Version versionExpression) {
-        List<Version> versions = listVersions(groupId, artifactId, false);
+        List<Version> versions = listCachedVersions(groupId, artifactId, false);
         if (snapshots)
-            versions.addAll(listVersions(groupId, artifactId, true));
+            versions.addAll(listCachedVersions(groupId, artifactId, true));
         Version max = versions.stream().max(Comparator.naturalOrder())
             .orElseThrow(() -> new BadRequestException("no versions found for " + groupId + ":" + artifactId));
         log.debug("resolved {}:{} {} to {}", groupId, artifactId, versionExpression, max);
         return max;
     }
 
+    private List<Version> listCachedVersions(GroupId groupId, ArtifactId artifactId, boolean snapshot) {
+        return (versionsCache == null) ? listVersions(groupId, artifactId, snapshot)
+            : versionsCache.versions(groupId, artifactId, snapshot,
+            previous -> listVersions(groupId, artifactId, snapshot, previous));
+    }
+
     protected abstract Artifact lookupArtifact(GroupId groupId, ArtifactId artifactId, Version version,
                                                ArtifactType type, Classifier classifier);
 
     public abstract List<Version> listVersions(GroupId groupId, ArtifactId artifactId, boolean snapshot);
+
+    /**
+     * Like {@link #listVersions(GroupId, ArtifactId, boolean)}, but returns the <code>previous</code> listing,
+     * if the repository reports that it has not been modified.
+     */
+    VersionListing listVersions(GroupId groupId, ArtifactId artifactId, boolean snapshot, VersionListing previous) {
+        return VersionListing.of(listVersions(groupId, artifactId, snapshot));
+    }
 }
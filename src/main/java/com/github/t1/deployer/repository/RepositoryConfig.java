@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.experimental.Accessors;
 
 import java.net.URI;
+import java.util.List;
 
 @Data
 @Accessors(chain = true)
@@ -15,4 +16,11 @@ public class RepositoryConfig {
     Password password;
     String snapshots;
     String releases;
+    ArtifactCacheConfig cache;
+    ChecksumCacheConfig checksumCache;
+    VersionsCacheConfig versionsCache;
+    Integer prefetchThreads;
+    TransportConfig transport;
+    List<MirrorConfig> mirrors;
+    HedgingConfig hedging;
 }
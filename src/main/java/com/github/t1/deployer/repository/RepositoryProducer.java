@@ -2,7 +2,9 @@ package com.github.t1.deployer.repository;
 
 import com.github.t1.deployer.model.Config;
 import lombok.extern.slf4j.Slf4j;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
 
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
@@ -11,10 +13,17 @@ import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.core.Response;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import static com.github.t1.deployer.repository.RepositoryType.artifactory;
 import static com.github.t1.deployer.repository.RepositoryType.mavenCentral;
+import static com.github.t1.deployer.repository.RepositoryType.mavenLocal;
 import static com.github.t1.deployer.tools.Tools.nvl;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static javax.ws.rs.core.Response.Status.Family.SUCCESSFUL;
 
 @Slf4j
@@ -27,19 +36,127 @@ class RepositoryProducer {
     @Inject @Config("repository.uri") URI uri;
     @Inject @Config("repository.snapshots") String repositorySnapshots;
     @Inject @Config("repository.releases") String repositoryReleases;
+    @Inject @Config("repository.cache") ArtifactCacheConfig cacheConfig;
+    @Inject @Config("repository.checksum-cache") ChecksumCacheConfig checksumCacheConfig;
+    @Inject @Config("repository.versions-cache") VersionsCacheConfig versionsCacheConfig;
+    @Inject @Config("repository.transport") TransportConfig transportConfig;
+    @Inject @Config("repository.mirrors") List<MirrorConfig> mirrors;
+    @Inject @Config("repository.hedging") HedgingConfig hedgingConfig;
+    @Inject ExecutorService executor;
 
-    private final Client client = ClientBuilder.newClient();
+    private Client client;
+    private ArtifactCache cache;
+    private ChecksumCache checksumCache;
+    private VersionsCache versionsCache;
+    private SnapshotCache snapshotCache;
+    private CompositeRepository composite;
 
     @Produces Repository repository() {
+        Repository repository = hasMirrors() ? composite() : createRepository();
+        if (isCacheConfigured() && type != mavenLocal) // the files are local already
+            repository.cachedIn(cache());
+        if (isChecksumCacheEnabled())
+            repository.cachedIn(checksumCache());
+        if (isVersionsCacheEnabled())
+            repository.cachedIn(versionsCache());
+        return repository;
+    }
+
+    @PreDestroy synchronized void shutdown() {
+        if (client != null)
+            client.close();
+    }
+
+    private synchronized Client client() {
+        if (client == null)
+            client = buildClient(nvl(transportConfig, new TransportConfig()));
+        return client;
+    }
+
+    /** One client for all repository requests, so the connections can be reused */
+    static Client buildClient(TransportConfig config) {
+        ClientBuilder builder = ClientBuilder.newBuilder()
+            .connectTimeout(config.connectTimeout().toMillis(), MILLISECONDS)
+            .readTimeout(config.readTimeout().toMillis(), MILLISECONDS);
+        if (builder instanceof ResteasyClientBuilder) {
+            ((ResteasyClientBuilder) builder)
+                .connectionPoolSize(config.poolSize())
+                .maxPooledPerRoute(config.poolSize())
+                .connectionCheckoutTimeout(config.checkoutTimeout().toMillis(), MILLISECONDS)
+                .connectionTTL(config.keepAlive().toMillis(), MILLISECONDS);
+        } else {
+            log.warn("can't configure the connection pool of {}", builder.getClass().getName());
+        }
+        if (config.gzip())
+            builder.register(new GzipMetadataFilter());
+        return builder.build();
+    }
+
+    private boolean isCacheConfigured() { return cacheConfig != null && cacheConfig.getPath() != null; }
+
+    private synchronized ArtifactCache cache() {
+        if (cache == null)
+            cache = new ArtifactCache(Paths.get(cacheConfig.getPath()), cacheConfig.maxBytes());
+        return cache;
+    }
+
+    private boolean isChecksumCacheEnabled() { return checksumCacheConfig().maxEntries() > 0; }
+
+    private ChecksumCacheConfig checksumCacheConfig() { return nvl(checksumCacheConfig, new ChecksumCacheConfig()); }
+
+    private synchronized ChecksumCache checksumCache() {
+        if (checksumCache == null)
+            checksumCache = new ChecksumCache(checksumCacheConfig());
+        return checksumCache;
+    }
+
+    private boolean isVersionsCacheEnabled() { return !versionsCacheConfig().ttl().isZero(); }
+
+    private VersionsCacheConfig versionsCacheConfig() { return nvl(versionsCacheConfig, new VersionsCacheConfig()); }
+
+    private synchronized VersionsCache versionsCache() {
+        if (versionsCache == null)
+            versionsCache = new VersionsCache(versionsCacheConfig(), executor);
+        return versionsCache;
+    }
+
+    private synchronized SnapshotCache snapshotCache() {
+        if (snapshotCache == null)
+            snapshotCache = new SnapshotCache();
+        return snapshotCache;
+    }
+
+    private boolean hasMirrors() { return mirrors != null && !mirrors.isEmpty(); }
+
+    /** Shared, so the latency statistics are kept */
+    private synchronized CompositeRepository composite() {
+        if (composite == null) {
+            List<Repository> repositories = new ArrayList<>();
+            repositories.add(createRepository());
+            mirrors.forEach(mirror -> repositories.add(
+                createRepository(mirror.getType(), mirror.getUri(), mirror.getSnapshots(), mirror.getReleases())));
+            composite = new CompositeRepository(nvl(hedgingConfig, new HedgingConfig()), repositories, executor);
+        }
+        return composite;
+    }
+
+    private Repository createRepository() {
         if (type == null)
             type = determineType();
+        return createRepository(type, (type == mavenCentral) ? null : uri, repositorySnapshots, repositoryReleases);
+    }
+
+    private Repository createRepository(RepositoryType type, URI uri, String snapshots, String releases) {
         switch (type) {
             case mavenCentral:
-                return new MavenCentralRepository(client.target(DEFAULT_MAVEN_CENTRAL_URI));
+                return new MavenCentralRepository(client(), nvl(uri, DEFAULT_MAVEN_CENTRAL_URI));
             case artifactory:
-                return new ArtifactoryRepository(client, artifactoryUri(),
-                    nvl(repositorySnapshots, "snapshots-virtual"),
-                    nvl(repositoryReleases, "releases-virtual"));
+                return new ArtifactoryRepository(client(), nvl(uri, DEFAULT_ARTIFACTORY_URI),
+                    nvl(snapshots, "snapshots-virtual"),
+                    nvl(releases, "releases-virtual"))
+                    .cachedIn(snapshotCache());
+            case mavenLocal:
+                return new MavenLocalRepository(localRoot(uri));
         }
         throw new UnsupportedOperationException("unknown repository type " + type);
     }
@@ -58,9 +175,16 @@ class RepositoryProducer {
 
     private URI artifactoryUri() { return nvl(uri, DEFAULT_ARTIFACTORY_URI); }
 
+    private static Path localRoot(URI uri) {
+        if (uri == null)
+            return MavenLocalRepository.DEFAULT_ROOT;
+        return (uri.getScheme() == null) ? Paths.get(uri.getPath()) : Paths.get(uri);
+    }
+
     private boolean replies(URI uri) {
         try {
-            Response response = client.target(uri).request().get();
+            Response response = client().target(uri).request().get();
+            response.close();
             return response.getStatusInfo().getFamily() == SUCCESSFUL;
         } catch (RuntimeException e) {
             if ((e.getCause() instanceof UnknownHostException)
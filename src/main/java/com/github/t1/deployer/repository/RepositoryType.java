@@ -1,5 +1,5 @@
 package com.github.t1.deployer.repository;
 
 public enum RepositoryType {
-    mavenCentral, artifactory
+    mavenCentral, artifactory, mavenLocal
 }
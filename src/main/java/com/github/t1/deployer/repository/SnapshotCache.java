@@ -0,0 +1,26 @@
+package com.github.t1.deployer.repository;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the {@link SnapshotMetadata} by the uri of its <code>maven-metadata.xml</code>, so it can be
+ * revalidated with a conditional request, and the file infos don't have to be fetched again.
+ */
+class SnapshotCache {
+    static final int MAX_ENTRIES = 1000;
+
+    /** access ordered, i.e. the first entry is the least recently used */
+    private final Map<URI, SnapshotMetadata> entries = new LinkedHashMap<URI, SnapshotMetadata>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<URI, SnapshotMetadata> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    synchronized SnapshotMetadata get(URI uri) { return entries.get(uri); }
+
+    synchronized void put(URI uri, SnapshotMetadata metadata) { entries.put(uri, metadata); }
+
+    synchronized int size() { return entries.size(); }
+}
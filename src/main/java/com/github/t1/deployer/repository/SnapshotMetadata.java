@@ -0,0 +1,78 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.ArtifactId;
+import com.github.t1.deployer.model.ArtifactType;
+import com.github.t1.deployer.model.Classifier;
+import com.github.t1.deployer.repository.ArtifactoryRepository.FileInfo;
+import com.github.t1.deployer.repository.ArtifactoryRepository.MavenMetadata;
+import com.github.t1.deployer.repository.ArtifactoryRepository.MavenMetadata.Versioning.SnapshotVersion;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import javax.ws.rs.NotFoundException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static java.util.Comparator.comparing;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * The <code>maven-metadata.xml</code> of a SNAPSHOT version together with the infos of the timestamped files it
+ * refers to. The file infos stay valid as long as the metadata is not updated.
+ */
+@AllArgsConstructor(access = PRIVATE)
+class SnapshotMetadata {
+    private final MavenMetadata metadata;
+    @Getter private final String etag;
+    @Getter private final String lastModified;
+    private final Map<String, FileInfo> files;
+
+    SnapshotMetadata(MavenMetadata metadata, String etag, String lastModified) {
+        this(metadata, etag, lastModified, new ConcurrentHashMap<>());
+    }
+
+    /** The metadata was fetched again; keep the file infos, if it wasn't updated */
+    SnapshotMetadata revalidated(MavenMetadata metadata, String etag, String lastModified) {
+        String lastUpdated = lastUpdated(this.metadata);
+        boolean unchanged = lastUpdated != null && lastUpdated.equals(lastUpdated(metadata));
+        return new SnapshotMetadata(metadata, etag, lastModified, unchanged ? files : new ConcurrentHashMap<>());
+    }
+
+    private static String lastUpdated(MavenMetadata metadata) {
+        return (metadata.getVersioning() == null) ? null : metadata.getVersioning().getLastUpdated();
+    }
+
+    /** Prefers the snapshot version with the same classifier, then one without; older metadata doesn't specify them */
+    String fileName(ArtifactId artifactId, ArtifactType type, Classifier classifier) {
+        String classifierName = (classifier == null) ? null : classifier.getValue();
+        String snapshot = snapshotVersions().stream()
+            .filter(snapshotVersion -> type.extension().equals(snapshotVersion.getExtension()))
+            .min(comparing(snapshotVersion -> rank(classifierName, snapshotVersion.getClassifier())))
+            .map(SnapshotVersion::getValue)
+            .orElseThrow(() -> new NotFoundException("no metadata for extension [" + type.extension() + "]"));
+        return artifactId + "-" + snapshot + ((classifier == null) ? "" : "-" + classifier) + "." + type.extension();
+    }
+
+    private static int rank(String expected, String actual) {
+        return Objects.equals(expected, actual) ? 0 : (actual == null) ? 1 : 2;
+    }
+
+    private List<SnapshotVersion> snapshotVersions() {
+        if (metadata.getVersioning() == null || metadata.getVersioning().getSnapshotVersions() == null)
+            throw new NotFoundException("no snapshot versions in metadata");
+        return metadata.getVersioning().getSnapshotVersions();
+    }
+
+    /** The timestamped files never change, so their infos are fetched only once */
+    FileInfo fileInfo(String fileName, Function<String, FileInfo> fetch) {
+        FileInfo fileInfo = files.get(fileName);
+        if (fileInfo == null) {
+            fileInfo = fetch.apply(fileName);
+            files.put(fileName, fileInfo);
+        }
+        return fileInfo;
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Age;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.Duration;
+
+import static com.github.t1.deployer.tools.Tools.nvl;
+
+@Data
+@Accessors(chain = true)
+public class TransportConfig {
+    public static final int DEFAULT_POOL_SIZE = 20;
+    public static final Age DEFAULT_CONNECT_TIMEOUT = new Age("10 s");
+    public static final Age DEFAULT_CHECKOUT_TIMEOUT = new Age("10 s");
+    public static final Age DEFAULT_READ_TIMEOUT = Age.ofMinutes(1);
+    public static final Age DEFAULT_KEEP_ALIVE = Age.ofMinutes(1);
+
+    /** The maximum number of connections to the repository; should be more than the prefetch threads. */
+    Integer poolSize;
+    /** How long to wait for a connection to be established. */
+    Age connectTimeout;
+    /** How long to wait for a free connection in the pool, so running out of connections fails fast. */
+    Age checkoutTimeout;
+    /** How long to wait for the next bytes of a response, so a half-open socket doesn't hang forever. */
+    Age readTimeout;
+    /** How long a pooled connection is reused, before a new one is opened. */
+    Age keepAlive;
+    /** Ask for gzipped json and xml responses. */
+    Boolean gzip;
+
+    int poolSize() { return nvl(poolSize, DEFAULT_POOL_SIZE); }
+
+    Duration connectTimeout() { return nvl(connectTimeout, DEFAULT_CONNECT_TIMEOUT).getDuration(); }
+
+    Duration checkoutTimeout() { return nvl(checkoutTimeout, DEFAULT_CHECKOUT_TIMEOUT).getDuration(); }
+
+    Duration readTimeout() { return nvl(readTimeout, DEFAULT_READ_TIMEOUT).getDuration(); }
+
+    Duration keepAlive() { return nvl(keepAlive, DEFAULT_KEEP_ALIVE).getDuration(); }
+
+    boolean gzip() { return nvl(gzip, true); }
+}
@@ -0,0 +1,18 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Version;
+import lombok.Value;
+
+import java.util.List;
+
+/** The versions of an artifact, with the validators needed to conditionally fetch them again */
+@Value
+class VersionListing {
+    List<Version> versions;
+    String etag;
+    String lastModified;
+
+    static VersionListing of(List<Version> versions) { return new VersionListing(versions, null, null); }
+
+    boolean hasValidators() { return etag != null || lastModified != null; }
+}
@@ -0,0 +1,130 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.ArtifactId;
+import com.github.t1.deployer.model.GroupId;
+import com.github.t1.deployer.model.Version;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Remembers the versions of artifacts, so resolving <code>LATEST</code> or <code>UNSTABLE</code> doesn't have to
+ * transfer the folder listing from the repository every time. If the repository provided validators
+ * (<code>ETag</code> or <code>Last-Modified</code>), the versions are revalidated every time, so they are never stale.
+ * Otherwise they are used until the TTL expires; and when they are used after the refresh time, they are
+ * fetched again in the background, so frequently used versions rarely expire.
+ */
+@Slf4j
+class VersionsCache {
+    private final Duration ttl;
+    private final Duration refreshAfter;
+    private final Clock clock;
+    private final Executor executor;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<Key> refreshing = ConcurrentHashMap.newKeySet();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+
+    VersionsCache(VersionsCacheConfig config, Executor executor) { this(config, Clock.systemUTC(), executor); }
+
+    VersionsCache(VersionsCacheConfig config, Clock clock, Executor executor) {
+        this.ttl = config.ttl();
+        this.refreshAfter = config.refreshAfter();
+        this.clock = clock;
+        this.executor = executor;
+    }
+
+    @Value private static class Key {
+        GroupId groupId;
+        ArtifactId artifactId;
+        boolean snapshot;
+    }
+
+    @Value private static class Entry {
+        VersionListing listing;
+        Instant fetched;
+    }
+
+    /**
+     * @param fetch gets the previous listing (or <code>null</code>) and returns the same instance,
+     *              if the versions have not been modified
+     * @return a modifiable copy of the versions
+     */
+    List<Version> versions(GroupId groupId, ArtifactId artifactId, boolean snapshot,
+                           UnaryOperator<VersionListing> fetch) {
+        Key key = new Key(groupId, artifactId, snapshot);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            entry = fetch(key, null, fetch);
+        } else if (entry.listing.hasValidators()) {
+            revalidations.incrementAndGet();
+            entry = fetch(key, entry.listing, fetch);
+        } else {
+            Duration age = Duration.between(entry.fetched, clock.instant());
+            if (age.compareTo(ttl) >= 0) {
+                misses.incrementAndGet();
+                entry = fetch(key, entry.listing, fetch);
+            } else {
+                hits.incrementAndGet();
+                if (age.compareTo(refreshAfter) >= 0)
+                    refreshAhead(key, entry.listing, fetch);
+            }
+        }
+        log.debug("versions cache for {}: {}", key, this);
+        return new ArrayList<>(entry.listing.getVersions());
+    }
+
+    private Entry fetch(Key key, VersionListing previous, UnaryOperator<VersionListing> fetch) {
+        VersionListing listing = fetch.apply(previous);
+        if (previous != null && listing == previous) {
+            log.debug("versions not modified: {}", key);
+            notModified.incrementAndGet();
+        }
+        Entry entry = new Entry(listing, clock.instant());
+        entries.put(key, entry);
+        return entry;
+    }
+
+    private void refreshAhead(Key key, VersionListing previous, UnaryOperator<VersionListing> fetch) {
+        if (!refreshing.add(key))
+            return;
+        log.debug("refresh versions of {} in the background", key);
+        executor.execute(() -> {
+            try {
+                fetch(key, previous, fetch);
+            } catch (RuntimeException e) {
+                log.warn("background refresh of versions of {} failed: {}", key, e.toString());
+            } finally {
+                refreshing.remove(key);
+            }
+        });
+    }
+
+    long hits() { return hits.get(); }
+
+    long misses() { return misses.get(); }
+
+    long revalidations() { return revalidations.get(); }
+
+    long notModified() { return notModified.get(); }
+
+    @Override public String toString() {
+        return "versions cache: " + hits + " hits, " + misses + " misses, "
+            + revalidations + " revalidations, " + notModified + " not modified";
+    }
+}
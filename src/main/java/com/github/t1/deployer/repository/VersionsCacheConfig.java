@@ -0,0 +1,28 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Age;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.Duration;
+
+import static com.github.t1.deployer.tools.Tools.nvl;
+
+@Data
+@Accessors(chain = true)
+public class VersionsCacheConfig {
+    public static final Age DEFAULT_TTL = Age.ofMinutes(1);
+    public static final Age DEFAULT_REFRESH_AFTER = new Age("45 s");
+
+    /**
+     * How long the versions of an artifact are used without asking the repository again, if it provided no
+     * validators to revalidate them with. `0 s` disables the cache.
+     */
+    Age ttl;
+    /** When the versions are used after this time, they are refreshed in the background. */
+    Age refreshAfter;
+
+    Duration ttl() { return nvl(ttl, DEFAULT_TTL).getDuration(); }
+
+    Duration refreshAfter() { return nvl(refreshAfter, DEFAULT_REFRESH_AFTER).getDuration(); }
+}
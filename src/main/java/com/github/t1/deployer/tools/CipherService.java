@@ -1,6 +1,8 @@
 package com.github.t1.deployer.tools;
 
+import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
+import lombok.Value;
 import org.jetbrains.annotations.NotNull;
 
 import javax.crypto.Cipher;
@@ -9,6 +11,7 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.KeyStore;
@@ -16,19 +19,67 @@ import java.security.KeyStore.Entry;
 import java.security.KeyStore.PasswordProtection;
 import java.security.KeyStore.PrivateKeyEntry;
 import java.security.KeyStore.SecretKeyEntry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
+import static com.github.t1.deployer.tools.CipherService.KeyUse.DECRYPT;
+import static com.github.t1.deployer.tools.CipherService.KeyUse.ENCRYPT;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static javax.crypto.Cipher.DECRYPT_MODE;
 import static javax.crypto.Cipher.ENCRYPT_MODE;
 import static javax.xml.bind.DatatypeConverter.parseHexBinary;
 import static javax.xml.bind.DatatypeConverter.printHexBinary;
 
+/**
+ * Loading a keystore and decrypting with a private key are expensive, so the keys are kept until the keystore
+ * file is modified, and - if the key-store config has a <code>memo-ttl</code> - the decrypted values, too.
+ */
 public class CipherService {
     public static final String DEFAULT_PASS = "changeit";
 
+    @RequiredArgsConstructor
+    enum KeyUse {
+        ENCRYPT(entry -> entry.getCertificate().getPublicKey()),
+        DECRYPT(PrivateKeyEntry::getPrivateKey);
+
+        private final Function<PrivateKeyEntry, Key> privateKeyExtractor;
+    }
+
+    @Value private static class KeyId {
+        Path path;
+        String type;
+        String alias;
+        Password pass;
+        KeyUse use;
+    }
+
+    @Value private static class LoadedKey {
+        FileTime modified;
+        Key key;
+    }
+
+    @Value private static class SecretId {
+        KeyId key;
+        String text;
+    }
+
+    @Value private static class Secret {
+        FileTime modified;
+        Instant expires;
+        Password plain;
+    }
+
+    private static final Map<KeyId, LoadedKey> KEYS = new ConcurrentHashMap<>();
+    private static final Map<SecretId, Secret> SECRETS = new ConcurrentHashMap<>();
+
+    Clock clock = Clock.systemUTC();
+
     public String encrypt(String plain, KeyStoreConfig config) {
-        Key key = loadKey(config, entry -> entry.getCertificate().getPublicKey());
+        Key key = loadKey(config, ENCRYPT);
         return encrypt(plain, key);
     }
 
@@ -37,12 +88,54 @@ public class CipherService {
     }
 
     public String decrypt(String text, KeyStoreConfig config) {
-        Key key = loadKey(config, PrivateKeyEntry::getPrivateKey);
+        Duration ttl = (config == null || config.getMemoTtl() == null) ? null : config.getMemoTtl().getDuration();
+        if (ttl == null || ttl.isZero())
+            return decrypt(text, loadKey(config, DECRYPT));
+
+        SecretId id = new SecretId(keyId(config, DECRYPT), text);
+        FileTime modified = lastModified(id.getKey().getPath());
+        Instant now = clock.instant();
+        SECRETS.values().removeIf(secret -> secret.getExpires().isBefore(now));
+        Secret secret = SECRETS.get(id);
+        if (secret == null || !secret.getModified().equals(modified)) {
+            secret = new Secret(modified, now.plus(ttl), new Password(decrypt(text, loadKey(config, DECRYPT))));
+            SECRETS.put(id, secret);
+        }
+        return secret.getPlain().getValue();
+    }
+
+    boolean isMemoized(String text, KeyStoreConfig config) {
+        SecretId id = new SecretId(keyId(config, DECRYPT), text);
+        Secret secret = SECRETS.get(id);
+        return secret != null && !secret.getExpires().isBefore(clock.instant())
+            && secret.getModified().equals(lastModified(id.getKey().getPath()));
+    }
+
+    private String decrypt(String text, Key key) {
         return new String(cipher(DECRYPT_MODE, parseHexBinary(text), key), UTF_8);
     }
 
+    private Key loadKey(KeyStoreConfig config, KeyUse use) {
+        KeyId id = keyId(config, use);
+        FileTime modified = lastModified(id.getPath());
+        LoadedKey loaded = KEYS.get(id);
+        if (loaded == null || !loaded.getModified().equals(modified)) {
+            loaded = new LoadedKey(modified, loadKeyFromStore(config, use.privateKeyExtractor));
+            KEYS.put(id, loaded);
+        }
+        return loaded.getKey();
+    }
+
+    private KeyId keyId(KeyStoreConfig config, KeyUse use) {
+        return new KeyId(getKeyStorePath(config), getKeystoreType(config), config.getAlias(),
+            new Password(new String(getKeyPass(config))), use);
+    }
+
+    @SneakyThrows(IOException.class)
+    private static FileTime lastModified(Path path) { return Files.getLastModifiedTime(path); }
+
     @SneakyThrows({GeneralSecurityException.class, IOException.class})
-    private Key loadKey(KeyStoreConfig config, Function<PrivateKeyEntry, Key> privateKeyExtractor) {
+    private Key loadKeyFromStore(KeyStoreConfig config, Function<PrivateKeyEntry, Key> privateKeyExtractor) {
         KeyStore store = loadKeyStore(config);
 
         if (store.isCertificateEntry(config.getAlias()))
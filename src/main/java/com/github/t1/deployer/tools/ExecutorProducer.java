@@ -0,0 +1,23 @@
+package com.github.t1.deployer.tools;
+
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Produces;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * All concurrent work of the deployer runs on the executors managed by the container, instead of threads of its own.
+ * They must not be shut down; to limit the number of concurrent tasks, use a {@link LimitedExecutor}.
+ */
+@ApplicationScoped
+public class ExecutorProducer {
+    @Resource private ManagedExecutorService executor;
+    @Resource private ManagedScheduledExecutorService scheduler;
+
+    @Produces ExecutorService executor() { return executor; }
+
+    @Produces ScheduledExecutorService scheduler() { return scheduler; }
+}
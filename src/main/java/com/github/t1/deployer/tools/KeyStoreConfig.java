@@ -2,9 +2,11 @@ package com.github.t1.deployer.tools;
 
 import com.fasterxml.jackson.databind.PropertyNamingStrategies.KebabCaseStrategy;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import com.github.t1.deployer.model.Age;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import lombok.With;
 import lombok.experimental.Accessors;
 
@@ -18,6 +20,8 @@ import static lombok.AccessLevel.PRIVATE;
 public class KeyStoreConfig {
     private String path;
     private String type;
-    private String pass;
+    @ToString.Exclude private String pass;
     private String alias;
+    /** Keep the decrypted values for this long, or not at all, if <code>null</code> */
+    private Age memoTtl;
 }
@@ -0,0 +1,55 @@
+package com.github.t1.deployer.tools;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs at most a limited number of tasks at the same time on a shared executor; the other tasks are queued here.
+ * Nothing to shut down: when the queue is empty, no thread of the shared executor is used any more.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class LimitedExecutor implements Executor {
+    private final Executor delegate;
+    private final int limit;
+
+    private final Queue<Runnable> queue = new ArrayDeque<>();
+    private int running;
+
+    @Override public synchronized void execute(Runnable task) {
+        queue.add(task);
+        if (running < limit) {
+            running++;
+            try {
+                delegate.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                running--;
+                queue.remove(task);
+                throw e;
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable task;
+            synchronized (this) {
+                task = queue.poll();
+                if (task == null) {
+                    running--;
+                    return;
+                }
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.warn("task failed", e);
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.github.t1.deployer.app.Audit.DeployableAudit;
 import com.github.t1.deployer.app.Audit.LogHandlerAudit;
 import com.github.t1.deployer.app.Audit.LoggerAudit;
 import com.github.t1.deployer.app.Audits.Warning;
+import com.github.t1.deployer.container.BatchConfig;
 import com.github.t1.deployer.container.Container;
 import com.github.t1.deployer.container.JBossCliTestClient;
 import com.github.t1.deployer.model.Age;
@@ -29,6 +30,8 @@ import com.github.t1.deployer.model.LoggerPlan;
 import com.github.t1.deployer.model.ProcessState;
 import com.github.t1.deployer.model.RootBundleConfig;
 import com.github.t1.deployer.model.Version;
+import com.github.t1.deployer.repository.CacheCounts;
+import com.github.t1.deployer.repository.ChecksumMismatchException;
 import com.github.t1.deployer.repository.Repository;
 import com.github.t1.deployer.tools.KeyStoreConfig;
 import com.github.t1.log.LogLevel;
@@ -43,6 +46,8 @@ import org.jboss.as.controller.client.ModelControllerClient;
 import org.jboss.as.controller.client.Operation;
 import org.jboss.as.controller.client.OperationMessageHandler;
 import org.jboss.dmr.ModelNode;
+import org.jboss.threads.AsyncFuture;
+import org.jboss.threads.AsyncFutureTask;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -54,22 +59,24 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.mockito.verification.VerificationMode;
 
+import javax.enterprise.context.ContextNotActiveException;
 import javax.enterprise.inject.Instance;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -97,6 +104,8 @@ import static com.github.t1.deployer.testtools.ModelNodeTestTools.readResourceRe
 import static com.github.t1.deployer.testtools.ModelNodeTestTools.step;
 import static com.github.t1.deployer.testtools.ModelNodeTestTools.success;
 import static com.github.t1.deployer.testtools.ModelNodeTestTools.toModelNode;
+import static com.github.t1.deployer.testtools.ModelNodeTestTools.toModelNode;
+import static com.github.t1.deployer.testtools.TestData.EXECUTOR;
 import static com.github.t1.deployer.tools.Password.CONCEALED;
 import static com.github.t1.deployer.tools.Tools.toStringOrNull;
 import static com.github.t1.log.LogLevel.ALL;
@@ -107,21 +116,23 @@ import static java.util.Collections.emptyMap;
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.jboss.as.controller.client.helpers.ClientConstants.ADD;
 import static org.jboss.as.controller.client.helpers.ClientConstants.ADDRESS;
 import static org.jboss.as.controller.client.helpers.ClientConstants.COMPOSITE;
 import static org.jboss.as.controller.client.helpers.ClientConstants.NAME;
 import static org.jboss.as.controller.client.helpers.ClientConstants.OP;
+import static org.jboss.as.controller.client.helpers.ClientConstants.READ_RESOURCE_OPERATION;
 import static org.jboss.as.controller.client.helpers.ClientConstants.STEPS;
 import static org.jboss.as.controller.client.helpers.ClientConstants.VALUE;
 import static org.jboss.as.controller.client.helpers.ClientConstants.WRITE_ATTRIBUTE_OPERATION;
 import static org.jboss.as.controller.client.helpers.Operations.createAddress;
 import static org.jboss.as.controller.client.helpers.Operations.createOperation;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doAnswer;
-import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.isA;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -152,6 +163,17 @@ public abstract class AbstractDeployerTests {
         postVariables(variables);
     }
 
+    /** Every node of the fleet has the same stand-in management endpoint: the mocked client */
+    FleetResponse deployToFleetWithRootBundle(String plan, String... nodes) {
+        rootBundle.write(plan);
+        Map<String, URI> endpoints = new LinkedHashMap<>();
+        for (String node : nodes)
+            endpoints.put(node, URI.create("remote+http://" + node + ":9990"));
+        boundary.fleet = new FleetConfig().setNodes(endpoints).setParallelism(1);
+        boundary.connect = uri -> cli;
+        return boundary.postFleet(emptyMap());
+    }
+
     void post() {postVariables(emptyMap());}
 
     void postVariables(Map<VariableName, String> variables) {
@@ -168,6 +190,7 @@ public abstract class AbstractDeployerTests {
     @Mock private Instance<Deployer> deployers;
 
     @Mock private Repository repository;
+    private final ArtifactPrefetch prefetch = new ArtifactPrefetch();
 
     private final ModelControllerClient cli = mock(ModelControllerClient.class);
     @Spy private Container container = JBossCliTestClient.buildContainer(cli);
@@ -175,11 +198,11 @@ public abstract class AbstractDeployerTests {
     private final Map<VariableName, String> configuredVariables = new HashMap<>();
     private final List<String> managedResourceNames = new ArrayList<>();
     private final Map<String, List<String>> pinnedResourceNames = new LinkedHashMap<>();
-    private final List<String> allDeployments = new ArrayList<>();
-    private final List<String> allLoggers = new ArrayList<>();
-    private final List<String> allNonXaDataSources = new ArrayList<>();
-    private final List<String> allXaDataSources = new ArrayList<>();
-    private final Map<LogHandlerType, List<String>> allLogHandlers = new LinkedHashMap<>();
+    private final List<Supplier<String>> allDeployments = new ArrayList<>();
+    private final List<Supplier<String>> allLoggers = new ArrayList<>();
+    private final List<Supplier<String>> allNonXaDataSources = new ArrayList<>();
+    private final List<Supplier<String>> allXaDataSources = new ArrayList<>();
+    private final Map<LogHandlerType, List<Supplier<String>>> allLogHandlers = new LinkedHashMap<>();
 
     private final Map<String, List<Version>> versions = new LinkedHashMap<>();
 
@@ -198,7 +221,15 @@ public abstract class AbstractDeployerTests {
             = artifactDeployer.pinnedResourceNames
             = pinnedResourceNames;
         artifactDeployer.repository
+            = prefetch.repository
+            = boundary.repository
             = repository;
+        artifactDeployer.prefetch
+            = boundary.prefetch
+            = prefetch;
+        prefetch.executor
+            = boundary.executor
+            = EXECUTOR;
         logHandlerDeployer.container
             = loggerDeployer.container
             = dataSourceDeployer.container
@@ -223,42 +254,178 @@ public abstract class AbstractDeployerTests {
         }).when(deployers).forEach(any(Consumer.class));
 
         when(anyModelNode()).then(i -> success(processState)); // write-attribute calls
-        when(anyOperation()).then(i -> success(processState)); // composite calls
-        whenCli(readResourceRequest(rootLogger())).thenRaw(this::rootLoggerResponse);
-        whenCli(readLoggerRequest("*")).then(this::allLoggersResponse);
-        whenCli(readDatasourceRequest("*", false)).then(this::allNonXaDataSourcesResponse);
-        whenCli(readDatasourceRequest("*", true)).then(this::allXaDataSourcesResponse);
-        Arrays.stream(LogHandlerType.values()).forEach(this::stubAllLogHandlers);
-        whenCli(readDeploymentRequest("*")).then(this::allDeploymentsResponse);
+        when(anyOperation()).then(i -> completed(success(processState))); // composite calls
+        whenCli(isSnapshotRequest()).thenRaw(this::snapshotResponse);
+        whenCli(isDeploymentsRequest()).thenRaw(request -> success(joinModelNode(allDeployments)));
+        when(anyUpload()).then(i -> uploaded(i.getArgument(0)));
 
         when(repository.listVersions(isA(GroupId.class), isA(ArtifactId.class), isA(Boolean.class)))
             .then(i -> versions.get(versionsKey(i.getArgument(0), i.getArgument(1)))
                 .stream()
                 .filter(i.getArgument(2) ? Version::isSnapshot : Version::isStable)
                 .collect(toList()));
+        when(repository.lookupByChecksums(anyCollection())).then(i -> lookupByChecksums(i.getArgument(0)));
+    }
+
+    private Map<Checksum, Artifact> lookupByChecksums(Collection<Checksum> checksums) {
+        Map<Checksum, Artifact> artifacts = new LinkedHashMap<>();
+        checksums.forEach(checksum -> artifacts.put(checksum, repository.lookupByChecksum(checksum)));
+        return artifacts;
     }
 
     @SneakyThrows(IOException.class)
     private ModelNode anyModelNode() {return cli.execute(any(ModelNode.class), any(OperationMessageHandler.class));}
 
+    private AsyncFuture<ModelNode> anyOperation() {return cli.executeAsync(any(Operation.class), any(OperationMessageHandler.class));}
+
+    private static AsyncFuture<ModelNode> completed(ModelNode result) {
+        return new AsyncFutureTask<>(null) {{ setResult(result); }};
+    }
+
     @SneakyThrows(IOException.class)
-    private ModelNode anyOperation() {return cli.execute(any(Operation.class), any(OperationMessageHandler.class));}
+    private ModelNode anyUpload() {return cli.execute(argThat(isUpload()), any(OperationMessageHandler.class));}
 
     @RequiredArgsConstructor
     public class OngoingCli {
-        private final ModelNode request;
+        private final ArgumentMatcher<ModelNode> request;
+
+        @SneakyThrows(IOException.class) void thenRaw(Function<ModelNode, ModelNode> response) {
+            when(cli.execute(argThat(request), any(OperationMessageHandler.class)))
+                .then(i -> response.apply(i.getArgument(0)));
+        }
+    }
+
+    private OngoingCli whenCli(ArgumentMatcher<ModelNode> request) {
+        return new OngoingCli(request);
+    }
+
+    /** The container is read with one composite operation of wildcard reads */
+    private static ArgumentMatcher<ModelNode> isSnapshotRequest() {
+        return request -> request != null && request.hasDefined(OP) && request.get(OP).asString().equals(COMPOSITE);
+    }
+
+    /** Before the batch, only the deployments are read, to find the content that has to be staged */
+    private static ArgumentMatcher<ModelNode> isDeploymentsRequest() {
+        return request -> request != null && request.hasDefined(OP) && request.get(OP).asString().equals(READ_RESOURCE_OPERATION)
+                          && request.get(ADDRESS).equals(readDeploymentRequest("*").get(ADDRESS));
+    }
 
-        void then(Supplier<ModelNode> supplier) {
-            thenRaw(() -> success(supplier.get()));
+    private static ArgumentMatcher<Operation> isUpload() {
+        return operation -> operation != null && operation.getOperation().get(OP).asString().equals("upload-deployment-stream");
+    }
+
+    /** The container replies with the hash of the uploaded content */
+    @SneakyThrows(IOException.class) private static ModelNode uploaded(Operation operation) {
+        byte[] bytes = operation.getInputStreams().get(0).readAllBytes();
+        return success(new ModelNode().set(Checksum.sha1(bytes).getBytes()));
+    }
+
+    @SneakyThrows(IOException.class) List<Operation> capturedUploads() {
+        ArgumentCaptor<Operation> captor = ArgumentCaptor.forClass(Operation.class);
+        verify(cli, atLeast(0)).execute(captor.capture(), any(OperationMessageHandler.class));
+        return captor.getAllValues().stream().filter(isUpload()::matches).collect(toList());
+    }
+
+    void givenNonAtomicBatch() { JBossCliTestClient.configureBatch(container, new BatchConfig().setAtomic(false)); }
+
+    void givenChecksumCacheCounts(CacheCounts counts) { when(repository.checksumCacheCounts()).thenReturn(counts); }
+
+    /** Like the real client, the container reads the input streams, and the operation fails, if it can't */
+    void givenContainerReadsInputStreams() {
+        when(anyOperation()).then(i -> {
+            try {
+                for (InputStream inputStream : i.<Operation>getArgument(0).getInputStreams())
+                    inputStream.readAllBytes();
+            } catch (IOException e) {
+                return completed(toModelNode("{'outcome' => 'failed', 'failure-description' => 'can not read stream'}"));
+            }
+            return completed(success(processState));
+        });
+    }
+
+    void startAnotherBatch() {
+        container.startBatch();
+        container.rollbackBatch();
+    }
+
+    private static class CorruptedInputStream extends FilterInputStream {
+        private final Checksum expected;
+
+        CorruptedInputStream(InputStream in, Checksum expected) {
+            super(in);
+            this.expected = expected;
         }
 
-        @SneakyThrows(IOException.class) void thenRaw(Supplier<ModelNode> supplier) {
-            when(cli.execute(eq(request), any(OperationMessageHandler.class))).then(i -> supplier.get());
+        @Override public int read() throws IOException { return verify(super.read()); }
+
+        @Override public int read(byte[] buffer, int offset, int length) throws IOException {
+            return verify(super.read(buffer, offset, length));
+        }
+
+        private int verify(int n) throws IOException {
+            if (n < 0)
+                throw new ChecksumMismatchException(expected, Checksum.fromString("C0220000"));
+            return n;
         }
     }
 
-    private OngoingCli whenCli(ModelNode request) {
-        return new OngoingCli(request);
+    /** Like the proxy of the request scoped bean, it fails on other threads, e.g. of the nodes of a fleet */
+    void givenRequestScopedPrefetch() {
+        Thread requestThread = Thread.currentThread();
+        ArtifactPrefetch requestScoped = new ArtifactPrefetch() {
+            @Override public Artifact resolveArtifact(GroupId groupId, ArtifactId artifactId, Version version,
+                                                      ArtifactType type, Classifier classifier) {
+                if (Thread.currentThread() != requestThread)
+                    throw new ContextNotActiveException("no request scope on " + Thread.currentThread().getName());
+                return super.resolveArtifact(groupId, artifactId, version, type, classifier);
+            }
+        };
+        requestScoped.repository = repository;
+        requestScoped.executor = EXECUTOR;
+        artifactDeployer.prefetch = boundary.prefetch = requestScoped;
+    }
+
+    void givenStagedContentExpires() { JBossCliTestClient.expireStagedContent(container); }
+
+    @SneakyThrows(IOException.class) void verifyContainerReadOnce() {
+        verify(cli).execute(argThat(isSnapshotRequest()), any(OperationMessageHandler.class));
+    }
+
+    private ModelNode snapshotResponse(ModelNode request) {
+        ModelNode result = new ModelNode();
+        List<ModelNode> steps = request.get(STEPS).asList();
+        for (int i = 0; i < steps.size(); i++)
+            result.get("step-" + (i + 1)).set(success(readAllResponse(steps.get(i))));
+        return success(result);
+    }
+
+    private ModelNode readAllResponse(ModelNode request) {
+        ModelNode address = request.get(ADDRESS);
+        if (address.equals(readDeploymentRequest("*").get(ADDRESS)))
+            return joinModelNode(allDeployments);
+        if (address.equals(readResourceRequest("logging", "root-logger", "*").get(ADDRESS)))
+            return allRootLoggersResponse();
+        if (address.equals(readLoggerRequest("*").get(ADDRESS)))
+            return joinModelNode(allLoggers);
+        for (LogHandlerType type : LogHandlerType.values())
+            if (address.equals(readLogHandlerRequest(type, "*").get(ADDRESS)))
+                return joinModelNode(allLogHandlers.getOrDefault(type, emptyList()));
+        if (address.equals(readDatasourceRequest("*", false).get(ADDRESS)))
+            return joinModelNode(allNonXaDataSources);
+        if (address.equals(readDatasourceRequest("*", true).get(ADDRESS)))
+            return joinModelNode(allXaDataSources);
+        throw new IllegalArgumentException("unexpected read request " + request);
+    }
+
+    @SneakyThrows(IOException.class) ModelNode capturedSnapshotStep(ModelNode address) {
+        ArgumentCaptor<ModelNode> captor = ArgumentCaptor.forClass(ModelNode.class);
+        verify(cli, atLeastOnce()).execute(captor.capture(), any(OperationMessageHandler.class));
+        return captor.getAllValues().stream()
+            .filter(isSnapshotRequest()::matches)
+            .flatMap(request -> request.get(STEPS).asList().stream())
+            .filter(step -> step.get(ADDRESS).equals(address))
+            .findFirst()
+            .orElseThrow(() -> new AssertionError("no snapshot step for " + address));
     }
 
 
@@ -268,9 +435,10 @@ public abstract class AbstractDeployerTests {
 
     static ModelNode rootLoggerNode() {return createAddress("subsystem", "logging", "root-logger", "ROOT");}
 
-    private ModelNode rootLoggerResponse() {
+    private ModelNode allRootLoggersResponse() {
         return toModelNode(""
-                           + "{\n"
+                           + "[{\n"
+                           + rootLogger()
                            + "    'outcome' => 'success',\n"
                            + "    'result' => {\n"
                            + "        'filter' => undefined,\n"
@@ -281,45 +449,23 @@ public abstract class AbstractDeployerTests {
                            + "        ],\n"
                            + "        'level' => 'INFO'\n"
                            + "    }\n"
-                           + "}");
+                           + "}]");
     }
 
-    private void stubAllLogHandlers(LogHandlerType type) {
-        whenCli(readLogHandlerRequest(type, "*"))
-            .then(() -> joinModelNode(allLogHandlers.getOrDefault(type, emptyList())));
-    }
-
-    private ModelNode allLoggersResponse() {return joinModelNode(allLoggers);}
-
-    private ModelNode allDeploymentsResponse() {return joinModelNode(allDeployments);}
-
-    private ModelNode allNonXaDataSourcesResponse() {return joinModelNode(allNonXaDataSources);}
-
-    private ModelNode allXaDataSourcesResponse() {return joinModelNode(allXaDataSources);}
-
-    private ModelNode joinModelNode(List<String> list) {
-        return toModelNode(list.stream().collect(joining(",", "[", "]")));
+    private ModelNode joinModelNode(List<Supplier<String>> list) {
+        return toModelNode(list.stream().map(Supplier::get).collect(joining(",", "[", "]")));
     }
 
     @AfterEach
     @SneakyThrows(IOException.class)
     public void after() {
         verify(cli, atLeast(0)).execute(any(ModelNode.class), any(OperationMessageHandler.class));
-        verifyCli(readDeploymentRequest("*"), atLeast(0));
-        verifyCli(readLoggerRequest("*"), atLeast(0));
-        verifyCli(readDatasourceRequest("*", true), atLeast(0));
-        verifyCli(readDatasourceRequest("*", false), atLeast(0));
-        Arrays.stream(LogHandlerType.values()).forEach(type ->
-            verifyCli(readLogHandlerRequest(type, "*"), atLeast(0)));
+        verify(cli, atLeast(0)).execute(argThat(isUpload()), any(OperationMessageHandler.class));
+        verify(cli, atLeast(0)).close();
 
         verifyNoMoreInteractions(cli);
     }
 
-    @SneakyThrows(IOException.class)
-    private void verifyCli(ModelNode request, VerificationMode mode) {
-        verify(cli, mode).execute(eq(request), any(OperationMessageHandler.class));
-    }
-
     void verifyWriteAttribute(ModelNode address, String name, String value) {
         verifyWriteAttribute(address, name, ModelNode::set, value);
     }
@@ -344,18 +490,6 @@ public abstract class AbstractDeployerTests {
         assertThat(capturedOperations()).describedAs(capturedOperationsDescription()).haveExactly(1, step(op));
     }
 
-    private static ModelNode notDeployedNode(String subsystem, Object type, Object name) {
-        //noinspection SpellCheckingInspection
-        return ModelNode.fromString("{\n"
-                                    + "    \"outcome\" => \"failed\",\n"
-                                    + "    \"failure-description\" => \"WFLYCTL0216: Management resource '[\n"
-                                    + ((subsystem == null) ? "" : "    (\\\"subsystem\\\" => \\\"" + subsystem + "\\\"),\n")
-                                    + "    (\\\"" + type + "\\\" => \\\"" + name + "\\\")\n"
-                                    + "]' not found\",\n"
-                                    + "    \"rolled-back\" => true\n"
-                                    + "}");
-    }
-
 
     @SneakyThrows(IOException.class) void givenConfiguredRootBundle(String key, String value) {
         boundary.rootBundleConfig = YAML.readValue(key + ": " + value, RootBundleConfig.class);
@@ -417,10 +551,6 @@ public abstract class AbstractDeployerTests {
         ArtifactFixtureBuilder(ArtifactType type, String name) {
             this.type = type;
             this.name = name;
-
-            whenCli(readDeploymentRequest(fullName())).thenRaw(() -> (deployed == null)
-                ? notDeployedNode(null, "deployment", name)
-                : toModelNode("{" + deployed.deployedNode() + "}"));
         }
 
         private String fullName() {return deploymentName() + ((this.type == war) ? ".war" : "");}
@@ -456,6 +586,8 @@ public abstract class AbstractDeployerTests {
             @NonNull @Getter private final Version version;
             @Getter private Checksum checksum;
             private String contents;
+            private boolean corrupted;
+            private int downloads;
 
             ArtifactFixture(Version version) {
                 this.version = version;
@@ -512,7 +644,18 @@ public abstract class AbstractDeployerTests {
                 return this;
             }
 
-            ArtifactFixture containing(String contents) {this.contents = contents; return this;}
+            int downloads() {return downloads;}
+
+            ArtifactFixture containing(String contents) {
+                this.contents = contents;
+                return checksum(Checksum.sha1(contents.getBytes())); // so the download can be verified
+            }
+
+            /** The download doesn't match the checksum, so reading it fails at the end, as the repository verifies it */
+            ArtifactFixture corrupted() {
+                this.corrupted = true;
+                return this;
+            }
 
             ArtifactFixture pinned() {
                 givenPinned("deployables", name);
@@ -523,16 +666,18 @@ public abstract class AbstractDeployerTests {
                 if (deployed != null)
                     throw new RuntimeException("already have deployed " + name + ":" + version);
                 deployed = this;
-                allDeployments.add("{" + deploymentAddress() + deployedNode() + "}");
+                allDeployments.add(() -> "{" + deploymentAddress() + deployedNode() + "}");
                 return this;
             }
 
-            private String deploymentAddress() {return address(null, "deployment", name);}
+            private String deploymentAddress() {return address(null, "deployment", fullName());}
 
             InputStream inputStream() {
-                return (contents == null)
+                downloads++;
+                InputStream inputStream = (contents == null)
                     ? inputStreamFor(deploymentName(), version)
                     : new StringInputStream(contents);
+                return corrupted ? new CorruptedInputStream(inputStream, checksum) : inputStream;
             }
 
             public Artifact artifact() {
@@ -580,6 +725,17 @@ public abstract class AbstractDeployerTests {
                 assertThat(boundary.audits.getAudits()).contains(addedAudit());
             }
 
+            void verifyDeployedByHash() {
+                ModelNode request = createOperation(ADD, addressNode());
+                request.get("enabled").set(true);
+                request.get("content").add(new ModelNode().set("hash", checksum.getBytes()));
+                assertThat(capturedOperations()).describedAs(capturedOperationsDescription())
+                    .haveExactly(1, step(request))
+                    .allMatch(operation -> operation.getInputStreams().isEmpty(), "no upload");
+
+                assertThat(boundary.audits.getAudits()).contains(addedAudit());
+            }
+
             Audit addedAudit() {
                 return artifactAudit()
                     .change("group-id", null, groupId)
@@ -613,12 +769,22 @@ public abstract class AbstractDeployerTests {
                     .haveExactly(1, step(request));
             }
 
+            void verifyRedeployedByHash() {
+                ModelNode request = createOperation("full-replace-deployment", new ModelNode().setEmptyList());
+                request.get("name").set(fullName());
+                request.get("content").add(new ModelNode().set("hash", checksum.getBytes()));
+                request.get("enabled").set(true);
+                assertThat(capturedOperations()).describedAs(capturedOperationsDescription())
+                    .haveExactly(1, step(request))
+                    .allMatch(operation -> operation.getInputStreams().isEmpty(), "no upload");
+            }
+
             void verifyRemoved() {
                 verifyUndeployExecuted();
                 assertThat(boundary.audits.getAudits()).contains(removedAudit());
             }
 
-            private void verifyUndeployExecuted() {
+            void verifyUndeployExecuted() {
                 ModelNode undeploy = toModelNode(""
                                                  + "{\n"
                                                  + "    'operation' => 'undeploy',\n"
@@ -665,10 +831,10 @@ public abstract class AbstractDeployerTests {
             .map(ModelNode::toString).collect(joining("\n"));
     }
 
-    @SneakyThrows(IOException.class) List<Operation> capturedOperations() {
+    List<Operation> capturedOperations() {
         if (operations == null) {
             ArgumentCaptor<Operation> captor = ArgumentCaptor.forClass(Operation.class);
-            verify(cli, atLeastOnce()).execute(captor.capture(), any(OperationMessageHandler.class));
+            verify(cli, atLeastOnce()).executeAsync(captor.capture(), any(OperationMessageHandler.class));
             operations = captor.getAllValues();
         }
         return operations;
@@ -689,10 +855,6 @@ public abstract class AbstractDeployerTests {
 
         LoggerFixture(@NonNull String category) {
             this.category = LoggerCategory.of(category);
-
-            whenCli(readLoggerRequest(category)).thenRaw(() -> deployed
-                ? toModelNode("{" + deployedNode() + "}")
-                : notDeployedNode("logging", "logger", category));
         }
 
         @Override public String toString() {return "Logger:" + category;}
@@ -734,7 +896,7 @@ public abstract class AbstractDeployerTests {
 
         LoggerFixture deployed() {
             this.deployed = true;
-            allLoggers.add("{" + loggerAddress() + deployedNode() + "}");
+            allLoggers.add(() -> "{" + loggerAddress() + deployedNode() + "}");
             return this;
         }
 
@@ -872,10 +1034,6 @@ public abstract class AbstractDeployerTests {
             this.name = new LogHandlerName(name);
             this.expectedAudit = new LogHandlerAudit().type(this.type).name(this.name);
             this.suffix = (type == periodicRotatingFile) ? DEFAULT_SUFFIX : null;
-
-            whenCli(readLogHandlerRequest(type, name)).thenRaw(() -> deployed
-                ? toModelNode("{" + deployedNode() + "}")
-                : notDeployedNode("logging", type.getHandlerTypeName(), name));
         }
 
         String deployedNode() {
@@ -968,7 +1126,7 @@ public abstract class AbstractDeployerTests {
         LogHandlerFixture deployed() {
             this.deployed = true;
             allLogHandlers.computeIfAbsent(type, t -> new ArrayList<>())
-                .add("{" + logHandlerAddress() + deployedNode() + "}");
+                .add(() -> "{" + logHandlerAddress() + deployedNode() + "}");
             return this;
         }
 
@@ -1140,13 +1298,6 @@ public abstract class AbstractDeployerTests {
             this.uri = "jdbc:h2:mem:" + name;
             this.jndiName = "java:/datasources/" + name;
             this.driver = "h2";
-
-            whenCli(readDatasourceRequest(name, true)).thenRaw(() -> xa && deployed
-                ? toModelNode("{" + deployedNode() + "}")
-                : notDeployedNode("datasources", dataSource(xa), name));
-            whenCli(readDatasourceRequest(name, false)).thenRaw(() -> !xa && deployed
-                ? toModelNode("{" + deployedNode() + "}")
-                : notDeployedNode("datasources", dataSource(xa), name));
         }
 
         String deployedNode() {
@@ -1244,7 +1395,7 @@ public abstract class AbstractDeployerTests {
 
         DataSourceFixture deployed() {
             this.deployed = true;
-            (xa ? allXaDataSources : allNonXaDataSources).add("{" + dataSourceAddress() + deployedNode() + "}");
+            (xa ? allXaDataSources : allNonXaDataSources).add(() -> "{" + dataSourceAddress() + deployedNode() + "}");
             return this;
         }
 
@@ -1467,13 +1618,14 @@ public abstract class AbstractDeployerTests {
 
         abstract Condition<Audit> forThisArtifact();
 
-        @SneakyThrows(IOException.class) void verifyNoOperation() {verify(cli, never()).execute(argThat(operationOnThis()), any(OperationMessageHandler.class));}
+        void verifyNoOperation() {verify(cli, never()).executeAsync(argThat(operationOnThis()), any(OperationMessageHandler.class));}
 
         @NotNull private ArgumentMatcher<Operation> operationOnThis() {
             return new ArgumentMatcher<>() {
                 @Override public boolean matches(Operation op) {
                     ModelNode operation = op.getOperation();
                     assert operation.get(OP).asString().equals(COMPOSITE);
+
                     assert operation.get(ADDRESS).asList().isEmpty();
                     List<ModelNode> steps = operation.get(STEPS).asList();
                     return steps.stream().anyMatch(step -> matchAddress(step.get(ADDRESS)));
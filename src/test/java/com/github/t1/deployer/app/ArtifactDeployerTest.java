@@ -1,17 +1,33 @@
 package com.github.t1.deployer.app;
 
 import com.github.t1.deployer.app.AbstractDeployerTests.ArtifactFixtureBuilder.ArtifactFixture;
+import com.github.t1.deployer.container.BatchProgress;
+import com.github.t1.deployer.container.BatchProgress.Step;
 import com.github.t1.deployer.model.Expressions.VariableName;
+import com.github.t1.deployer.repository.CacheCounts;
+import com.github.t1.deployer.repository.ChecksumMismatchException;
+import com.github.t1.problemdetail.Status;
 import com.google.common.collect.ImmutableMap;
+import org.jboss.dmr.ModelNode;
 import org.junit.jupiter.api.Test;
 import org.mockito.junit.jupiter.MockitoSettings;
 
+import javax.ejb.SessionContext;
 import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.Response;
 import java.util.HashMap;
 import java.util.Map;
 
+import static com.github.t1.deployer.app.FleetResponse.State.applied;
+import static com.github.t1.deployer.container.BatchProgress.State.succeeded;
+import static javax.ws.rs.core.Response.Status.BAD_GATEWAY;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.jboss.as.controller.client.helpers.Operations.createAddress;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.mockito.quality.Strictness.LENIENT;
 
 @MockitoSettings(strictness = LENIENT)
@@ -29,6 +45,21 @@ class ArtifactDeployerTest extends AbstractDeployerTests {
         foo.verifyDeployed();
     }
 
+    @Test void shouldAuditChecksumCacheCounts() {
+        givenChecksumCacheCounts(new CacheCounts(3, 1));
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.2");
+
+        deployWithRootBundle(""
+            + "deployables:\n"
+            + "  foo:\n"
+            + "    group-id: org.foo\n"
+            + "    version: 1.3.2\n"
+        );
+
+        foo.verifyDeployed();
+        assertThat(boundary.audits.getChecksumCache()).isEqualTo(new CacheCounts(3, 1));
+    }
+
     @Test void shouldDeployWebArchiveWithExplicitStateVariable() {
         givenConfiguredVariable("foo.state", "deployed");
         ArtifactFixture foo = givenArtifact("foo").version("1.3.2");
@@ -198,8 +229,8 @@ class ArtifactDeployerTest extends AbstractDeployerTests {
     }
 
     @Test void shouldUpdateWebArchiveWithCorrectChecksum() {
-        givenArtifact("foo").version("1.3.1").deployed();
-        ArtifactFixture foo = givenArtifact("foo").version("1.3.2");
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.1").deployed()
+            .and().version("1.3.2");
 
         deployWithRootBundle(""
             + "deployables:\n"
@@ -209,7 +240,7 @@ class ArtifactDeployerTest extends AbstractDeployerTests {
             + "    checksum: " + foo.getChecksum() + "\n"
         );
 
-        foo.verifyDeployed();
+        foo.verifyRedeployed();
     }
 
     @Test void shouldFailToUpdateWebArchiveWithIncorrectChecksum() {
@@ -467,6 +498,179 @@ class ArtifactDeployerTest extends AbstractDeployerTests {
         foo.verifyRemoved();
     }
 
+    @Test void shouldReadOnlyAttributesOfDeployments() {
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.2").deployed();
+
+        deployWithRootBundle(""
+            + "deployables:\n"
+            + "  foo:\n"
+            + "    group-id: org.foo\n"
+            + "    version: 1.3.2\n");
+
+        foo.verifyUnchanged();
+        ModelNode step = capturedSnapshotStep(createAddress("deployment", "*"));
+        assertThat(step.get("attributes-only").asBoolean()).isTrue();
+        assertThat(step.has("recursive")).isFalse();
+    }
+
+    @Test void shouldStageContentBeforeDeploying() {
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.2").containing("foo-content");
+
+        deployWithRootBundle(""
+            + "deployables:\n"
+            + "  foo:\n"
+            + "    group-id: org.foo\n"
+            + "    version: 1.3.2\n");
+
+        foo.verifyDeployedByHash();
+        assertThat(capturedUploads()).hasSize(1);
+    }
+
+    @Test void shouldUploadStagedContentWithBatchWhenItMayHaveBeenRemoved() {
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.2").containing("foo-content");
+        givenStagedContentExpires();
+
+        deployWithRootBundle(""
+            + "deployables:\n"
+            + "  foo:\n"
+            + "    group-id: org.foo\n"
+            + "    version: 1.3.2\n");
+
+        foo.verifyDeployed();
+        assertThat(capturedUploads()).hasSize(1);
+    }
+
+    @Test void shouldUploadContentWithBatchWhenStagingFails() {
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.2");
+
+        deployWithRootBundle(""
+            + "deployables:\n"
+            + "  foo:\n"
+            + "    group-id: org.foo\n"
+            + "    version: 1.3.2\n");
+
+        foo.verifyDeployed();
+        assertThat(capturedUploads()).hasSize(1);
+    }
+
+    @Test void shouldNotStageContentThatIsDeployedAlready() {
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.2").deployed();
+
+        deployWithRootBundle(""
+            + "deployables:\n"
+            + "  foo:\n"
+            + "    group-id: org.foo\n"
+            + "    version: 1.3.2\n");
+
+        foo.verifyUnchanged();
+        assertThat(capturedUploads()).isEmpty();
+    }
+
+    @Test void shouldReportProgressOfBatch() {
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.2");
+
+        deployWithRootBundle(""
+            + "deployables:\n"
+            + "  foo:\n"
+            + "    group-id: org.foo\n"
+            + "    version: 1.3.2\n");
+
+        foo.verifyDeployed();
+        BatchProgress progress = boundary.getProgress();
+        assertThat(progress.getState()).isEqualTo(succeeded);
+        assertThat(progress.getSteps()).extracting(Step::getOperation, Step::getAddress)
+            .containsExactly(tuple("add", "/deployment=foo.war"));
+    }
+
+    @Test void shouldAcceptAsyncPostAndApplyInBackground() {
+        DeployerBoundary async = mock(DeployerBoundary.class);
+        boundary.context = mock(SessionContext.class);
+        when(boundary.context.getBusinessObject(DeployerBoundary.class)).thenReturn(async);
+
+        Response response = boundary.postAsync(ImmutableMap.of("foo", "bar"));
+
+        assertThat(response.getStatus()).isEqualTo(202);
+        assertThat(response.getLocation()).hasToString("progress");
+        verify(async).applyPostAsync(ImmutableMap.of(new VariableName("foo"), "bar"));
+    }
+
+    @Test void shouldFailAndRollBackWhenUploadedContentDoesNotMatchChecksum() {
+        givenContainerReadsInputStreams();
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.2").containing("foo-content").corrupted();
+
+        Throwable thrown = catchThrowable(() -> deployWithRootBundle(""
+            + "deployables:\n"
+            + "  foo:\n"
+            + "    group-id: org.foo\n"
+            + "    version: 1.3.2\n"));
+
+        assertThat(thrown).isInstanceOf(ChecksumMismatchException.class)
+            .hasMessageContaining("expected [" + foo.getChecksum() + "]");
+        assertThat(ChecksumMismatchException.class.getAnnotation(Status.class).value()).isEqualTo(BAD_GATEWAY);
+        assertThat(capturedOperations()).hasSize(1)
+            .allMatch(operation -> operation.getInputStreams().size() == 1, "uploaded with the batch");
+        assertThat(boundary.audits.getProcessState()).describedAs("not applied").isNull();
+        assertThat(catchThrowable(this::startAnotherBatch)).describedAs("rolled back").isNull();
+    }
+
+    @Test void shouldDeployUnrelatedWebArchivesInSeparateCompositesWhenNotAtomic() {
+        givenNonAtomicBatch();
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.2");
+        ArtifactFixture bar = givenArtifact("bar").version("2.0");
+
+        deployWithRootBundle(""
+            + "deployables:\n"
+            + "  foo:\n"
+            + "    group-id: org.foo\n"
+            + "    version: 1.3.2\n"
+            + "  bar:\n"
+            + "    group-id: org.bar\n"
+            + "    version: 2.0\n");
+
+        foo.verifyDeployed();
+        bar.verifyDeployed();
+        assertThat(capturedOperations()).hasSize(2)
+            .allMatch(operation -> operation.getInputStreams().size() == 1, "one upload each");
+    }
+
+    @Test void shouldDeployToAllNodesOfFleetWithOneDownload() {
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.2").containing("foo-content");
+        BatchProgress progress = boundary.getProgress();
+
+        FleetResponse response = deployToFleetWithRootBundle(""
+            + "deployables:\n"
+            + "  foo:\n"
+            + "    group-id: org.foo\n"
+            + "    version: 1.3.2\n", "node-1", "node-2");
+
+        assertThat(response.getNodes()).containsOnlyKeys("node-1", "node-2");
+        assertThat(response.getNodes().values()).allSatisfy(node -> {
+            assertThat(node.getState()).isEqualTo(applied);
+            assertThat(node.getAudits().getAudits()).containsExactly(foo.addedAudit());
+        });
+        assertThat(boundary.audits.getAudits()).isEmpty();
+        assertThat(capturedOperations()).hasSize(2);
+        assertThat(capturedUploads()).hasSize(2);
+        assertThat(foo.downloads()).isEqualTo(1);
+        assertThat(boundary.getProgress()).describedAs("nodes don't report progress").isSameAs(progress);
+    }
+
+    @Test void shouldResolveArtifactsForFleetNodesOnRequestThread() {
+        ArtifactFixture foo = givenArtifact("foo").version("1.3.2").containing("foo-content");
+        givenRequestScopedPrefetch();
+
+        FleetResponse response = deployToFleetWithRootBundle(""
+            + "deployables:\n"
+            + "  foo:\n"
+            + "    group-id: org.foo\n"
+            + "    version: 1.3.2\n", "node-1");
+
+        assertThat(response.getNodes().get("node-1").getFailure()).isNull();
+        assertThat(response.getNodes().get("node-1").getState()).isEqualTo(applied);
+        assertThat(response.getNodes().get("node-1").getAudits().getAudits()).containsExactly(foo.addedAudit());
+        assertThat(capturedOperations()).hasSize(1);
+    }
+
     @Test void shouldUndeployWebArchiveWhenManaged() {
         givenManaged("all");
         ArtifactFixture foo = givenArtifact("foo").version("1.3.2").deployed();
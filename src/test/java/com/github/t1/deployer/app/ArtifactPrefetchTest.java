@@ -0,0 +1,155 @@
+package com.github.t1.deployer.app;
+
+import com.github.t1.deployer.model.Artifact;
+import com.github.t1.deployer.model.ArtifactId;
+import com.github.t1.deployer.model.ArtifactType;
+import com.github.t1.deployer.model.BundleName;
+import com.github.t1.deployer.model.BundlePlan;
+import com.github.t1.deployer.model.Checksum;
+import com.github.t1.deployer.model.Classifier;
+import com.github.t1.deployer.model.DeployablePlan;
+import com.github.t1.deployer.model.DeploymentName;
+import com.github.t1.deployer.model.GroupId;
+import com.github.t1.deployer.model.Plan;
+import com.github.t1.deployer.model.Version;
+import com.github.t1.deployer.repository.Repository;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.NotFoundException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import static com.github.t1.deployer.model.ArtifactType.bundle;
+import static com.github.t1.deployer.model.ArtifactType.war;
+import static com.github.t1.deployer.model.DeploymentState.undeployed;
+import static com.github.t1.deployer.testtools.TestData.EXECUTOR;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class ArtifactPrefetchTest {
+    private static final GroupId GROUP_ID = new GroupId("org.foo");
+    private static final Version VERSION = new Version("1.0");
+
+    private final List<String> resolved = new CopyOnWriteArrayList<>();
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private CountDownLatch latch = new CountDownLatch(0);
+
+    private final ArtifactPrefetch prefetch = new ArtifactPrefetch();
+
+    {
+        prefetch.executor = EXECUTOR;
+        prefetch.repository = new Repository() {
+            @Override public Artifact searchByChecksum(Checksum checksum) { throw new UnsupportedOperationException(); }
+
+            @Override protected Artifact lookupArtifact(GroupId groupId, ArtifactId artifactId, Version version,
+                                                        ArtifactType type, Classifier classifier) {
+                resolved.add(artifactId + ":" + type);
+                threads.add(Thread.currentThread());
+                latch.countDown();
+                await();
+                if (artifactId.getValue().equals("unknown"))
+                    throw new NotFoundException("not in repository: " + artifactId);
+                if (artifactId.getValue().equals("outer"))
+                    resolve("inner", type);
+                return new Artifact().setGroupId(groupId).setArtifactId(artifactId).setVersion(version).setType(type);
+            }
+
+            @Override public List<Version> listVersions(GroupId groupId, ArtifactId artifactId, boolean snapshot) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private void await() {
+        try {
+            assertThat(latch.await(5, SECONDS)).describedAs("all resolved in parallel").isTrue();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static DeployablePlan deployable(String name) {
+        return new DeployablePlan(new DeploymentName(name))
+            .setGroupId(GROUP_ID).setArtifactId(new ArtifactId(name)).setVersion(VERSION).setType(war);
+    }
+
+    private static BundlePlan bundlePlan(String name) {
+        return new BundlePlan(new BundleName(name))
+            .setGroupId(GROUP_ID).setArtifactId(new ArtifactId(name)).setVersion(VERSION);
+    }
+
+    private Artifact resolve(String artifactId, ArtifactType type) {
+        return prefetch.resolveArtifact(GROUP_ID, new ArtifactId(artifactId), VERSION, type, null);
+    }
+
+    @Test void shouldPrefetchDeployablesAndBundlesInParallel() {
+        Plan plan = new Plan();
+        plan.addDeployable(deployable("foo"));
+        plan.addDeployable(deployable("bar"));
+        plan.addBundle(bundlePlan("baz"));
+        latch = new CountDownLatch(3);
+
+        prefetch.prefetch(plan);
+
+        assertThat(resolve("foo", war).getArtifactId()).isEqualTo(new ArtifactId("foo"));
+        assertThat(resolve("bar", war).getArtifactId()).isEqualTo(new ArtifactId("bar"));
+        assertThat(resolve("baz", bundle).getArtifactId()).isEqualTo(new ArtifactId("baz"));
+        assertThat(resolved).containsExactlyInAnyOrder("foo:war", "bar:war", "baz:bundle");
+        assertThat(threads).hasSize(3).doesNotContain(Thread.currentThread());
+    }
+
+    @Test void shouldNotPrefetchUndeployedOrCurrentDeployables() {
+        Plan plan = new Plan();
+        plan.addDeployable(deployable("foo").setState(undeployed));
+        plan.addDeployable(deployable("bar").setVersion(new Version("CURRENT")));
+        plan.addDeployable(deployable("baz"));
+
+        prefetch.prefetch(plan);
+
+        assertThat(resolved).isEmpty();
+    }
+
+    @Test void shouldRememberResolvedArtifact() {
+        Artifact first = resolve("foo", war);
+
+        Artifact second = resolve("foo", war);
+
+        assertThat(second).isSameAs(first);
+        assertThat(resolved).containsExactly("foo:war");
+        assertThat(threads).containsExactly(Thread.currentThread());
+    }
+
+    @Test void shouldResolveArtifactWhileResolvingAnother() {
+        Artifact outer = resolve("outer", war);
+
+        assertThat(outer.getArtifactId()).isEqualTo(new ArtifactId("outer"));
+        assertThat(resolved).containsExactly("outer:war", "inner:war");
+        assertThat(resolve("inner", war)).isNotNull();
+        assertThat(resolved).hasSize(2);
+    }
+
+    @Test void shouldRememberFailureToResolve() {
+        Throwable first = catchThrowable(() -> resolve("unknown", war));
+
+        Throwable second = catchThrowable(() -> resolve("unknown", war));
+
+        assertThat(second).isSameAs(first).isInstanceOf(NotFoundException.class);
+        assertThat(resolved).containsExactly("unknown:war");
+    }
+
+    @Test void shouldRethrowPrefetchFailure() {
+        Plan plan = new Plan();
+        plan.addDeployable(deployable("foo"));
+        plan.addDeployable(deployable("unknown"));
+        latch = new CountDownLatch(2);
+        prefetch.prefetch(plan);
+
+        Throwable thrown = catchThrowable(() -> resolve("unknown", war));
+
+        assertThat(thrown).isInstanceOf(NotFoundException.class).hasMessage("not in repository: unknown");
+    }
+}
@@ -2,6 +2,7 @@ package com.github.t1.deployer.app;
 
 import com.github.t1.deployer.app.AbstractDeployerTests.ArtifactFixtureBuilder.ArtifactFixture;
 import com.github.t1.deployer.app.ArtifactDeployer.PlannedUndeployChecksumMismatchException;
+import com.github.t1.deployer.app.Audits.BundleTiming;
 import com.github.t1.deployer.model.Checksum;
 import com.github.t1.deployer.model.Expressions.UnresolvedVariableException;
 import com.github.t1.deployer.tools.CipherService;
@@ -24,6 +25,7 @@ import static com.github.t1.log.LogLevel.DEBUG;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.api.Assertions.catchThrowableOfType;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.quality.Strictness.LENIENT;
 
 @MockitoSettings(strictness = LENIENT)
@@ -749,9 +751,44 @@ class BundleDeployerTest extends AbstractDeployerTests {
         );
 
         foo.verifyUnchanged();
+        bar.verifyDeployedByHash();
+    }
+
+    @Test void shouldUploadWebArchiveWithSameChecksumAsUndeployedWebArchive() {
+        ArtifactFixture foo = givenArtifact("foo").version("1").deployed();
+        ArtifactFixture bar = givenArtifact("bar", "org.foo", "foo-war").version("1").checksum(foo.getChecksum());
+
+        deployWithRootBundle(""
+            + "deployables:\n"
+            + "  foo:\n"
+            + "    group-id: org.foo\n"
+            + "    version: 1\n"
+            + "    state: undeployed\n"
+            + "  bar:\n"
+            + "    group-id: org.foo\n"
+            + "    artifact-id: foo-war\n"
+            + "    version: 1\n"
+        );
+
+        foo.verifyUndeployExecuted();
         bar.verifyDeployed();
     }
 
+    @Test void shouldRedeployWebArchiveWithContentOfOtherDeployment() {
+        ArtifactFixture foo = givenArtifact("foo").version("1").deployed()
+            .and().version("2");
+        givenArtifact("bar", "org.bar", "bar-war").version("1").checksum(foo.getChecksum()).deployed();
+
+        deployWithRootBundle(""
+            + "deployables:\n"
+            + "  foo:\n"
+            + "    group-id: org.foo\n"
+            + "    version: 2\n"
+        );
+
+        foo.verifyRedeployedByHash();
+    }
+
 
     @Test void shouldNotDeployWebArchiveWithSameNameButDifferentGroup() {
         ArtifactFixture foo = givenArtifact("foo").version("1").deployed();
@@ -1092,6 +1129,32 @@ class BundleDeployerTest extends AbstractDeployerTests {
         mockserver.verifyDeployed();
     }
 
+    @Test void shouldReadContainerOnceForBundle() {
+        LoggerFixture logger = givenLogger("org.jolokia.jolokia").level(DEBUG).deployed();
+        ArtifactFixture jolokia = givenArtifact("jolokia", "org.jolokia", "jolokia-war").version("1.3.2").deployed();
+        givenArtifact(bundle, "artifact-deployer-test", "some-bundle")
+            .version("1")
+            .containing(""
+                + "loggers:\n"
+                + "  org.jolokia.jolokia:\n"
+                + "    level: DEBUG\n"
+                + "deployables:\n"
+                + "  jolokia:\n"
+                + "    group-id: org.jolokia\n"
+                + "    artifact-id: jolokia-war\n"
+                + "    version: 1.3.2\n");
+
+        deployWithRootBundle(""
+            + "bundles:\n"
+            + "  some-bundle:\n"
+            + "    group-id: artifact-deployer-test\n"
+            + "    version: 1\n");
+
+        logger.verifyUnchanged();
+        jolokia.verifyUnchanged();
+        verifyContainerReadOnce();
+    }
+
 
     @Test void shouldDeployBundleWithSystemParam() {
         givenConfiguredVariable("jolokia.version", "1.3.3");
@@ -1161,6 +1224,59 @@ class BundleDeployerTest extends AbstractDeployerTests {
     }
 
 
+    @Test void shouldDeployInstancesOfBundlesInOrderAndAuditTimings() {
+        ArtifactFixture foo = givenArtifact("foo", "org.foo", "foo-war").version("1");
+        ArtifactFixture bar = givenArtifact("bar", "org.bar", "bar-war").version("1");
+        ArtifactFixture jolokia = givenArtifact("jolokia", "org.jolokia", "jolokia-war").version("1.3.3");
+        givenArtifact(bundle, "artifact-deployer-test", "bundle-with-instances")
+            .version("1")
+            .containing(""
+                + "deployables:\n"
+                + "  ${name}:\n"
+                + "    group-id: org.${name}\n"
+                + "    artifact-id: ${name}-war\n"
+                + "    version: 1\n");
+        givenArtifact(bundle, "artifact-deployer-test", "bundle-with-passed-param")
+            .version("1")
+            .containing(""
+                + "deployables:\n"
+                + "  jolokia:\n"
+                + "    group-id: org.jolokia\n"
+                + "    artifact-id: jolokia-war\n"
+                + "    version: ${v}\n");
+
+        deployWithRootBundle(""
+            + "bundles:\n"
+            + "  bundle-with-instances:\n"
+            + "    group-id: artifact-deployer-test\n"
+            + "    version: 1\n"
+            + "    instances:\n"
+            + "      foo:\n"
+            + "      bar:\n"
+            + "  bundle-with-passed-param:\n"
+            + "    group-id: artifact-deployer-test\n"
+            + "    version: 1\n"
+            + "    instances:\n"
+            + "      jolokia:\n"
+            + "        v: 1.3.3\n");
+
+        assertThat(steps()).extracting(step -> step.get("address").get(0).get("deployment").asString())
+            .containsExactly("foo.war", "bar.war", "jolokia.war");
+        assertThat(boundary.audits.getAudits()).containsExactly(
+            foo.addedAudit(), bar.addedAudit(), jolokia.addedAudit());
+        assertThat(boundary.audits.getBundles())
+            .extracting(BundleTiming::getName, BundleTiming::getInstance)
+            .containsExactly(
+                tuple("bundle-with-instances", "foo"),
+                tuple("bundle-with-instances", "bar"),
+                tuple("bundle-with-passed-param", "jolokia"));
+        assertThat(boundary.audits.getBundles()).allSatisfy(timing -> {
+            assertThat(timing.getResolveMillis()).isNotNegative();
+            assertThat(timing.getLoadMillis()).isNotNegative();
+        });
+    }
+
+
     @Test void shouldDeployLatestBundle() {
         ArtifactFixture latest = givenArtifact("jolokia", "org.jolokia", "jolokia-war")
             .version("1.3.2").and()
@@ -1,12 +1,14 @@
 package com.github.t1.deployer.app;
 
 import com.github.t1.deployer.container.Container;
+import com.github.t1.deployer.model.Age;
 import com.github.t1.deployer.model.ArtifactId;
 import com.github.t1.deployer.model.Classifier;
 import com.github.t1.deployer.model.Expressions.VariableName;
 import com.github.t1.deployer.model.GroupId;
 import com.github.t1.deployer.model.RootBundleConfig;
 import com.github.t1.deployer.model.Version;
+import com.github.t1.deployer.repository.MirrorConfig;
 import com.github.t1.deployer.repository.RepositoryType;
 import com.github.t1.deployer.tools.KeyStoreConfig;
 import com.github.t1.deployer.tools.Password;
@@ -26,6 +28,8 @@ import static com.github.t1.deployer.app.Trigger.fileChange;
 import static com.github.t1.deployer.app.Trigger.post;
 import static com.github.t1.deployer.app.Trigger.startup;
 import static com.github.t1.deployer.repository.RepositoryType.artifactory;
+import static com.github.t1.deployer.repository.RepositoryType.mavenCentral;
+import static com.github.t1.deployer.repository.RepositoryType.mavenLocal;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
@@ -204,6 +208,89 @@ class ConfigTest {
         assertThat(producer.repositoryReleases()).isEqualTo("release");
     }
 
+    @Test void shouldLoadConfigFileWithCache() {
+        configFile.write(""
+            + "repository:\n"
+            + "  cache:\n"
+            + "    path: /tmp/artifact-cache\n"
+            + "    max-megabytes: 200\n");
+
+        ConfigProducer producer = loadConfig();
+
+        assertThat(producer.repositoryCache().getPath()).isEqualTo("/tmp/artifact-cache");
+        assertThat(producer.repositoryCache().getMaxMegabytes()).isEqualTo(200);
+    }
+
+    @Test void shouldLoadConfigFileWithChecksumCache() {
+        configFile.write(""
+            + "repository:\n"
+            + "  checksum-cache:\n"
+            + "    max-entries: 50\n"
+            + "    positive-ttl: 5 min\n"
+            + "    negative-ttl: 10 s\n");
+
+        ConfigProducer producer = loadConfig();
+
+        assertThat(producer.repositoryChecksumCache().getMaxEntries()).isEqualTo(50);
+        assertThat(producer.repositoryChecksumCache().getPositiveTtl()).isEqualTo(Age.ofMinutes(5));
+        assertThat(producer.repositoryChecksumCache().getNegativeTtl()).isEqualTo(new Age("10 s"));
+    }
+
+    @Test void shouldLoadConfigFileWithTransport() {
+        configFile.write(""
+            + "repository:\n"
+            + "  transport:\n"
+            + "    pool-size: 40\n"
+            + "    connect-timeout: 5 s\n"
+            + "    read-timeout: 2 min\n"
+            + "    keep-alive: 30 s\n"
+            + "    gzip: false\n");
+
+        ConfigProducer producer = loadConfig();
+
+        assertThat(producer.repositoryTransport().getPoolSize()).isEqualTo(40);
+        assertThat(producer.repositoryTransport().getConnectTimeout()).isEqualTo(new Age("5 s"));
+        assertThat(producer.repositoryTransport().getReadTimeout()).isEqualTo(Age.ofMinutes(2));
+        assertThat(producer.repositoryTransport().getKeepAlive()).isEqualTo(new Age("30 s"));
+        assertThat(producer.repositoryTransport().getGzip()).isFalse();
+    }
+
+    @Test void shouldLoadConfigFileWithMirrorsAndHedging() {
+        configFile.write(""
+            + "repository:\n"
+            + "  type: artifactory\n"
+            + "  mirrors:\n"
+            + "  - type: mavenCentral\n"
+            + "  - type: mavenLocal\n"
+            + "    uri: /var/maven\n"
+            + "  hedging:\n"
+            + "    percentile: 90\n"
+            + "    delay: 200 ms\n"
+            + "    unhealthy: 1 min\n");
+
+        ConfigProducer producer = loadConfig();
+
+        assertThat(producer.repositoryMirrors()).containsExactly(
+            new MirrorConfig().setType(mavenCentral),
+            new MirrorConfig().setType(mavenLocal).setUri(URI.create("/var/maven")));
+        assertThat(producer.repositoryHedging().getPercentile()).isEqualTo(90);
+        assertThat(producer.repositoryHedging().getDelay()).isEqualTo(new Age("200 ms"));
+        assertThat(producer.repositoryHedging().getUnhealthy()).isEqualTo(Age.ofMinutes(1));
+    }
+
+    @Test void shouldLoadConfigFileWithVersionsCache() {
+        configFile.write(""
+            + "repository:\n"
+            + "  versions-cache:\n"
+            + "    ttl: 5 min\n"
+            + "    refresh-after: 4 min\n");
+
+        ConfigProducer producer = loadConfig();
+
+        assertThat(producer.repositoryVersionsCache().getTtl()).isEqualTo(Age.ofMinutes(5));
+        assertThat(producer.repositoryVersionsCache().getRefreshAfter()).isEqualTo(Age.ofMinutes(4));
+    }
+
 
     @Test void shouldLoadConfigFileWithVariable() {
         configFile.write(""
@@ -0,0 +1,125 @@
+package com.github.t1.deployer.app;
+
+import com.github.t1.deployer.app.FleetResponse.Node;
+import com.github.t1.deployer.model.Checksum;
+import com.github.t1.deployer.repository.ArtifactCache;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.github.t1.deployer.app.FleetResponse.State.applied;
+import static com.github.t1.deployer.app.FleetResponse.State.failed;
+import static com.github.t1.deployer.app.FleetResponse.State.skipped;
+import static com.github.t1.deployer.model.ProcessState.running;
+import static com.github.t1.deployer.testtools.TestData.EXECUTOR;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FleetTest {
+    private static final AuditsResponse APPLIED = new AuditsResponse(emptyList(), null, running, null);
+
+    private final Map<String, URI> nodes = new LinkedHashMap<>();
+    private final List<URI> appliedNodes = new CopyOnWriteArrayList<>();
+
+    private FleetConfig givenNodes(int count) {
+        for (int i = 1; i <= count; i++)
+            nodes.put("node-" + i, URI.create("remote+http://node-" + i + ":9990"));
+        return new FleetConfig().setNodes(nodes);
+    }
+
+    private AuditsResponse apply(URI uri) {
+        appliedNodes.add(uri);
+        if (uri.getHost().equals("node-2"))
+            throw new IllegalStateException("node-2 is down");
+        return APPLIED;
+    }
+
+    @Test void shouldApplyToAllNodes() {
+        FleetConfig config = givenNodes(3);
+
+        FleetResponse response = new Fleet(config, EXECUTOR).apply(uri -> {
+            appliedNodes.add(uri);
+            return APPLIED;
+        });
+
+        assertThat(appliedNodes).containsExactlyInAnyOrderElementsOf(nodes.values());
+        assertThat(response.getNodes()).containsOnlyKeys("node-1", "node-2", "node-3");
+        assertThat(response.getNodes().values()).extracting(Node::getState).containsOnly(applied);
+    }
+
+    @Test void shouldApplyAllNodesOfFailingWave() {
+        FleetConfig config = givenNodes(3);
+
+        FleetResponse response = new Fleet(config, EXECUTOR).apply(this::apply);
+
+        assertThat(appliedNodes).hasSize(3);
+        assertThat(response.getNodes().get("node-1").getState()).isEqualTo(applied);
+        assertThat(response.getNodes().get("node-2").getState()).isEqualTo(failed);
+        assertThat(response.getNodes().get("node-2").getFailure())
+            .isEqualTo("java.lang.IllegalStateException: node-2 is down");
+        assertThat(response.getNodes().get("node-3").getState()).isEqualTo(applied);
+    }
+
+    @Test void shouldSkipLaterWavesAfterFailure() {
+        FleetConfig config = givenNodes(5).setWaveSize(2);
+
+        FleetResponse response = new Fleet(config, EXECUTOR).apply(this::apply);
+
+        assertThat(appliedNodes).containsExactlyInAnyOrder(nodes.get("node-1"), nodes.get("node-2"));
+        assertThat(response.getNodes().values()).extracting(Node::getState)
+            .containsExactly(applied, failed, skipped, skipped, skipped);
+    }
+
+    @Test void shouldLimitParallelism() {
+        FleetConfig config = givenNodes(6).setParallelism(2);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+
+        new Fleet(config, EXECUTOR).apply(uri -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                active.decrementAndGet();
+            }
+            return APPLIED;
+        });
+
+        assertThat(maxActive.get()).isEqualTo(2);
+    }
+
+    @Test void shouldDownloadSharedContentOnlyOnce() throws IOException {
+        ArtifactCache cache = ArtifactCache.temporary();
+        AtomicInteger downloads = new AtomicInteger();
+        Supplier<InputStream> shared = Fleet.shared(cache, Checksum.sha1("foo".getBytes()), () -> {
+            downloads.incrementAndGet();
+            return new ByteArrayInputStream("foo".getBytes());
+        });
+
+        try {
+            assertThat(read(shared)).isEqualTo("foo".getBytes());
+            assertThat(read(shared)).isEqualTo("foo".getBytes());
+        } finally {
+            cache.delete();
+        }
+
+        assertThat(downloads.get()).isEqualTo(1);
+    }
+
+    private static byte[] read(Supplier<InputStream> supplier) throws IOException {
+        try (InputStream inputStream = supplier.get()) {
+            return inputStream.readAllBytes();
+        }
+    }
+}
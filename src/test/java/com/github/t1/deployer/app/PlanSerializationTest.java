@@ -12,6 +12,7 @@ import com.github.t1.deployer.model.DeploymentName;
 import com.github.t1.deployer.model.Expressions;
 import com.github.t1.deployer.model.Expressions.Match;
 import com.github.t1.deployer.model.Expressions.Resolver;
+import com.github.t1.deployer.model.Expressions.VariableName;
 import com.github.t1.deployer.model.GroupId;
 import com.github.t1.deployer.model.LogHandlerName;
 import com.github.t1.deployer.model.LogHandlerPlan;
@@ -25,6 +26,13 @@ import org.junit.jupiter.api.Test;
 import java.io.StringReader;
 import java.net.URI;
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.github.t1.deployer.model.ArtifactType.war;
 import static com.github.t1.deployer.model.LogHandlerType.custom;
@@ -69,6 +77,25 @@ class PlanSerializationTest {
     }
 
 
+    @Test void shouldLoadPlansConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<Version>> loads = IntStream.range(0, 100).mapToObj(i -> (Callable<Version>) () ->
+                Plan.load(new Expressions().with(new VariableName("version"), "" + i),
+                        new StringReader("deployables:\n  foo:\n    group-id: org.foo\n    version: ${version}\n"), "load " + i)
+                    .deployables().findFirst().orElseThrow().getVersion())
+                .collect(Collectors.toList());
+
+            List<Future<Version>> versions = executor.invokeAll(loads);
+
+            for (int i = 0; i < versions.size(); i++)
+                assertThat(versions.get(i).get()).isEqualTo(new Version("" + i));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
     private static final String ONE_DEPLOYMENT_YAML = ""
         + "deployables:\n"
         + "  foo:\n"
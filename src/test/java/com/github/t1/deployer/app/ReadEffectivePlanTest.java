@@ -75,6 +75,18 @@ class ReadEffectivePlanTest extends AbstractDeployerTests {
     }
 
 
+    @Test void shouldReadContainerOnlyOnceForAllResources() {
+        ArtifactFixture foo = givenArtifact("foo").version("1").deployed();
+        LoggerFixture bar = givenLogger("bar").deployed();
+
+        Plan plan = boundary.getEffectivePlan();
+
+        assertThat(deployables(plan)).containsExactly(foo.asPlan());
+        assertThat(loggers(plan)).containsExactly(ROOT, bar.asPlan());
+        verifyContainerReadOnce();
+    }
+
+
     @Test void shouldReadZeroLoggers() {
         Plan plan = boundary.getEffectivePlan();
 
@@ -1,5 +1,6 @@
 package com.github.t1.deployer.container;
 
+import com.github.t1.deployer.testtools.TestData;
 import lombok.extern.slf4j.Slf4j;
 import org.jboss.as.controller.client.ModelControllerClient;
 import org.jboss.as.controller.client.helpers.Operations;
@@ -10,6 +11,11 @@ import org.jboss.as.controller.client.helpers.standalone.ServerDeploymentPlanRes
 import org.jboss.dmr.ModelNode;
 
 import java.net.InetAddress;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static java.time.ZoneOffset.UTC;
 
 @Slf4j
 public class JBossCliTestClient {
@@ -71,11 +77,27 @@ public class JBossCliTestClient {
         }
     }
 
+    public static void configureBatch(Container container, BatchConfig config) { container.batch.config = config; }
+
+    /** Every reading of the clock is one grace period later, so staged content is always considered removed */
+    public static void expireStagedContent(Container container) {
+        container.batch.clock = new Clock() {
+            private Instant now = Instant.EPOCH;
+
+            @Override public ZoneId getZone() { return UTC; }
+
+            @Override public Clock withZone(ZoneId zone) { throw new UnsupportedOperationException(); }
+
+            @Override public Instant instant() { return now = now.plus(Batch.STAGED_CONTENT_GRACE); }
+        };
+    }
+
     @SuppressWarnings("deprecation")
     public static Container buildContainer(ModelControllerClient cli) {
         Container container = new Container();
         container.batch = new Batch();
         container.batch.client = cli;
+        container.batch.executor = TestData.EXECUTOR;
         return container;
     }
 }
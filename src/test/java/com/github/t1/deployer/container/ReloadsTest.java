@@ -0,0 +1,143 @@
+package com.github.t1.deployer.container;
+
+import com.github.t1.deployer.model.Age;
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.as.controller.client.OperationMessageHandler;
+import org.jboss.dmr.ModelNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.verification.VerificationMode;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.jboss.as.controller.client.helpers.ClientConstants.OP;
+import static org.jboss.as.controller.client.helpers.ClientConstants.OUTCOME;
+import static org.jboss.as.controller.client.helpers.ClientConstants.RESULT;
+import static org.jboss.as.controller.client.helpers.ClientConstants.SUCCESS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReloadsTest {
+    private static final Object LOCK = new Object();
+
+    private final ModelControllerClient client = mock(ModelControllerClient.class);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Reloads reloads = new Reloads();
+    private final Container container = Container.of(client, null, scheduler);
+
+    ReloadsTest() throws IOException {
+        reloads.client = client;
+        reloads.scheduler = scheduler;
+        when(client.execute(any(ModelNode.class), any(OperationMessageHandler.class)))
+            .thenReturn(success("reload-required"));
+    }
+
+    private void request() { reloads.request(LOCK, container); }
+
+    private ModelNode verifyExecuted(VerificationMode mode, String operation) throws IOException {
+        return verify(client, mode).execute(argThat(operation(operation)), any(OperationMessageHandler.class));
+    }
+
+    @AfterEach void shutdown() {
+        reloads.shutdown();
+        scheduler.shutdownNow();
+    }
+
+    private static ModelNode success(String result) {
+        ModelNode node = new ModelNode();
+        node.get(OUTCOME).set(SUCCESS);
+        node.get(RESULT).set(result);
+        return node;
+    }
+
+    private static ArgumentMatcher<ModelNode> operation(String name) {
+        return operation -> operation.get(OP).asString().equals(name);
+    }
+
+    private void givenReloadWindow(Duration window) { reloads.config = new BatchConfig().setReloadWindow(new Age(window)); }
+
+    @Test void shouldReloadImmediatelyByDefault() throws IOException {
+        request();
+
+        verifyExecuted(times(1), "suspend");
+        verifyExecuted(times(1), "reload");
+        verifyExecuted(never(), "read-attribute");
+    }
+
+    @Test void shouldReloadImmediatelyWithoutTheLock() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            synchronized (LOCK) {
+                locked.countDown();
+                awaitQuietly(release);
+            }
+        });
+        holder.start();
+        locked.await();
+        try {
+            request();
+
+            verifyExecuted(times(1), "reload");
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test void shouldCoalesceReloadsWithinWindow() throws IOException {
+        givenReloadWindow(Duration.ofMillis(200));
+
+        request();
+        request();
+        request();
+
+        verifyExecuted(never(), "reload");
+        verifyExecuted(timeout(2000), "reload");
+        verifyExecuted(after(400), "suspend");
+        verifyExecuted(times(1), "reload");
+    }
+
+    @Test void shouldReloadAgainAfterWindow() throws IOException {
+        givenReloadWindow(Duration.ofMillis(50));
+
+        request();
+        verifyExecuted(timeout(2000), "reload");
+        request();
+
+        verifyExecuted(timeout(2000).times(2), "reload");
+    }
+
+    @Test void shouldNotReloadWhenNotRequiredAnymore() throws IOException {
+        givenReloadWindow(Duration.ofMillis(50));
+        when(client.execute(argThat(operation("read-attribute")), any(OperationMessageHandler.class)))
+            .thenReturn(success("running"));
+
+        request();
+
+        verifyExecuted(timeout(2000), "read-attribute");
+        verifyExecuted(after(200).never(), "reload");
+        verifyExecuted(never(), "suspend");
+    }
+}
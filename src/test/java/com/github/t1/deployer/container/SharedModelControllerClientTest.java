@@ -0,0 +1,156 @@
+package com.github.t1.deployer.container;
+
+import org.jboss.as.controller.client.ModelControllerClient;
+import org.jboss.dmr.ModelNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.time.ZoneOffset.UTC;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.jboss.as.controller.client.helpers.ClientConstants.OUTCOME;
+import static org.jboss.as.controller.client.helpers.ClientConstants.SUCCESS;
+import static org.jboss.as.controller.client.helpers.Operations.createAddress;
+import static org.jboss.as.controller.client.helpers.Operations.createCompositeOperation;
+import static org.jboss.as.controller.client.helpers.Operations.createReadResourceOperation;
+import static org.jboss.as.controller.client.helpers.Operations.createRemoveOperation;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SharedModelControllerClientTest {
+    private static final ModelNode READ = createReadResourceOperation(createAddress("deployment", "*"));
+    private static final ModelNode WRITE = createRemoveOperation(createAddress("deployment", "foo.war"));
+
+    private static class TestClock extends Clock {
+        Instant now = Instant.parse("2020-01-01T00:00:00Z");
+
+        @Override public ZoneId getZone() { return UTC; }
+
+        @Override public Clock withZone(ZoneId zone) { throw new UnsupportedOperationException(); }
+
+        @Override public Instant instant() { return now; }
+
+        void advance(Duration duration) { now = now.plus(duration); }
+    }
+
+    private final TestClock clock = new TestClock();
+    private final List<ModelControllerClient> connections = new ArrayList<>();
+    private final SharedModelControllerClient client = new SharedModelControllerClient(this::connect, clock);
+
+    private ModelControllerClient connect() throws IOException {
+        ModelControllerClient connection = mock(ModelControllerClient.class);
+        when(connection.execute(any(ModelNode.class))).thenReturn(success());
+        when(connection.execute(any(ModelNode.class), any())).thenReturn(success());
+        connections.add(connection);
+        return connection;
+    }
+
+    private static ModelNode success() {
+        ModelNode node = new ModelNode();
+        node.get(OUTCOME).set(SUCCESS);
+        return node;
+    }
+
+    private ModelControllerClient connection(int index) { return connections.get(index); }
+
+    @Test void shouldConnectLazily() {
+        assertThat(connections).isEmpty();
+    }
+
+    @Test void shouldShareConnection() throws IOException {
+        client.execute(READ, null);
+        client.execute(WRITE, null);
+
+        assertThat(connections).hasSize(1);
+        assertThat(client.toString()).startsWith("management connection: 1 connects in 0 ms, 0 failures");
+    }
+
+    @Test void shouldReconnectAndRetryReadAfterFailure() throws IOException {
+        client.execute(READ, null);
+        when(connection(0).execute(eq(READ), any())).thenThrow(new IOException("connection lost"));
+
+        ModelNode result = client.execute(READ, null);
+
+        assertThat(result).isEqualTo(success());
+        assertThat(connections).hasSize(2);
+        verify(connection(0)).close();
+        verify(connection(1)).execute(READ, null);
+    }
+
+    @Test void shouldRetryCompositeRead() throws IOException {
+        ModelNode composite = createCompositeOperation();
+        composite.get("steps").add(READ);
+        client.execute(READ, null);
+        when(connection(0).execute(eq(composite), any())).thenThrow(new IOException("connection lost"));
+
+        client.execute(composite, null);
+
+        verify(connection(1)).execute(composite, null);
+    }
+
+    @Test void shouldNotRetryWriteButReconnectNextTime() throws IOException {
+        client.execute(READ, null);
+        when(connection(0).execute(eq(WRITE), any())).thenThrow(new IOException("connection lost"));
+
+        Throwable thrown = catchThrowable(() -> client.execute(WRITE, null));
+
+        assertThat(thrown).isInstanceOf(IOException.class).hasMessage("connection lost");
+        assertThat(connections).hasSize(1);
+
+        client.execute(READ, null);
+
+        assertThat(connections).hasSize(2);
+    }
+
+    @Test void shouldNotProbeWhenRecentlyUsed() throws IOException {
+        client.execute(READ, null);
+        clock.advance(SharedModelControllerClient.PROBE_AFTER_IDLE);
+
+        client.execute(READ, null);
+
+        verify(connection(0)).execute(any(ModelNode.class)); // only when connecting
+    }
+
+    @Test void shouldReconnectWhenProbeFailsAfterIdle() throws IOException {
+        client.execute(READ, null);
+        clock.advance(Duration.ofMinutes(1));
+        when(connection(0).execute(any(ModelNode.class))).thenThrow(new IOException("server reloaded"));
+
+        client.execute(READ, null);
+
+        assertThat(connections).hasSize(2);
+        verify(connection(0)).close();
+        verify(connection(1)).execute(READ, null);
+    }
+
+    @Test void shouldFailToConnectWhenProbeFails() throws IOException {
+        ModelControllerClient dead = mock(ModelControllerClient.class);
+        when(dead.execute(any(ModelNode.class))).thenThrow(new IOException("connection refused"));
+        SharedModelControllerClient client = new SharedModelControllerClient(() -> dead, clock);
+
+        Throwable thrown = catchThrowable(() -> client.execute(READ, null));
+
+        assertThat(thrown).isInstanceOf(IOException.class).hasMessage("can't connect to management interface");
+        verify(dead).close();
+        verify(dead, never()).execute(eq(READ), any());
+    }
+
+    @Test void shouldCloseConnection() throws IOException {
+        client.execute(READ, null);
+
+        client.close();
+
+        verify(connection(0)).close();
+    }
+}
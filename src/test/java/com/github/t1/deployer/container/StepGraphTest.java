@@ -0,0 +1,171 @@
+package com.github.t1.deployer.container;
+
+import com.github.t1.deployer.model.Checksum;
+import org.jboss.dmr.ModelNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jboss.as.controller.client.helpers.Operations.createAddOperation;
+import static org.jboss.as.controller.client.helpers.Operations.createAddress;
+import static org.jboss.as.controller.client.helpers.Operations.createOperation;
+import static org.jboss.as.controller.client.helpers.Operations.createRemoveOperation;
+import static org.jboss.as.controller.client.helpers.Operations.createWriteAttributeOperation;
+
+class StepGraphTest {
+    private static final ModelNode HANDLER = createAddress("subsystem", "logging", "periodic-rotating-file-handler", "FOO");
+    private static final ModelNode LOGGER = createAddress("subsystem", "logging", "logger", "org.foo");
+    private static final ModelNode DATA_SOURCE = createAddress("subsystem", "datasources", "data-source", "foo");
+
+    private static ModelNode deployment(String name) { return createAddress("deployment", name); }
+
+    private static ModelNode addLogger(String... handlers) {
+        ModelNode add = createAddOperation(LOGGER);
+        for (String handler : handlers)
+            add.get("handlers").add(handler);
+        return add;
+    }
+
+    private static ModelNode loggerHandler(String operation, String handler) {
+        ModelNode request = createOperation(operation, LOGGER);
+        request.get("name").set(handler);
+        return request;
+    }
+
+    private static ModelNode redeploy(String name) {
+        ModelNode request = createOperation("full-replace-deployment", new ModelNode().setEmptyList());
+        request.get("name").set(name);
+        return request;
+    }
+
+    private static ModelNode byHash(ModelNode request, Checksum checksum) {
+        request.get("content").add(new ModelNode().set("hash", checksum.getBytes()));
+        return request;
+    }
+
+    @Test void shouldOrderAddsBeforeUpdatesBeforeRemoves() {
+        ModelNode removeHandler = createRemoveOperation(HANDLER);
+        ModelNode removeDeployment = createRemoveOperation(deployment("foo.war"));
+        ModelNode writeLevel = createWriteAttributeOperation(LOGGER, "level", "DEBUG");
+        ModelNode addDeployment = createAddOperation(deployment("bar.war"));
+        ModelNode addDataSource = createAddOperation(DATA_SOURCE);
+        ModelNode addHandler = createAddOperation(HANDLER);
+
+        List<ModelNode> ordered = new StepGraph(asList(
+            removeHandler, removeDeployment, writeLevel, addDeployment, addDataSource, addHandler)).ordered();
+
+        assertThat(ordered).containsExactly(
+            addHandler, addDataSource, addDeployment, writeLevel, removeDeployment, removeHandler);
+    }
+
+    @Test void shouldAddHandlerBeforeLoggerUsingIt() {
+        ModelNode addLogger = addLogger("FOO");
+        ModelNode addHandler = createAddOperation(HANDLER);
+
+        List<ModelNode> ordered = new StepGraph(asList(addLogger, addHandler)).ordered();
+
+        assertThat(ordered).containsExactly(addHandler, addLogger);
+    }
+
+    @Test void shouldRemoveHandlerFromLoggerBeforeRemovingHandler() {
+        ModelNode removeHandler = createRemoveOperation(HANDLER);
+        ModelNode removeLoggerHandler = loggerHandler("remove-handler", "FOO");
+
+        List<ModelNode> ordered = new StepGraph(asList(removeHandler, removeLoggerHandler)).ordered();
+
+        assertThat(ordered).containsExactly(removeLoggerHandler, removeHandler);
+    }
+
+    @Test void shouldSplitUnrelatedDeployables() {
+        ModelNode addFoo = createAddOperation(deployment("foo.war"));
+        ModelNode redeployBar = redeploy("bar.war");
+        ModelNode undeployBaz = createOperation("undeploy", deployment("baz.war"));
+        ModelNode removeBaz = createRemoveOperation(deployment("baz.war"));
+
+        List<List<ModelNode>> independent = new StepGraph(asList(addFoo, redeployBar, removeBaz, undeployBaz))
+            .independent();
+
+        assertThat(independent).containsExactly(
+            asList(addFoo),
+            asList(redeployBar),
+            asList(undeployBaz, removeBaz));
+    }
+
+    @Test void shouldKeepDeployablesWithTheResourcesTheyMayUse() {
+        ModelNode addFoo = createAddOperation(deployment("foo.war"));
+        ModelNode addBar = createAddOperation(deployment("bar.war"));
+        ModelNode addDataSource = createAddOperation(DATA_SOURCE);
+        ModelNode addLogger = addLogger();
+        ModelNode writeLevel = createWriteAttributeOperation(LOGGER, "level", "DEBUG");
+
+        List<List<ModelNode>> independent = new StepGraph(asList(addFoo, addBar, addDataSource, addLogger, writeLevel))
+            .independent();
+
+        assertThat(independent).containsExactly(asList(addLogger, addDataSource, addFoo, addBar, writeLevel));
+    }
+
+    @Test void shouldPredictReload() {
+        ModelNode customHandler = createAddress("subsystem", "logging", "custom-handler", "FOO");
+
+        assertThat(StepGraph.requiresReload(createWriteAttributeOperation(DATA_SOURCE, "jndi-name", "java:/foo"))).isTrue();
+        assertThat(StepGraph.requiresReload(createRemoveOperation(DATA_SOURCE))).isTrue();
+        assertThat(StepGraph.requiresReload(createAddOperation(DATA_SOURCE))).isFalse();
+        assertThat(StepGraph.requiresReload(createWriteAttributeOperation(customHandler, "class", "Foo"))).isTrue();
+        assertThat(StepGraph.requiresReload(createWriteAttributeOperation(customHandler, "level", "INFO"))).isFalse();
+        assertThat(StepGraph.requiresReload(createWriteAttributeOperation(LOGGER, "level", "DEBUG"))).isFalse();
+        assertThat(StepGraph.requiresReload(createAddOperation(deployment("foo.war")))).isFalse();
+    }
+
+    @Test void shouldKeepStepsRequiringReloadTogether() {
+        ModelNode otherDataSource = createAddress("subsystem", "datasources", "data-source", "bar");
+        ModelNode writeFoo = createWriteAttributeOperation(DATA_SOURCE, "jndi-name", "java:/foo");
+        ModelNode writeBar = createWriteAttributeOperation(otherDataSource, "jndi-name", "java:/bar");
+        ModelNode writeLevel = createWriteAttributeOperation(LOGGER, "level", "DEBUG");
+
+        List<List<ModelNode>> independent = new StepGraph(asList(writeFoo, writeLevel, writeBar)).independent();
+
+        assertThat(independent).containsExactly(asList(writeFoo, writeBar), asList(writeLevel));
+    }
+
+    @Test void shouldKeepUpdatesOfUnrelatedResourcesApart() {
+        ModelNode writeLevel = createWriteAttributeOperation(LOGGER, "level", "DEBUG");
+        ModelNode writeDataSource = createWriteAttributeOperation(DATA_SOURCE, "max-pool-size", 10);
+        ModelNode addLoggerHandler = loggerHandler("add-handler", "BAR");
+
+        List<List<ModelNode>> independent = new StepGraph(asList(writeLevel, writeDataSource, addLoggerHandler))
+            .independent();
+
+        assertThat(independent).containsExactly(
+            asList(addLoggerHandler, writeLevel),
+            asList(writeDataSource));
+    }
+
+    @Test void shouldKeepDeployableReferencingContentByHashWithTheStepReleasingIt() {
+        Checksum checksum = Checksum.ofHexString("1234567890abcdef1234567890abcdef12345678");
+        ModelNode addFoo = byHash(createAddOperation(deployment("foo.war")), checksum);
+        ModelNode undeployBar = createOperation("undeploy", deployment("bar.war"));
+        ModelNode removeBar = createRemoveOperation(deployment("bar.war"));
+        ModelNode redeployBaz = redeploy("baz.war");
+
+        List<List<ModelNode>> independent = new StepGraph(asList(undeployBar, removeBar, redeployBaz, addFoo),
+            Map.of("bar.war", checksum)).independent();
+
+        assertThat(independent).containsExactly(
+            asList(addFoo, undeployBar, removeBar),
+            asList(redeployBaz));
+    }
+
+    @Test void shouldRedeployByHashBeforeReplacingTheDeployableHoldingIt() {
+        Checksum checksum = Checksum.ofHexString("1234567890abcdef1234567890abcdef12345678");
+        ModelNode replaceBar = redeploy("bar.war");
+        ModelNode replaceFoo = byHash(redeploy("foo.war"), checksum);
+
+        List<List<ModelNode>> independent = new StepGraph(asList(replaceBar, replaceFoo),
+            Map.of("bar.war", checksum)).independent();
+
+        assertThat(independent).containsExactly(asList(replaceFoo, replaceBar));
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.t1.deployer.model;
+
+import com.github.t1.deployer.model.Expressions.VariableName;
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Resolving a line that has been resolved before must allocate hardly anything but the result. How much exactly
+ * depends on the JVM, so this is a benchmark that only runs when the <code>benchmark</code> group is enabled.
+ */
+@Tag("benchmark")
+class ExpressionsAllocationTest {
+    private static final int RUNS = 10_000;
+
+    private final Expressions expressions = new Expressions()
+        .with(new VariableName("foo"), "bar")
+        .with(new VariableName("baz"), "${foo}");
+
+    private long allocatedBytesPerResolve(String line) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < RUNS; i++) // warm up
+            expressions.resolve(line);
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < RUNS; i++)
+            expressions.resolve(line);
+        return (threads.getThreadAllocatedBytes(thread) - before) / RUNS;
+    }
+
+    @Test void shouldNotAllocateForLineWithoutExpressions() {
+        assertThat(allocatedBytesPerResolve("name: foo")).isLessThan(64);
+    }
+
+    @Test void shouldAllocateLittleForVariable() {
+        assertThat(allocatedBytesPerResolve("name: ${foo}")).isLessThan(512);
+    }
+
+    @Test void shouldAllocateLittleForFunctionAndAlternatives() {
+        assertThat(allocatedBytesPerResolve("name: ${toUpperCase(baz)}-${undefined or foo}")).isLessThan(1024);
+    }
+}
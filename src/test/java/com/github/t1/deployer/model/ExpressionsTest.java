@@ -0,0 +1,86 @@
+package com.github.t1.deployer.model;
+
+import com.github.t1.deployer.model.Expressions.VariableName;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * The plan of a bundle with many instances resolves the same lines again and again, so resolving a line that has
+ * been resolved before must not parse it again; see also the {@link ExpressionsAllocationTest}.
+ */
+class ExpressionsTest {
+    private static final VariableName FOO = new VariableName("foo");
+
+    private final Expressions expressions = new Expressions()
+        .with(FOO, "bar")
+        .with(new VariableName("baz"), "${foo}");
+
+    @Test void shouldReuseResolver() {
+        assertThat(expressions.resolver()).isSameAs(expressions.resolver());
+    }
+
+    @Test void shouldResolveCachedLineWithOtherVariables() {
+        String line = "name: ${toUpperCase(baz)}-${undefined or foo}";
+
+        assertThat(expressions.resolve(line)).isEqualTo("name: BAR-bar");
+        assertThat(expressions.withAllReplacing(ImmutableMap.of(FOO, "qux")).resolve(line)).isEqualTo("name: QUX-qux");
+    }
+
+    @Test void shouldReuseCompiledTemplateWithOtherVariables() {
+        String line = "name: ${foo}-${qux or «default»}";
+        Expressions other = new Expressions().with(FOO, "other").with(new VariableName("qux"), "q");
+
+        String first = expressions.resolve(line);
+        Expressions.Template template = Expressions.template(line, null);
+        String second = other.resolve(line);
+
+        assertThat(Expressions.template(line, null)).isSameAs(template);
+        assertThat(first).isEqualTo("name: bar-default");
+        assertThat(second).isEqualTo("name: other-q");
+    }
+
+    @Test void shouldResolveEarlierAlternativeDespiteParseErrorInLaterAlternative() {
+        assertThat(expressions.resolve("${foo or switch}")).isEqualTo("bar");
+    }
+
+    @Test void shouldFailToResolveAlternativeWithParseErrorWhenReached() {
+        Throwable thrown = catchThrowable(() -> expressions.resolve("${undefined or switch}"));
+
+        assertThat(thrown).isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("unmatched brackets for switch statement");
+    }
+
+    @Test void shouldEvictLeastRecentlyUsedEntriesBeyondMaxEntries() {
+        Expressions.CompileCache<Integer, String> cache = new Expressions.CompileCache<>();
+        for (int i = 0; i < Expressions.CompileCache.MAX_ENTRIES; i++)
+            cache.put(i, "value-" + i);
+        cache.get(0); // most recently used now
+
+        cache.put(-1, "one too many");
+
+        assertThat(cache.size()).isEqualTo(Expressions.CompileCache.MAX_ENTRIES);
+        assertThat(cache.get(0)).isEqualTo("value-0");
+        assertThat(cache.get(1)).describedAs("least recently used").isNull();
+        assertThat(cache.get(-1)).isEqualTo("one too many");
+    }
+
+    @Test void shouldCountFunctionEvaluationsOfAllRelatedExpressions() {
+        expressions.resolve("${hostName()}");
+        expressions.with(new VariableName("qux"), "x").resolve("${hostName()}.${domainName() or «local»}");
+        expressions.resolve("${regex(foo, «b(.*)»)}");
+
+        assertThat(expressions.functionEvaluations()).containsExactly(
+            entry("domainName#0", 1L),
+            entry("hostName#0", 2L),
+            entry("regex#2", 1L));
+    }
+
+    @Test void shouldResolveEnvironmentFunctionsLikeStaticOnes() {
+        assertThat(expressions.resolve("${hostName()}")).isEqualTo(Expressions.hostName());
+        assertThat(expressions.resolve("${domainName()}")).isEqualTo(Expressions.domainName());
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Checksum;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class ArtifactCacheTest {
+    private static final byte[] FOO = "foo-content".getBytes(UTF_8);
+    private static final byte[] BAR = "bar-content".getBytes(UTF_8);
+    private static final Checksum FOO_CHECKSUM = Checksum.sha1(FOO);
+    private static final Checksum BAR_CHECKSUM = Checksum.sha1(BAR);
+
+    @TempDir Path dir;
+
+    private int downloads = 0;
+
+    private Supplier<InputStream> download(byte[] bytes) {
+        return () -> {
+            downloads++;
+            return new ByteArrayInputStream(bytes);
+        };
+    }
+
+    @SneakyThrows(IOException.class)
+    private static String read(InputStream inputStream) {
+        try (InputStream in = inputStream) {
+            return new String(in.readAllBytes(), UTF_8);
+        }
+    }
+
+    private Path file(Checksum checksum) {
+        String hex = checksum.toString();
+        return dir.resolve(hex.substring(0, 2)).resolve(hex);
+    }
+
+    @Test void shouldDownloadOnFirstRead() {
+        ArtifactCache cache = new ArtifactCache(dir, 1000);
+
+        String content = read(cache.get(FOO_CHECKSUM, download(FOO)));
+
+        assertThat(content).isEqualTo("foo-content");
+        assertThat(downloads).isEqualTo(1);
+        assertThat(file(FOO_CHECKSUM)).hasBinaryContent(FOO);
+        assertThat(cache.contains(FOO_CHECKSUM)).isTrue();
+        assertThat(cache.totalBytes()).isEqualTo(FOO.length);
+    }
+
+    @Test void shouldDeleteAllFiles() {
+        ArtifactCache cache = new ArtifactCache(dir, 1000);
+        read(cache.get(FOO_CHECKSUM, download(FOO)));
+
+        cache.delete();
+
+        assertThat(dir).doesNotExist();
+        assertThat(cache.contains(FOO_CHECKSUM)).isFalse();
+    }
+
+    @Test void shouldReadFromCacheOnSecondRead() {
+        ArtifactCache cache = new ArtifactCache(dir, 1000);
+        read(cache.get(FOO_CHECKSUM, download(FOO)));
+
+        String content = read(cache.get(FOO_CHECKSUM, download(FOO)));
+
+        assertThat(content).isEqualTo("foo-content");
+        assertThat(downloads).isEqualTo(1);
+    }
+
+    @Test void shouldNotCacheDownloadWithWrongChecksum() throws IOException {
+        ArtifactCache cache = new ArtifactCache(dir, 1000);
+
+        Throwable thrown = catchThrowable(() -> cache.get(FOO_CHECKSUM, download(BAR)));
+
+        assertThat(thrown).isInstanceOf(ChecksumMismatchException.class)
+            .hasMessageContaining(BAR_CHECKSUM.toString());
+        assertThat(cache.contains(FOO_CHECKSUM)).isFalse();
+        assertThat(file(FOO_CHECKSUM)).doesNotExist();
+        try (var files = Files.list(file(FOO_CHECKSUM).getParent())) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test void shouldDownloadAgainWhenCachedFileIsCorrupted() throws IOException {
+        ArtifactCache cache = new ArtifactCache(dir, 1000);
+        read(cache.get(FOO_CHECKSUM, download(FOO)));
+        Files.write(file(FOO_CHECKSUM), BAR);
+
+        String content = read(cache.get(FOO_CHECKSUM, download(FOO)));
+
+        assertThat(content).isEqualTo("foo-content");
+        assertThat(downloads).isEqualTo(2);
+        assertThat(file(FOO_CHECKSUM)).hasBinaryContent(FOO);
+    }
+
+    @Test void shouldPassThroughWithoutChecksum() {
+        ArtifactCache cache = new ArtifactCache(dir, 1000);
+
+        String content = read(cache.get(null, download(FOO)));
+
+        assertThat(content).isEqualTo("foo-content");
+        assertThat(cache.totalBytes()).isEqualTo(0);
+    }
+
+    @Test void shouldEvictLeastRecentlyUsed() {
+        ArtifactCache cache = new ArtifactCache(dir, FOO.length + 1);
+        read(cache.get(FOO_CHECKSUM, download(FOO)));
+
+        read(cache.get(BAR_CHECKSUM, download(BAR)));
+
+        assertThat(cache.contains(FOO_CHECKSUM)).isFalse();
+        assertThat(cache.contains(BAR_CHECKSUM)).isTrue();
+        assertThat(file(FOO_CHECKSUM)).doesNotExist();
+        assertThat(cache.totalBytes()).isEqualTo(BAR.length);
+    }
+
+    @Test void shouldFindFilesOfPreviousInstance() throws IOException {
+        read(new ArtifactCache(dir, 1000).get(FOO_CHECKSUM, download(FOO)));
+        Path stale = Files.createFile(file(FOO_CHECKSUM).resolveSibling("xyz.tmp"));
+
+        ArtifactCache cache = new ArtifactCache(dir, 1000);
+
+        assertThat(cache.contains(FOO_CHECKSUM)).isTrue();
+        assertThat(cache.totalBytes()).isEqualTo(FOO.length);
+        assertThat(stale).doesNotExist();
+        read(cache.get(FOO_CHECKSUM, download(FOO)));
+        assertThat(downloads).isEqualTo(1);
+    }
+}
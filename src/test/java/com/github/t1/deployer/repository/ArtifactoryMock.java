@@ -15,6 +15,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.jboss.shrinkwrap.api.exporter.ZipExporter;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
 
+import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.NotFoundException;
@@ -43,10 +44,13 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static com.github.t1.deployer.model.ArtifactType.war;
 import static com.github.t1.deployer.repository.ArtifactoryRepository.versionFrom;
@@ -54,10 +58,14 @@ import static java.lang.ProcessBuilder.Redirect.appendTo;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.ZoneOffset.UTC;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static java.util.Map.Entry.comparingByValue;
+import static java.util.stream.Collectors.joining;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 import static javax.ws.rs.core.MediaType.APPLICATION_XML;
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
 import static javax.ws.rs.core.Response.Status.BAD_GATEWAY;
 import static javax.ws.rs.core.Response.Status.NOT_FOUND;
 import static javax.ws.rs.core.Response.Status.OK;
@@ -344,28 +352,59 @@ public class ArtifactoryMock {
             throw new RuntimeException("wrong credentials");
     }
 
+    @POST
+    @Path("/api/search/aql")
+    @Consumes(TEXT_PLAIN)
+    @Produces(APPLICATION_JSON)
+    public String searchByAql(@HeaderParam("Authorization") String authorization, String query) {
+        checkAuthorization(authorization);
+        log.debug("search by aql: {}", query);
+        List<String> results = new ArrayList<>();
+        Matcher matcher = AQL_SHA1.matcher(query);
+        while (matcher.find()) {
+            Checksum checksum = Checksum.ofHexString(matcher.group(1));
+            searchPathsFor(checksum).forEach(path -> results.add(aqlResult(path, checksum)));
+        }
+        log.debug("found {}", results);
+        return "{\"results\": [" + String.join(",", results) + "]}";
+    }
+
+    private static final Pattern AQL_SHA1 = Pattern.compile("\"actual_sha1\"\\s*:\\s*\"([0-9a-fA-F]+)\"");
+
+    private static String aqlResult(java.nio.file.Path path, Checksum checksum) {
+        return "{"
+            + "\"repo\":\"" + path.getName(0) + "\","
+            + "\"path\":\"" + path.subpath(1, path.getNameCount() - 1) + "\","
+            + "\"name\":\"" + path.getFileName() + "\","
+            + "\"actual_sha1\":\"" + checksum + "\""
+            + "}";
+    }
+
     private String searchResultsFor(Checksum checksum) {
+        return searchPathsFor(checksum).stream().map(path -> fileSearchResult(path.toString())).collect(joining(","));
+    }
+
+    private List<java.nio.file.Path> searchPathsFor(Checksum checksum) {
         if (fakeChecksumFor(FOO).equals(checksum)) {
-            return fileSearchResult(FOO, CURRENT_FOO_VERSION);
+            return singletonList(fakePathFor(FOO, CURRENT_FOO_VERSION));
         } else if (fakeChecksumFor(BAR).equals(checksum)) {
-            return fileSearchResult(BAR, CURRENT_BAR_VERSION);
+            return singletonList(fakePathFor(BAR, CURRENT_BAR_VERSION));
         } else if (FAILING_CHECKSUM.equals(checksum)) {
             throw new RuntimeException("fake error in repo");
         } else if (AMBIGUOUS_CHECKSUM.equals(checksum)) {
-            return fileSearchResult(new DeploymentName("x"), new Version("1.0")) + ","
-                + fileSearchResult(new DeploymentName("y"), new Version("2.0"));
+            return asList(fakePathFor(new DeploymentName("x"), new Version("1.0")),
+                fakePathFor(new DeploymentName("y"), new Version("2.0")));
         } else if (UNKNOWN_CHECKSUM.equals(checksum)) {
-            return "";
+            return emptyList();
         } else if (isIndexed(checksum)) {
-            java.nio.file.Path path = index().get(checksum);
-            return fileSearchResult(REPO_NAME + "/" + path);
+            return singletonList(REPO_NAME.resolve(index().get(checksum)));
         } else if (FAKES) {
             DeploymentName name = fakeNameFor(checksum);
             Version version = fakeVersionFor(checksum);
             log.debug("fake search result for {}: {}@{}", checksum, name, version);
-            return fileSearchResult(name, version);
+            return singletonList(fakePathFor(name, version));
         } else {
-            return "";
+            return emptyList();
         }
     }
 
@@ -396,10 +435,6 @@ public class ArtifactoryMock {
         return result;
     }
 
-    private String fileSearchResult(DeploymentName name, Version version) {
-        return fileSearchResult(fakePathFor(name, version).toString());
-    }
-
     private static java.nio.file.Path fakePathFor(DeploymentName name, Version version) {
         return REPO_NAME.resolve(fakeGroupId(name).replace(".", "/"))
             .resolve(fakeArtifactId(name))
@@ -2,6 +2,7 @@ package com.github.t1.deployer.repository;
 
 import com.github.t1.deployer.model.Artifact;
 import com.github.t1.deployer.model.ArtifactId;
+import com.github.t1.deployer.model.Checksum;
 import com.github.t1.deployer.model.GroupId;
 import com.github.t1.deployer.model.Version;
 import com.github.t1.deployer.tools.Password;
@@ -18,6 +19,7 @@ import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
 
 import static com.github.t1.deployer.model.ArtifactType.war;
 import static com.github.t1.deployer.repository.ArtifactoryMock.AMBIGUOUS_CHECKSUM;
@@ -31,6 +33,7 @@ import static com.github.t1.deployer.testtools.TestData.JOLOKIA_133_CHECKSUM;
 import static com.github.t1.deployer.testtools.TestData.JOLOKIA_134_CHECKSUM;
 import static com.github.t1.deployer.testtools.TestData.JOLOKIA_134_SNAPSHOT_CHECKSUM;
 import static com.github.t1.log.LogLevel.DEBUG;
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.api.Assertions.catchThrowableOfType;
@@ -95,6 +98,35 @@ class ArtifactoryRepositoryIT {
         assertThat(artifact.getType()).isEqualTo(war);
     }
 
+    @Test void shouldSearchByChecksums() {
+        Map<Checksum, Artifact> artifacts = repository.searchByChecksums(
+            asList(fakeChecksumFor(FOO), UNKNOWN_CHECKSUM, AMBIGUOUS_CHECKSUM));
+
+        assertThat(artifacts.keySet()).containsExactly(fakeChecksumFor(FOO), AMBIGUOUS_CHECKSUM);
+        assertThat(artifacts.get(AMBIGUOUS_CHECKSUM).getError()).isEqualTo("error retrieving artifact");
+        Artifact artifact = artifacts.get(fakeChecksumFor(FOO));
+        assertThat(artifact.getGroupId().getValue()).isEqualTo("org.foo");
+        assertThat(artifact.getArtifactId().getValue()).isEqualTo("foo-war");
+        assertThat(artifact.getVersion()).isEqualTo(CURRENT_FOO_VERSION);
+        assertThat(artifact.getChecksum()).isEqualTo(fakeChecksumFor(FOO));
+        assertThat(artifact.getType()).isEqualTo(war);
+    }
+
+    @Test void shouldLookupAmbiguousChecksumAsErrorInBulkAndSingle() {
+        Map<Checksum, Artifact> artifacts = repository.lookupByChecksums(asList(fakeChecksumFor(FOO), AMBIGUOUS_CHECKSUM));
+
+        assertThat(artifacts.get(fakeChecksumFor(FOO)).getError()).isNull();
+        assertThat(artifacts.get(AMBIGUOUS_CHECKSUM).getError()).isEqualTo("error retrieving artifact");
+        assertThat(repository.lookupByChecksum(AMBIGUOUS_CHECKSUM).getError()).isEqualTo("error retrieving artifact");
+    }
+
+    @Test void shouldLookupByChecksumsWhenUnavailable() {
+        Map<Checksum, Artifact> artifacts = repository.lookupByChecksums(asList(fakeChecksumFor(FOO), FAILING_CHECKSUM));
+
+        assertThat(artifacts.get(fakeChecksumFor(FOO)).getError()).isEqualTo("error retrieving artifact");
+        assertThat(artifacts.get(FAILING_CHECKSUM).getError()).isEqualTo("error retrieving artifact");
+    }
+
     @Test void shouldSearchByChecksumWithAuthorization() {
         assumeThat(ARTIFACTORY_MOCK).isNotNull();
         try {
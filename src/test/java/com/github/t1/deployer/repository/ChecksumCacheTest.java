@@ -0,0 +1,184 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Age;
+import com.github.t1.deployer.model.Artifact;
+import com.github.t1.deployer.model.ArtifactId;
+import com.github.t1.deployer.model.Checksum;
+import com.github.t1.deployer.model.GroupId;
+import com.github.t1.deployer.model.Version;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static java.time.ZoneOffset.UTC;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class ChecksumCacheTest {
+    private static final Checksum FOO_CHECKSUM = Checksum.fromString("FACE0000F000");
+    private static final Checksum BAR_CHECKSUM = Checksum.fromString("FACE0000BA20");
+    private static final Checksum BAZ_CHECKSUM = Checksum.fromString("FACE0000BA30");
+
+    private static class TestClock extends Clock {
+        Instant now = Instant.parse("2020-01-01T00:00:00Z");
+
+        @Override public ZoneId getZone() { return UTC; }
+
+        @Override public Clock withZone(ZoneId zone) { throw new UnsupportedOperationException(); }
+
+        @Override public Instant instant() { return now; }
+
+        void advance(Duration duration) { now = now.plus(duration); }
+    }
+
+    private final TestClock clock = new TestClock();
+    private final ChecksumCache cache = new ChecksumCache(new ChecksumCacheConfig()
+        .setMaxEntries(2)
+        .setPositiveTtl(Age.ofMinutes(10))
+        .setNegativeTtl(Age.ofMinutes(1)), clock);
+
+    private int searches = 0;
+
+    private Artifact search(Checksum checksum) {
+        searches++;
+        return new Artifact()
+            .setGroupId(new GroupId("org.foo"))
+            .setArtifactId(new ArtifactId("foo"))
+            .setVersion(new Version("1.0"))
+            .setChecksum(checksum);
+    }
+
+    private Artifact searchUnknown(Checksum checksum) {
+        searches++;
+        throw new UnknownChecksumException(checksum);
+    }
+
+    @Test void shouldSearchOnFirstLookup() {
+        Artifact artifact = cache.lookup(FOO_CHECKSUM, this::search);
+
+        assertThat(artifact.getChecksum()).isEqualTo(FOO_CHECKSUM);
+        assertThat(searches).isEqualTo(1);
+        assertThat(cache.hits()).isEqualTo(0);
+        assertThat(cache.misses()).isEqualTo(1);
+    }
+
+    @Test void shouldHitOnSecondLookup() {
+        Artifact first = cache.lookup(FOO_CHECKSUM, this::search);
+
+        Artifact second = cache.lookup(FOO_CHECKSUM, this::search);
+
+        assertThat(second).isNotSameAs(first).hasToString(first.toString());
+        assertThat(searches).isEqualTo(1);
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(1);
+    }
+
+    @Test void shouldNotShareChangesToCachedArtifact() {
+        Supplier<InputStream> changed = () -> { throw new AssertionError("changed"); };
+        cache.lookup(FOO_CHECKSUM, this::search).setInputStreamSupplier(changed);
+        cache.lookup(FOO_CHECKSUM, this::search).setInputStreamSupplier(changed);
+
+        Artifact artifact = cache.lookup(FOO_CHECKSUM, this::search);
+
+        assertThat(artifact.getInputStreamSupplier()).isNotSameAs(changed);
+    }
+
+    @Test void shouldSearchAgainAfterPositiveTtl() {
+        cache.lookup(FOO_CHECKSUM, this::search);
+        clock.advance(Duration.ofMinutes(10));
+
+        cache.lookup(FOO_CHECKSUM, this::search);
+
+        assertThat(searches).isEqualTo(2);
+        assertThat(cache.misses()).isEqualTo(2);
+    }
+
+    @Test void shouldCacheUnknownChecksum() {
+        catchThrowable(() -> cache.lookup(FOO_CHECKSUM, this::searchUnknown));
+
+        Throwable thrown = catchThrowable(() -> cache.lookup(FOO_CHECKSUM, this::searchUnknown));
+
+        assertThat(thrown).isInstanceOf(UnknownChecksumException.class);
+        assertThat(searches).isEqualTo(1);
+        assertThat(cache.hits()).isEqualTo(1);
+    }
+
+    @Test void shouldSearchUnknownChecksumAgainAfterNegativeTtl() {
+        catchThrowable(() -> cache.lookup(FOO_CHECKSUM, this::searchUnknown));
+        clock.advance(Duration.ofMinutes(1));
+
+        Artifact artifact = cache.lookup(FOO_CHECKSUM, this::search);
+
+        assertThat(artifact.getChecksum()).isEqualTo(FOO_CHECKSUM);
+        assertThat(searches).isEqualTo(2);
+    }
+
+    @Test void shouldNotCacheErrors() {
+        catchThrowable(() -> cache.lookup(FOO_CHECKSUM, checksum -> {
+            searches++;
+            throw new RuntimeException("repository down");
+        }));
+
+        cache.lookup(FOO_CHECKSUM, this::search);
+
+        assertThat(searches).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test void shouldEvictLeastRecentlyUsed() {
+        cache.lookup(FOO_CHECKSUM, this::search);
+        cache.lookup(BAR_CHECKSUM, this::search);
+        cache.lookup(FOO_CHECKSUM, this::search);
+
+        cache.lookup(BAZ_CHECKSUM, this::search);
+        cache.lookup(FOO_CHECKSUM, this::search);
+        cache.lookup(BAR_CHECKSUM, this::search);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(searches).isEqualTo(4);
+    }
+
+    @Test void shouldSearchOnlyMissingChecksumsInBulk() {
+        cache.lookup(FOO_CHECKSUM, this::search);
+        List<Collection<Checksum>> searched = new ArrayList<>();
+
+        Map<Checksum, Artifact> artifacts = cache.lookupAll(asList(FOO_CHECKSUM, BAR_CHECKSUM), checksums -> {
+            searched.add(checksums);
+            return Map.of(BAR_CHECKSUM, search(BAR_CHECKSUM));
+        });
+
+        assertThat(searched).containsExactly(singletonList(BAR_CHECKSUM));
+        assertThat(artifacts.keySet()).containsExactly(FOO_CHECKSUM, BAR_CHECKSUM);
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(2);
+    }
+
+    @Test void shouldCacheChecksumsMissingInBulkSearchAsUnknown() {
+        cache.lookupAll(singletonList(FOO_CHECKSUM), checksums -> Map.of());
+
+        Throwable thrown = catchThrowable(() -> cache.lookup(FOO_CHECKSUM, this::search));
+
+        assertThat(thrown).isInstanceOf(UnknownChecksumException.class);
+        assertThat(searches).isEqualTo(0);
+    }
+
+    @Test void shouldNotCacheNonUniqueChecksumsOfBulkSearch() {
+        cache.lookupAll(singletonList(FOO_CHECKSUM), checksums -> Map.of(FOO_CHECKSUM, Repository.notUnique(FOO_CHECKSUM)));
+
+        Artifact artifact = cache.lookup(FOO_CHECKSUM, this::search);
+
+        assertThat(artifact.getError()).isNull();
+        assertThat(searches).isEqualTo(1);
+    }
+}
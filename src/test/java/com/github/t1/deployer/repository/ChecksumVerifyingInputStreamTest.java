@@ -0,0 +1,86 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Checksum;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class ChecksumVerifyingInputStreamTest {
+    private static final byte[] FOO = "foo-content".getBytes(UTF_8);
+    private static final Checksum FOO_CHECKSUM = Checksum.sha1(FOO);
+    private static final Checksum BAR_CHECKSUM = Checksum.sha1("bar-content".getBytes(UTF_8));
+
+    @TempDir Path dir;
+
+    private static InputStream verifying(Checksum expected) {
+        return new ChecksumVerifyingInputStream(new ByteArrayInputStream(FOO), () -> expected);
+    }
+
+    @Test void shouldPassThroughMatchingBytes() throws IOException {
+        try (InputStream inputStream = verifying(FOO_CHECKSUM)) {
+            assertThat(inputStream.readAllBytes()).isEqualTo(FOO);
+        }
+    }
+
+    @Test void shouldVerifySingleByteReads() throws IOException {
+        try (InputStream inputStream = verifying(FOO_CHECKSUM)) {
+            int count = 0;
+            while (inputStream.read() >= 0)
+                count++;
+            assertThat(count).isEqualTo(FOO.length);
+        }
+    }
+
+    @Test void shouldVerifySkippedBytes() {
+        InputStream inputStream = verifying(BAR_CHECKSUM);
+
+        Throwable thrown = catchThrowable(() -> {
+            assertThat(inputStream.skip(4)).isEqualTo(4);
+            inputStream.readAllBytes();
+        });
+
+        assertThat(thrown).isInstanceOf(ChecksumMismatchException.class);
+    }
+
+    @Test void shouldFailOnMismatchAtEnd() {
+        InputStream inputStream = verifying(BAR_CHECKSUM);
+
+        Throwable thrown = catchThrowable(inputStream::readAllBytes);
+
+        assertThat(thrown).isInstanceOf(ChecksumMismatchException.class)
+            .hasMessage("downloaded artifact has checksum [" + FOO_CHECKSUM + "] but expected [" + BAR_CHECKSUM + "]");
+    }
+
+    @Test void shouldGetExpectedChecksumOnlyAtEnd() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        InputStream inputStream = new ChecksumVerifyingInputStream(new ByteArrayInputStream(FOO), () -> {
+            calls.incrementAndGet();
+            return FOO_CHECKSUM;
+        });
+
+        inputStream.read(new byte[4]);
+        assertThat(calls).hasValue(0);
+        inputStream.readAllBytes();
+        inputStream.read();
+
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test void shouldStreamChecksumOfFile() throws IOException {
+        Path file = dir.resolve("foo");
+        Files.write(file, FOO);
+
+        assertThat(Checksum.sha1(file)).isEqualTo(FOO_CHECKSUM);
+        assertThat(Checksum.sha256(file)).isEqualTo(Checksum.of(Checksum.digest("SHA-256").digest(FOO)));
+    }
+}
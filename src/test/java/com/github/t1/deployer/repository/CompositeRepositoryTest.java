@@ -0,0 +1,263 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Age;
+import com.github.t1.deployer.model.Artifact;
+import com.github.t1.deployer.model.ArtifactId;
+import com.github.t1.deployer.model.ArtifactType;
+import com.github.t1.deployer.model.Checksum;
+import com.github.t1.deployer.model.Classifier;
+import com.github.t1.deployer.model.GroupId;
+import com.github.t1.deployer.model.Version;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.NotFoundException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.t1.deployer.testtools.TestData.EXECUTOR;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class CompositeRepositoryTest {
+    private static final GroupId GROUP_ID = new GroupId("org.foo");
+    private static final ArtifactId ARTIFACT_ID = new ArtifactId("foo");
+    private static final Checksum FOO = Checksum.sha1("foo".getBytes(UTF_8));
+    private static final Checksum BAR = Checksum.sha1("bar".getBytes(UTF_8));
+
+    private static class StubRepository extends Repository {
+        final String name;
+        final Map<Checksum, Artifact> artifacts = new LinkedHashMap<>();
+        final List<Version> versions = new ArrayList<>();
+        final AtomicInteger calls = new AtomicInteger();
+        CountDownLatch blocked;
+        RuntimeException failure;
+
+        StubRepository(String name) { this.name = name; }
+
+        StubRepository knowing(Checksum checksum) {
+            artifacts.put(checksum, new Artifact().setGroupId(GROUP_ID).setArtifactId(ARTIFACT_ID)
+                .setVersion(new Version(name)).setType(ArtifactType.war).setChecksum(checksum));
+            return this;
+        }
+
+        private void call() {
+            calls.incrementAndGet();
+            if (blocked != null) {
+                try {
+                    blocked.await(10, SECONDS);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            if (failure != null)
+                throw failure;
+        }
+
+        @Override public Artifact searchByChecksum(Checksum checksum) {
+            call();
+            Artifact artifact = artifacts.get(checksum);
+            if (artifact == null)
+                throw new UnknownChecksumException(checksum);
+            return artifact;
+        }
+
+        @Override public Map<Checksum, Artifact> searchByChecksums(Collection<Checksum> checksums) {
+            call();
+            Map<Checksum, Artifact> result = new LinkedHashMap<>();
+            checksums.stream().filter(artifacts::containsKey).forEach(checksum -> result.put(checksum, artifacts.get(checksum)));
+            return result;
+        }
+
+        @Override protected Artifact lookupArtifact(GroupId groupId, ArtifactId artifactId, Version version,
+                                                    ArtifactType type, Classifier classifier) {
+            call();
+            return artifacts.values().stream()
+                .filter(artifact -> artifact.getVersion().equals(version))
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("not found: " + version));
+        }
+
+        @Override public List<Version> listVersions(GroupId groupId, ArtifactId artifactId, boolean snapshot) {
+            call();
+            return versions;
+        }
+
+        @Override public String toString() { return name; }
+    }
+
+    private final StubRepository first = new StubRepository("1");
+    private final StubRepository second = new StubRepository("2");
+
+    private CompositeRepository composite() {
+        return new CompositeRepository(new HedgingConfig().setDelay(new Age("50 ms")), asList(first, second), EXECUTOR);
+    }
+
+    @AfterEach void release() {
+        if (first.blocked != null)
+            first.blocked.countDown();
+    }
+
+    @Test void shouldSearchFirstRepository() {
+        first.knowing(FOO);
+        second.knowing(FOO);
+
+        Artifact artifact = composite().searchByChecksum(FOO);
+
+        assertThat(artifact.getVersion()).isEqualTo(new Version("1"));
+        assertThat(second.calls).hasValue(0);
+    }
+
+    @Test void shouldHedgeSlowRepository() {
+        first.knowing(FOO).blocked = new CountDownLatch(1);
+        second.knowing(FOO);
+
+        Artifact artifact = composite().searchByChecksum(FOO);
+
+        assertThat(artifact.getVersion()).isEqualTo(new Version("2"));
+        assertThat(first.calls).hasValue(1);
+    }
+
+    @Test void shouldFailOverToNextRepository() {
+        first.failure = new RuntimeException("down");
+        second.knowing(FOO);
+
+        Artifact artifact = composite().searchByChecksum(FOO);
+
+        assertThat(artifact.getVersion()).isEqualTo(new Version("2"));
+    }
+
+    @Test void shouldPreferHealthyRepositoryAfterFailure() {
+        first.failure = new RuntimeException("down");
+        second.knowing(FOO);
+        CompositeRepository composite = composite();
+        composite.searchByChecksum(FOO);
+
+        composite.searchByChecksum(FOO);
+
+        assertThat(first.calls).hasValue(1);
+        assertThat(second.calls).hasValue(2);
+    }
+
+    @Test void shouldFallThroughWhenNotFound() {
+        second.knowing(FOO);
+
+        Artifact artifact = composite().searchByChecksum(FOO);
+
+        assertThat(artifact.getVersion()).isEqualTo(new Version("2"));
+    }
+
+    @Test void shouldThrowNotFoundWhenNoRepositoryKnowsTheChecksum() {
+        second.failure = new RuntimeException("down");
+
+        Throwable thrown = catchThrowable(() -> composite().searchByChecksum(FOO));
+
+        assertThat(thrown).isInstanceOf(UnknownChecksumException.class);
+    }
+
+    @Test void shouldThrowFailureWhenAllRepositoriesFail() {
+        first.failure = new RuntimeException("down 1");
+        second.failure = new RuntimeException("down 2");
+
+        Throwable thrown = catchThrowable(() -> composite().searchByChecksum(FOO));
+
+        assertThat(thrown).hasMessage("down 1");
+    }
+
+    @Test void shouldLookupArtifactInNextRepository() {
+        second.knowing(FOO);
+
+        Artifact artifact = composite().resolveArtifact(GROUP_ID, ARTIFACT_ID, new Version("2"), ArtifactType.war, null);
+
+        assertThat(artifact.getChecksumRaw()).isEqualTo(FOO);
+    }
+
+    @Test void shouldListVersionsOfNextRepository() {
+        second.versions.add(new Version("1.0"));
+
+        List<Version> versions = composite().listVersions(GROUP_ID, ARTIFACT_ID, false);
+
+        assertThat(versions).containsExactly(new Version("1.0"));
+    }
+
+    @Test void shouldListUnionOfVersionsOfAllRepositories() {
+        first.versions.addAll(asList(new Version("1.0"), new Version("2.0")));
+        second.versions.addAll(asList(new Version("1.0"), new Version("1.1")));
+
+        List<Version> versions = composite().listVersions(GROUP_ID, ARTIFACT_ID, false);
+
+        assertThat(versions).containsExactly(new Version("1.0"), new Version("1.1"), new Version("2.0"));
+    }
+
+    @Test void shouldListVersionsOfRepositoriesThatReplied() {
+        first.failure = new RuntimeException("down");
+        second.versions.add(new Version("1.0"));
+
+        List<Version> versions = composite().listVersions(GROUP_ID, ARTIFACT_ID, false);
+
+        assertThat(versions).containsExactly(new Version("1.0"));
+    }
+
+    @Test void shouldFailToListVersionsWhenAllRepositoriesFail() {
+        first.failure = new RuntimeException("first down");
+        second.failure = new RuntimeException("second down");
+
+        Throwable thrown = catchThrowable(() -> composite().listVersions(GROUP_ID, ARTIFACT_ID, false));
+
+        assertThat(thrown).hasMessage("first down");
+    }
+
+    @Test void shouldListNoVersions() {
+        List<Version> versions = composite().listVersions(GROUP_ID, ARTIFACT_ID, false);
+
+        assertThat(versions).isEmpty();
+    }
+
+    @Test void shouldSearchMissingChecksumsInOtherRepositories() {
+        first.knowing(FOO);
+        second.knowing(BAR);
+        Checksum unknown = Checksum.sha1("unknown".getBytes(UTF_8));
+
+        Map<Checksum, Artifact> artifacts = composite().searchByChecksums(asList(BAR, unknown, FOO));
+
+        assertThat(artifacts.keySet()).containsExactly(BAR, FOO);
+        assertThat(artifacts.get(BAR).getVersion()).isEqualTo(new Version("2"));
+        assertThat(second.calls).hasValue(1);
+    }
+
+    @Test void shouldSearchNonUniqueChecksumsInOtherRepositories() {
+        first.knowing(BAR).artifacts.put(FOO, Repository.notUnique(FOO));
+        second.knowing(FOO);
+
+        Map<Checksum, Artifact> artifacts = composite().searchByChecksums(asList(FOO, BAR));
+
+        assertThat(artifacts.keySet()).containsExactly(FOO, BAR);
+        assertThat(artifacts.get(FOO).getVersion()).isEqualTo(new Version("2"));
+    }
+
+    @Test void shouldKeepNonUniqueChecksumsUnknownToOtherRepositories() {
+        first.artifacts.put(FOO, Repository.notUnique(FOO));
+
+        Map<Checksum, Artifact> artifacts = composite().searchByChecksums(singletonList(FOO));
+
+        assertThat(artifacts.get(FOO).getError()).isEqualTo("error retrieving artifact");
+    }
+
+    @Test void shouldNotAskOtherRepositoriesWhenAllChecksumsAreFound() {
+        first.knowing(FOO);
+
+        Map<Checksum, Artifact> artifacts = composite().searchByChecksums(singletonList(FOO));
+
+        assertThat(artifacts).containsOnlyKeys(FOO);
+        assertThat(second.calls).hasValue(0);
+    }
+}
@@ -1,6 +1,8 @@
 package com.github.t1.deployer.repository;
 
+import com.github.t1.deployer.model.Artifact;
 import com.github.t1.deployer.model.ArtifactId;
+import com.github.t1.deployer.model.Checksum;
 import com.github.t1.deployer.model.GroupId;
 import com.github.t1.deployer.model.Version;
 import com.github.t1.jaxrsclienttest.JaxRsTestExtension;
@@ -14,11 +16,16 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import java.net.URI;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import static com.github.t1.deployer.model.ArtifactType.war;
 import static com.github.t1.deployer.repository.ArtifactoryMock.AMBIGUOUS_CHECKSUM;
+import static com.github.t1.deployer.repository.ArtifactoryMock.UNKNOWN_CHECKSUM;
 import static com.github.t1.deployer.testtools.TestData.JDEPEND_291_CHECKSUM;
 import static com.github.t1.deployer.testtools.TestData.JOLOKIA_133_CHECKSUM;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.joining;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
@@ -67,9 +74,15 @@ class MavenCentralTest extends MavenCentralTestParent {
         @Produces(APPLICATION_JSON)
         @GET public String solrsearch(
             @QueryParam("q") String q,
+            @QueryParam("fl") String fl,
             @QueryParam("core") String core,
             @QueryParam("rows") int rows,
             @QueryParam("wt") String wt) {
+            if (q.contains(" OR ")) {
+                assertChecksumSearch(core, rows, wt);
+                assertThat(fl).isEqualTo("g,a,v,p,1");
+                return bulkChecksumSearch(q);
+            }
             switch (q) {
                 case "1:f6e5786754116cc8e1e9261b2a117701747b1259":
                     assertChecksumSearch(core, rows, wt);
@@ -149,6 +162,24 @@ class MavenCentralTest extends MavenCentralTestParent {
             throw new NotFoundException();
         }
 
+        private String bulkChecksumSearch(String q) {
+            String docs = Stream.of(q.split(" OR "))
+                .map(term -> term.substring("1:".length()))
+                .flatMap(sha1 -> sha1.equals(JOLOKIA_133_CHECKSUM.toString())
+                    ? Stream.of(JOLOKIA_133_JSON.replace("\"v\": \"1.3.3\"", "\"v\": \"1.3.3\", \"1\": \"" + sha1 + "\""))
+                    : sha1.equals(AMBIGUOUS_CHECKSUM.toString())
+                    ? Stream.of("{\"v\": \"1.2.3\", \"1\": \"" + sha1 + "\"}", "{\"v\": \"1.3.2\", \"1\": \"" + sha1 + "\"}")
+                    : Stream.empty())
+                .collect(joining(","));
+            return "{\n"
+                + "    \"response\": {\n"
+                + "        \"docs\": [\n"
+                + docs
+                + "        ]\n"
+                + "    }"
+                + "}";
+        }
+
         private void assertChecksumSearch(@QueryParam("core") String core, @QueryParam("rows") int rows, @QueryParam("wt") String wt) {
             assertThat(core).isNull();
             assertThat(rows).isEqualTo(20);
@@ -194,6 +225,24 @@ class MavenCentralTest extends MavenCentralTestParent {
         assertThat(thrown).isInstanceOf(RuntimeException.class).hasMessage("checksum not unique in repository: '" + AMBIGUOUS_CHECKSUM + "'");
     }
 
+    @Test void shouldLookupByChecksums() {
+        Map<Checksum, Artifact> artifacts = repository.lookupByChecksums(asList(JOLOKIA_133_CHECKSUM, UNKNOWN_CHECKSUM, null));
+
+        assertThat(artifacts.keySet()).containsExactly(JOLOKIA_133_CHECKSUM, UNKNOWN_CHECKSUM, null);
+        assertJolokia133(artifacts.get(JOLOKIA_133_CHECKSUM), JOLOKIA_133_CHECKSUM);
+        assertThat(artifacts.get(UNKNOWN_CHECKSUM).getError()).isEqualTo("unknown");
+        assertThat(artifacts.get(null).getError()).isEqualTo("empty checksum");
+    }
+
+    @Test void shouldLookupAmbiguousChecksumAsErrorInBulkAndSingle() {
+        Map<Checksum, Artifact> artifacts = repository.lookupByChecksums(asList(JOLOKIA_133_CHECKSUM, AMBIGUOUS_CHECKSUM));
+
+        assertJolokia133(artifacts.get(JOLOKIA_133_CHECKSUM), JOLOKIA_133_CHECKSUM);
+        assertThat(artifacts.get(AMBIGUOUS_CHECKSUM).getError()).isEqualTo("error retrieving artifact");
+        assertThat(artifacts.get(AMBIGUOUS_CHECKSUM))
+            .hasToString(repository.lookupByChecksum(AMBIGUOUS_CHECKSUM).toString());
+    }
+
     /** Doesn't exist on Maven Central */
     @Test void shouldFailToResolveLatestArtifactWithoutVersions() {
         BadRequestException thrown = catchThrowableOfType(() ->
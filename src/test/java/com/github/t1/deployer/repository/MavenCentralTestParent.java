@@ -32,7 +32,7 @@ abstract class MavenCentralTestParent {
 
     protected abstract URI baseUri();
 
-    protected final Repository repository = new MavenCentralRepository(ClientBuilder.newClient().target(baseUri()));
+    protected final Repository repository = new MavenCentralRepository(ClientBuilder.newClient(), baseUri());
 
     @Test void shouldLookupByChecksum() {
         Artifact artifact = repository.lookupByChecksum(JOLOKIA_133_CHECKSUM);
@@ -142,7 +142,7 @@ abstract class MavenCentralTestParent {
         assertThat(versions).extracting(Version::toString).doesNotContain("1.3.4-SNAPSHOT");
     }
 
-    private static void assertJolokia133(Artifact artifact, Checksum checksum) {
+    static void assertJolokia133(Artifact artifact, Checksum checksum) {
         assertThat(artifact.getGroupId()).isEqualTo(ORG_JOLOKIA);
         assertThat(artifact.getArtifactId()).isEqualTo(JOLOKIA_WAR);
         assertThat(artifact.getVersion()).isEqualTo(VERSION_1_3_3);
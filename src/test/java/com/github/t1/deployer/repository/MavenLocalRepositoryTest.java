@@ -0,0 +1,261 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Artifact;
+import com.github.t1.deployer.model.ArtifactId;
+import com.github.t1.deployer.model.Checksum;
+import com.github.t1.deployer.model.Classifier;
+import com.github.t1.deployer.model.GroupId;
+import com.github.t1.deployer.model.Version;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.ws.rs.NotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.t1.deployer.model.ArtifactType.jar;
+import static com.github.t1.deployer.model.ArtifactType.war;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.ZoneOffset.UTC;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class MavenLocalRepositoryTest {
+    private static final GroupId GROUP_ID = new GroupId("org.foo");
+    private static final ArtifactId ARTIFACT_ID = new ArtifactId("foo");
+
+    private static class TestClock extends Clock {
+        Instant now = Instant.parse("2020-01-01T00:00:00Z");
+
+        @Override public ZoneId getZone() { return UTC; }
+
+        @Override public Clock withZone(ZoneId zone) { throw new UnsupportedOperationException(); }
+
+        @Override public Instant instant() { return now; }
+
+        void advance(Duration duration) { now = now.plus(duration); }
+    }
+
+    @TempDir Path root;
+    private final TestClock clock = new TestClock();
+
+    private MavenLocalRepository repository() { return new MavenLocalRepository(root, clock); }
+
+    @SneakyThrows(IOException.class)
+    private Checksum givenFile(String version, String fileName, String contents, boolean withSha1) {
+        Path dir = root.resolve("org/foo/foo").resolve(version);
+        Files.createDirectories(dir);
+        Path file = dir.resolve(fileName);
+        Files.write(file, contents.getBytes(UTF_8));
+        Checksum checksum = Checksum.sha1(file);
+        if (withSha1)
+            Files.write(dir.resolve(fileName + ".sha1"), (checksum + "  " + fileName).getBytes(UTF_8));
+        return checksum;
+    }
+
+    @SneakyThrows(IOException.class)
+    private static String read(Artifact artifact) {
+        try (InputStream inputStream = artifact.getInputStream()) {
+            return new String(inputStream.readAllBytes(), UTF_8);
+        }
+    }
+
+    @Test void shouldListStableVersions() {
+        givenFile("1.0", "foo-1.0.war", "foo-1.0", false);
+        givenFile("1.1", "foo-1.1.war", "foo-1.1", false);
+        givenFile("1.2-SNAPSHOT", "foo-1.2-SNAPSHOT.war", "foo-1.2", false);
+
+        List<Version> versions = repository().listVersions(GROUP_ID, ARTIFACT_ID, false);
+
+        assertThat(versions).containsExactly(new Version("1.0"), new Version("1.1"));
+    }
+
+    @Test void shouldListSnapshotVersions() {
+        givenFile("1.0", "foo-1.0.war", "foo-1.0", false);
+        givenFile("1.2-SNAPSHOT", "foo-1.2-SNAPSHOT.war", "foo-1.2", false);
+
+        List<Version> versions = repository().listVersions(GROUP_ID, ARTIFACT_ID, true);
+
+        assertThat(versions).containsExactly(new Version("1.2-SNAPSHOT"));
+    }
+
+    @Test void shouldListNoVersionsOfUnknownArtifact() {
+        List<Version> versions = repository().listVersions(GROUP_ID, new ArtifactId("unknown"), false);
+
+        assertThat(versions).isEmpty();
+    }
+
+    @Test void shouldResolveArtifactWithSha1File() {
+        Checksum checksum = givenFile("1.0", "foo-1.0.war", "foo-1.0", true);
+
+        Artifact artifact = repository().resolveArtifact(GROUP_ID, ARTIFACT_ID, new Version("1.0"), war, null);
+
+        assertThat(artifact.getChecksumRaw()).isEqualTo(checksum);
+        assertThat(read(artifact)).isEqualTo("foo-1.0");
+    }
+
+    @Test void shouldResolveArtifactWithoutSha1File() {
+        Checksum checksum = givenFile("1.0", "foo-1.0.war", "foo-1.0", false);
+
+        Artifact artifact = repository().resolveArtifact(GROUP_ID, ARTIFACT_ID, new Version("1.0"), war, null);
+
+        assertThat(artifact.getChecksum()).isEqualTo(checksum);
+    }
+
+    @Test void shouldResolveLatestArtifact() {
+        givenFile("1.0", "foo-1.0.war", "foo-1.0", true);
+        givenFile("1.1", "foo-1.1.war", "foo-1.1", true);
+
+        Artifact artifact = repository().resolveArtifact(GROUP_ID, ARTIFACT_ID, new Version("LATEST"), war, null);
+
+        assertThat(artifact.getVersion()).isEqualTo(new Version("1.1"));
+        assertThat(read(artifact)).isEqualTo("foo-1.1");
+    }
+
+    @Test void shouldResolveLatestTimestampedSnapshot() {
+        givenFile("1.2-SNAPSHOT", "foo-1.2-20200101.120000-1.war", "old", true);
+        givenFile("1.2-SNAPSHOT", "foo-1.2-20200102.120000-2.war", "new", true);
+
+        Artifact artifact = repository().resolveArtifact(GROUP_ID, ARTIFACT_ID, new Version("1.2-SNAPSHOT"), war, null);
+
+        assertThat(read(artifact)).isEqualTo("new");
+    }
+
+    @Test void shouldResolveArtifactWithClassifier() {
+        givenFile("1.0", "foo-1.0.jar", "plain", true);
+        givenFile("1.0", "foo-1.0-extra.jar", "extra", true);
+
+        Artifact artifact = repository().resolveArtifact(GROUP_ID, ARTIFACT_ID, new Version("1.0"), jar,
+            new Classifier("extra"));
+
+        assertThat(read(artifact)).isEqualTo("extra");
+    }
+
+    @Test void shouldFailToResolveUnknownArtifact() {
+        Throwable thrown = catchThrowable(() ->
+            repository().resolveArtifact(GROUP_ID, ARTIFACT_ID, new Version("9.9"), war, null));
+
+        assertThat(thrown).isInstanceOf(NotFoundException.class)
+            .hasMessage("artifact not in repository: org.foo:foo:9.9:war");
+    }
+
+    @Test void shouldSearchByChecksum() {
+        Checksum checksum = givenFile("1.0", "foo-1.0.war", "foo-1.0", true);
+
+        Artifact artifact = repository().searchByChecksum(checksum);
+
+        assertThat(artifact.getGroupId()).isEqualTo(GROUP_ID);
+        assertThat(artifact.getArtifactId()).isEqualTo(ARTIFACT_ID);
+        assertThat(artifact.getVersion()).isEqualTo(new Version("1.0"));
+        assertThat(artifact.getType()).isEqualTo(war);
+        assertThat(artifact.getClassifier()).isNull();
+        assertThat(read(artifact)).isEqualTo("foo-1.0");
+    }
+
+    @Test void shouldSearchByChecksumOfTimestampedSnapshotWithClassifier() {
+        Checksum checksum = givenFile("1.2-SNAPSHOT", "foo-1.2-20200101.120000-1-extra.jar", "foo", true);
+
+        Artifact artifact = repository().searchByChecksum(checksum);
+
+        assertThat(artifact.getVersion()).isEqualTo(new Version("1.2-SNAPSHOT"));
+        assertThat(artifact.getClassifier()).isEqualTo(new Classifier("extra"));
+    }
+
+    @Test void shouldNotFindChecksumWithoutSha1File() {
+        Checksum checksum = givenFile("1.0", "foo-1.0.war", "foo-1.0", false);
+
+        Throwable thrown = catchThrowable(() -> repository().searchByChecksum(checksum));
+
+        assertThat(thrown).isInstanceOf(UnknownChecksumException.class);
+    }
+
+    @Test void shouldIndexFilesAddedAfterFirstScan() throws IOException {
+        MavenLocalRepository repository = repository();
+        Checksum foo10 = givenFile("1.0", "foo-1.0.war", "foo-1.0", true);
+        repository.searchByChecksum(foo10);
+        Checksum foo11 = givenFile("1.1", "foo-1.1.war", "foo-1.1", true);
+        // synced mirrors keep the original modification time
+        Path sha1File = root.resolve("org/foo/foo/1.1/foo-1.1.war.sha1");
+        Files.setLastModifiedTime(sha1File, FileTime.fromMillis(0));
+        clock.advance(MavenLocalRepository.MIN_RESCAN_INTERVAL);
+
+        Artifact artifact = repository.searchByChecksum(foo11);
+
+        assertThat(artifact.getVersion()).isEqualTo(new Version("1.1"));
+    }
+
+    @Test void shouldNotRescanWithinMinInterval() {
+        MavenLocalRepository repository = repository();
+        Checksum foo10 = givenFile("1.0", "foo-1.0.war", "foo-1.0", true);
+        repository.searchByChecksum(foo10);
+        Checksum foo11 = givenFile("1.1", "foo-1.1.war", "foo-1.1", true);
+        clock.advance(MavenLocalRepository.MIN_RESCAN_INTERVAL.minusSeconds(1));
+
+        Throwable thrown = catchThrowable(() -> repository.searchByChecksum(foo11));
+
+        assertThat(thrown).isInstanceOf(UnknownChecksumException.class);
+    }
+
+    @Test void shouldIndexArtifactSyncedAfterItsSha1File() throws IOException {
+        MavenLocalRepository repository = repository();
+        Checksum checksum = givenFile("1.0", "foo-1.0.war", "foo-1.0", true);
+        Path file = root.resolve("org/foo/foo/1.0/foo-1.0.war");
+        Path moved = Files.move(file, root.resolve("foo-1.0.war"));
+        catchThrowable(() -> repository.searchByChecksum(checksum));
+        Files.move(moved, file);
+        clock.advance(MavenLocalRepository.MIN_RESCAN_INTERVAL);
+
+        Artifact artifact = repository.searchByChecksum(checksum);
+
+        assertThat(artifact.getVersion()).isEqualTo(new Version("1.0"));
+    }
+
+    @Test void shouldNotFindRemovedFile() throws IOException {
+        MavenLocalRepository repository = repository();
+        Checksum checksum = givenFile("1.0", "foo-1.0.war", "foo-1.0", true);
+        repository.searchByChecksum(checksum);
+        Files.delete(root.resolve("org/foo/foo/1.0/foo-1.0.war"));
+
+        Throwable thrown = catchThrowable(() -> repository.searchByChecksum(checksum));
+
+        assertThat(thrown).isInstanceOf(UnknownChecksumException.class);
+    }
+
+    @Test void shouldSearchByChecksums() {
+        Checksum foo10 = givenFile("1.0", "foo-1.0.war", "foo-1.0", true);
+        Checksum foo11 = givenFile("1.1", "foo-1.1.war", "foo-1.1", true);
+        Checksum unknown = Checksum.sha1("unknown".getBytes(UTF_8));
+
+        Map<Checksum, Artifact> artifacts = repository().searchByChecksums(asList(foo10, unknown, foo11));
+
+        assertThat(artifacts.keySet()).containsExactly(foo10, foo11);
+        assertThat(artifacts.get(foo11).getVersion()).isEqualTo(new Version("1.1"));
+    }
+
+    @Test void shouldCountChecksumCacheHitsAndMissesOfSingleAndBulkLookups() {
+        Checksum foo10 = givenFile("1.0", "foo-1.0.war", "foo-1.0", true);
+        Checksum foo11 = givenFile("1.1", "foo-1.1.war", "foo-1.1", true);
+        Repository repository = repository().cachedIn(new ChecksumCache(new ChecksumCacheConfig(), clock));
+
+        repository.lookupByChecksum(foo10);
+        repository.lookupByChecksum(foo10);
+        repository.lookupByChecksums(asList(foo10, foo11));
+
+        assertThat(repository.checksumCacheCounts()).isEqualTo(new CacheCounts(2, 2));
+    }
+
+    @Test void shouldHaveNoChecksumCacheCountsWithoutChecksumCache() {
+        assertThat(repository().checksumCacheCounts()).isNull();
+    }
+}
@@ -1,17 +1,38 @@
 package com.github.t1.deployer.repository;
 
+import com.github.t1.deployer.model.Age;
+import com.github.t1.deployer.model.ArtifactId;
+import com.github.t1.deployer.model.GroupId;
 import com.github.t1.jaxrsclienttest.JaxRsTestExtension;
+import lombok.SneakyThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.Path;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import static com.github.t1.deployer.repository.RepositoryType.artifactory;
 import static com.github.t1.deployer.repository.RepositoryType.mavenCentral;
+import static com.github.t1.deployer.repository.RepositoryType.mavenLocal;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.ws.rs.core.HttpHeaders.ACCEPT_ENCODING;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_ENCODING;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
 public class RepositoryProducerTest {
     @RegisterExtension static JaxRsTestExtension MOCK = new JaxRsTestExtension(new LocalArtifactoryMock());
@@ -22,14 +43,39 @@ public class RepositoryProducerTest {
             ++artifactoryCalls;
             return "okay";
         }
+
+        @GET @Path("/slow") public String slow() throws InterruptedException {
+            Thread.sleep(1000);
+            return "slow";
+        }
+
+        @GET @Path("/metadata") public Response metadata(@HeaderParam(ACCEPT_ENCODING) String acceptEncoding) {
+            acceptEncodings.add(String.valueOf(acceptEncoding));
+            return "gzip".equals(acceptEncoding)
+                ? Response.ok(gzip("{\"foo\":\"bar\"}")).header(CONTENT_ENCODING, "gzip").build()
+                : Response.ok("{\"foo\":\"bar\"}").build();
+        }
+    }
+
+    @SneakyThrows(IOException.class)
+    private static byte[] gzip(String string) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(string.getBytes(UTF_8));
+        }
+        return out.toByteArray();
     }
 
     private static int artifactoryCalls = 0;
+    private static final List<String> acceptEncodings = new ArrayList<>();
 
     private final RepositoryProducer producer = new RepositoryProducer();
 
     @BeforeEach
-    public void setUp() { artifactoryCalls = 0; }
+    public void setUp() {
+        artifactoryCalls = 0;
+        acceptEncodings.clear();
+    }
 
     @Test public void shouldUseArtifactory() {
         producer.type = artifactory;
@@ -51,6 +97,16 @@ public class RepositoryProducerTest {
         assertThat(artifactoryCalls).isEqualTo(0);
     }
 
+    @Test public void shouldUseMavenLocal() {
+        producer.type = mavenLocal;
+        producer.uri = URI.create("/tmp/maven-repository");
+
+        Repository repository = producer.repository();
+
+        assertThat(repository).isInstanceOf(MavenLocalRepository.class);
+        assertThat(artifactoryCalls).isEqualTo(0);
+    }
+
     @Test public void shouldLookupArtifactory() {
         producer.uri = MOCK.baseUri();
 
@@ -77,4 +133,64 @@ public class RepositoryProducerTest {
         assertThat(repository).isInstanceOf(MavenCentralRepository.class);
         assertThat(artifactoryCalls).isEqualTo(0);
     }
+
+    @Test public void shouldTimeOutReading() {
+        Client client = RepositoryProducer.buildClient(new TransportConfig().setReadTimeout(new Age("100 ms")));
+
+        Throwable thrown = catchThrowable(() -> client.target(MOCK.baseUri()).path("slow").request().get(String.class));
+
+        assertThat(thrown).isInstanceOf(ProcessingException.class).hasRootCauseInstanceOf(SocketTimeoutException.class);
+    }
+
+    @Test public void shouldTimeOutWaitingForPooledConnection() {
+        Client client = RepositoryProducer.buildClient(new TransportConfig()
+            .setPoolSize(1).setCheckoutTimeout(new Age("100 ms")));
+        Response held = client.target(MOCK.baseUri()).request().get();
+
+        try {
+            Throwable thrown = catchThrowable(() -> client.target(MOCK.baseUri()).request().get(String.class));
+
+            assertThat(thrown).isInstanceOf(ProcessingException.class);
+        } finally {
+            held.close();
+        }
+    }
+
+    @Test public void shouldReturnConnectionWhenArtifactoryReportsNotFound() {
+        Client client = RepositoryProducer.buildClient(new TransportConfig()
+            .setPoolSize(1).setCheckoutTimeout(new Age("1 s")));
+        ArtifactoryRepository repository = new ArtifactoryRepository(client, MOCK.baseUri(), "snapshots", "releases");
+
+        for (int i = 0; i < 3; i++) {
+            Throwable thrown = catchThrowable(() ->
+                repository.listVersions(new GroupId("org.foo"), new ArtifactId("missing"), false));
+
+            assertThat(thrown).isInstanceOf(NotFoundException.class).hasMessageContaining("not in repository");
+        }
+    }
+
+    @Test public void shouldUnzipGzippedMetadata() {
+        Client client = RepositoryProducer.buildClient(new TransportConfig());
+
+        String metadata = client.target(MOCK.baseUri()).path("metadata").request(APPLICATION_JSON_TYPE).get(String.class);
+
+        assertThat(metadata).isEqualTo("{\"foo\":\"bar\"}");
+        assertThat(acceptEncodings).containsExactly("gzip");
+    }
+
+    @Test public void shouldNotAskForGzippedArtifacts() {
+        Client client = RepositoryProducer.buildClient(new TransportConfig());
+
+        client.target(MOCK.baseUri()).path("metadata").request("application/java-archive").get(String.class);
+
+        assertThat(acceptEncodings).doesNotContain("gzip");
+    }
+
+    @Test public void shouldNotAskForGzipWhenDisabled() {
+        Client client = RepositoryProducer.buildClient(new TransportConfig().setGzip(false));
+
+        client.target(MOCK.baseUri()).path("metadata").request(APPLICATION_JSON_TYPE).get(String.class);
+
+        assertThat(acceptEncodings).doesNotContain("gzip");
+    }
 }
@@ -0,0 +1,114 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.ArtifactId;
+import com.github.t1.deployer.model.Classifier;
+import com.github.t1.deployer.repository.ArtifactoryRepository.FileInfo;
+import com.github.t1.deployer.repository.ArtifactoryRepository.MavenMetadata;
+import com.github.t1.deployer.repository.ArtifactoryRepository.MavenMetadata.Versioning;
+import com.github.t1.deployer.repository.ArtifactoryRepository.MavenMetadata.Versioning.SnapshotVersion;
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.NotFoundException;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.github.t1.deployer.model.ArtifactType.jar;
+import static com.github.t1.deployer.model.ArtifactType.war;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class SnapshotMetadataTest {
+    private static final ArtifactId ARTIFACT_ID = new ArtifactId("foo");
+
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final Function<String, FileInfo> fetch = fileName -> {
+        fetches.incrementAndGet();
+        FileInfo fileInfo = new FileInfo();
+        fileInfo.setUri(URI.create(fileName));
+        return fileInfo;
+    };
+
+    private static SnapshotVersion snapshotVersion(String classifier, String extension, String value) {
+        SnapshotVersion snapshotVersion = new SnapshotVersion();
+        snapshotVersion.setClassifier(classifier);
+        snapshotVersion.setExtension(extension);
+        snapshotVersion.setValue(value);
+        return snapshotVersion;
+    }
+
+    private static MavenMetadata metadata(String lastUpdated, SnapshotVersion... snapshotVersions) {
+        Versioning versioning = new Versioning();
+        versioning.setLastUpdated(lastUpdated);
+        versioning.setSnapshotVersions(asList(snapshotVersions));
+        MavenMetadata metadata = new MavenMetadata();
+        metadata.setVersioning(versioning);
+        return metadata;
+    }
+
+    private static final MavenMetadata METADATA = metadata("20200101120000",
+        snapshotVersion(null, "pom", "1.0-20200101.120000-1"),
+        snapshotVersion("extra", "jar", "1.0-20200101.120000-1"),
+        snapshotVersion(null, "jar", "1.0-20200101.120000-2"));
+
+    @Test void shouldFindFileName() {
+        SnapshotMetadata metadata = new SnapshotMetadata(METADATA, null, null);
+
+        assertThat(metadata.fileName(ARTIFACT_ID, jar, null)).isEqualTo("foo-1.0-20200101.120000-2.jar");
+    }
+
+    @Test void shouldFindFileNameWithClassifier() {
+        SnapshotMetadata metadata = new SnapshotMetadata(METADATA, null, null);
+
+        assertThat(metadata.fileName(ARTIFACT_ID, jar, new Classifier("extra")))
+            .isEqualTo("foo-1.0-20200101.120000-1-extra.jar");
+    }
+
+    @Test void shouldFallBackToExtensionForUnknownClassifier() {
+        SnapshotMetadata metadata = new SnapshotMetadata(METADATA, null, null);
+
+        assertThat(metadata.fileName(ARTIFACT_ID, jar, new Classifier("other")))
+            .isEqualTo("foo-1.0-20200101.120000-2-other.jar");
+    }
+
+    @Test void shouldFailToFindFileNameForUnknownExtension() {
+        SnapshotMetadata metadata = new SnapshotMetadata(METADATA, null, null);
+
+        Throwable thrown = catchThrowable(() -> metadata.fileName(ARTIFACT_ID, war, null));
+
+        assertThat(thrown).isInstanceOf(NotFoundException.class).hasMessage("no metadata for extension [war]");
+    }
+
+    @Test void shouldFetchFileInfoOnlyOnce() {
+        SnapshotMetadata metadata = new SnapshotMetadata(METADATA, null, null);
+
+        metadata.fileInfo("foo.jar", fetch);
+        FileInfo fileInfo = metadata.fileInfo("foo.jar", fetch);
+
+        assertThat(fileInfo.getUri()).isEqualTo(URI.create("foo.jar"));
+        assertThat(fetches).hasValue(1);
+    }
+
+    @Test void shouldKeepFileInfosWhenRevalidatedMetadataWasNotUpdated() {
+        SnapshotMetadata metadata = new SnapshotMetadata(METADATA, "etag-1", null);
+        metadata.fileInfo("foo.jar", fetch);
+
+        SnapshotMetadata revalidated = metadata.revalidated(METADATA, "etag-2", "Wed, 01 Jan 2020 12:00:00 GMT");
+        revalidated.fileInfo("foo.jar", fetch);
+
+        assertThat(revalidated.getEtag()).isEqualTo("etag-2");
+        assertThat(revalidated.getLastModified()).isEqualTo("Wed, 01 Jan 2020 12:00:00 GMT");
+        assertThat(fetches).hasValue(1);
+    }
+
+    @Test void shouldDropFileInfosWhenRevalidatedMetadataWasUpdated() {
+        SnapshotMetadata metadata = new SnapshotMetadata(METADATA, "etag-1", null);
+        metadata.fileInfo("foo.jar", fetch);
+
+        SnapshotMetadata revalidated = metadata.revalidated(metadata("20200102120000"), "etag-2", null);
+        revalidated.fileInfo("foo.jar", fetch);
+
+        assertThat(fetches).hasValue(2);
+    }
+}
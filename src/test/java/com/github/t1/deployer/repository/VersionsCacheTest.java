@@ -0,0 +1,196 @@
+package com.github.t1.deployer.repository;
+
+import com.github.t1.deployer.model.Age;
+import com.github.t1.deployer.model.ArtifactId;
+import com.github.t1.deployer.model.GroupId;
+import com.github.t1.deployer.model.Version;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.time.ZoneOffset.UTC;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class VersionsCacheTest {
+    private static final GroupId GROUP_ID = new GroupId("org.foo");
+    private static final ArtifactId ARTIFACT_ID = new ArtifactId("foo");
+    private static final Version V1 = new Version("1.0");
+    private static final Version V2 = new Version("2.0");
+
+    private static class TestClock extends Clock {
+        Instant now = Instant.parse("2020-01-01T00:00:00Z");
+
+        @Override public ZoneId getZone() { return UTC; }
+
+        @Override public Clock withZone(ZoneId zone) { throw new UnsupportedOperationException(); }
+
+        @Override public Instant instant() { return now; }
+
+        void advance(Duration duration) { now = now.plus(duration); }
+    }
+
+    /** Collects the tasks, so the test can run them when it wants */
+    private static class TestExecutor extends AbstractExecutorService {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override public void execute(Runnable command) { tasks.add(command); }
+
+        void runAll() {
+            List<Runnable> run = new ArrayList<>(tasks);
+            tasks.clear();
+            run.forEach(Runnable::run);
+        }
+
+        @Override public void shutdown() {}
+
+        @Override public List<Runnable> shutdownNow() { return tasks; }
+
+        @Override public boolean isShutdown() { return false; }
+
+        @Override public boolean isTerminated() { return false; }
+
+        @Override public boolean awaitTermination(long timeout, TimeUnit unit) { return true; }
+    }
+
+    private final TestClock clock = new TestClock();
+    private final TestExecutor executor = new TestExecutor();
+    private final VersionsCache cache = new VersionsCache(new VersionsCacheConfig()
+        .setTtl(Age.ofMinutes(10))
+        .setRefreshAfter(Age.ofMinutes(8)), clock, executor);
+
+    private final List<VersionListing> fetched = new ArrayList<>();
+    private VersionListing current = VersionListing.of(singletonList(V1));
+
+    private VersionListing fetch(VersionListing previous) {
+        fetched.add(previous);
+        return (previous != null && previous.hasValidators() && previous.getEtag().equals(current.getEtag()))
+            ? previous : current;
+    }
+
+    private List<Version> versions() { return cache.versions(GROUP_ID, ARTIFACT_ID, false, this::fetch); }
+
+    @Test void shouldFetchOnFirstCall() {
+        List<Version> versions = versions();
+
+        assertThat(versions).containsExactly(V1);
+        assertThat(fetched).containsExactly((VersionListing) null);
+        assertThat(cache.misses()).isEqualTo(1);
+    }
+
+    @Test void shouldHitWithinTtl() {
+        versions();
+        clock.advance(Duration.ofMinutes(5));
+
+        List<Version> versions = versions();
+
+        assertThat(versions).containsExactly(V1);
+        assertThat(fetched).hasSize(1);
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(executor.tasks).isEmpty();
+    }
+
+    @Test void shouldReturnModifiableCopy() {
+        versions().add(V2);
+
+        assertThat(versions()).containsExactly(V1);
+    }
+
+    @Test void shouldFetchAgainAfterTtl() {
+        versions();
+        current = VersionListing.of(asList(V1, V2));
+        clock.advance(Duration.ofMinutes(10));
+
+        List<Version> versions = versions();
+
+        assertThat(versions).containsExactly(V1, V2);
+        assertThat(cache.misses()).isEqualTo(2);
+        assertThat(cache.revalidations()).isEqualTo(0);
+    }
+
+    @Test void shouldRevalidateEveryTimeWithValidators() {
+        current = new VersionListing(singletonList(V1), "\"1\"", null);
+        versions();
+        VersionListing first = current;
+        clock.advance(Duration.ofSeconds(1));
+
+        List<Version> versions = versions();
+
+        assertThat(versions).containsExactly(V1);
+        assertThat(fetched).containsExactly(null, first);
+        assertThat(cache.revalidations()).isEqualTo(1);
+        assertThat(cache.notModified()).isEqualTo(1);
+        assertThat(cache.hits()).isEqualTo(0);
+        assertThat(executor.tasks).isEmpty();
+    }
+
+    @Test void shouldNotReturnStaleVersionsWithinTtlWithValidators() {
+        current = new VersionListing(singletonList(V1), "\"1\"", null);
+        versions();
+        current = new VersionListing(asList(V1, V2), "\"2\"", null);
+        clock.advance(Duration.ofSeconds(1));
+
+        List<Version> versions = versions();
+
+        assertThat(versions).containsExactly(V1, V2);
+        assertThat(cache.revalidations()).isEqualTo(1);
+        assertThat(cache.notModified()).isEqualTo(0);
+    }
+
+    @Test void shouldRefreshAheadInBackground() {
+        versions();
+        current = VersionListing.of(asList(V1, V2));
+        clock.advance(Duration.ofMinutes(9));
+
+        List<Version> stale = versions();
+        versions();
+        assertThat(executor.tasks).hasSize(1);
+        executor.runAll();
+        List<Version> refreshed = versions();
+
+        assertThat(stale).containsExactly(V1);
+        assertThat(refreshed).containsExactly(V1, V2);
+        assertThat(fetched).hasSize(2);
+        assertThat(cache.hits()).isEqualTo(3);
+    }
+
+    @Test void shouldKeepVersionsWhenBackgroundRefreshFails() {
+        versions();
+        clock.advance(Duration.ofMinutes(9));
+        cache.versions(GROUP_ID, ARTIFACT_ID, false, previous -> {
+            throw new RuntimeException("repository down");
+        });
+
+        executor.runAll();
+
+        assertThat(versions()).containsExactly(V1);
+    }
+
+    @Test void shouldNotCacheFailedFetch() {
+        catchThrowable(() -> cache.versions(GROUP_ID, ARTIFACT_ID, false, previous -> {
+            throw new RuntimeException("repository down");
+        }));
+
+        List<Version> versions = versions();
+
+        assertThat(versions).containsExactly(V1);
+        assertThat(fetched).containsExactly((VersionListing) null);
+    }
+
+    @Test void shouldCacheSnapshotsSeparately() {
+        versions();
+
+        cache.versions(GROUP_ID, ARTIFACT_ID, true, this::fetch);
+
+        assertThat(fetched).hasSize(2);
+    }
+}
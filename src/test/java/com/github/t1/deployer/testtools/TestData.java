@@ -6,6 +6,9 @@ import com.github.t1.deployer.model.Expressions.VariableName;
 import com.github.t1.deployer.model.GroupId;
 import com.github.t1.deployer.model.Version;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static com.github.t1.deployer.model.ArtifactType.jar;
 import static com.github.t1.deployer.model.ArtifactType.pom;
 import static com.github.t1.deployer.model.ArtifactType.war;
@@ -13,6 +16,13 @@ import static com.github.t1.deployer.repository.ArtifactoryMock.checksumFor;
 import static com.github.t1.deployer.repository.ArtifactoryMock.dummyWar;
 
 public class TestData {
+    /** Stands in for the executor managed by the container */
+    public static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "test-executor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     public static final VariableName VERSION = new VariableName("version");
 
     public static final GroupId ORG_JOLOKIA = new GroupId("org.jolokia");
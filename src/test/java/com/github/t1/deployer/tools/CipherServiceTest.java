@@ -0,0 +1,138 @@
+package com.github.t1.deployer.tools;
+
+import com.github.t1.deployer.model.Age;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.KeyStore.PasswordProtection;
+import java.security.KeyStore.SecretKeyEntry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static java.time.ZoneOffset.UTC;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CipherServiceTest {
+    @TempDir Path dir;
+
+    private static class TestClock extends Clock {
+        Instant now = Instant.parse("2020-01-01T00:00:00Z");
+
+        @Override public ZoneId getZone() { return UTC; }
+
+        @Override public Clock withZone(ZoneId zone) { throw new UnsupportedOperationException(); }
+
+        @Override public Instant instant() { return now; }
+
+        void advance(Duration duration) { now = now.plus(duration); }
+    }
+
+    private final TestClock clock = new TestClock();
+    private final CipherService cipher = new CipherService();
+
+    @BeforeEach void setUp() { cipher.clock = clock; }
+    /** The key currently in the keystore file, to encrypt without the cache */
+    private Key key;
+
+    private KeyStoreConfig givenKeyStore(Instant modified) throws Exception {
+        Path path = dir.resolve("test.keystore");
+        KeyStore store = KeyStore.getInstance("jceks");
+        store.load(null, null);
+        SecretKey key = KeyGenerator.getInstance("AES").generateKey();
+        this.key = key;
+        store.setEntry("secretkey", new SecretKeyEntry(key),
+            new PasswordProtection("changeit".toCharArray()));
+        try (OutputStream out = Files.newOutputStream(path)) {
+            store.store(out, "changeit".toCharArray());
+        }
+        Files.setLastModifiedTime(path, FileTime.from(modified));
+        return new KeyStoreConfig().setPath(path.toString()).setType("jceks").setPass("changeit").setAlias("secretkey");
+    }
+
+    private static final Instant MODIFIED = Instant.parse("2020-01-01T00:00:00Z");
+
+    /** the plain text, or <code>null</code> if the key doesn't match the secret */
+    private String tryDecrypt(String secret, KeyStoreConfig config) {
+        try {
+            return cipher.decrypt(secret, config);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Test void shouldUseCachedKeyWhileKeyStoreIsUnmodified() throws Exception {
+        KeyStoreConfig config = givenKeyStore(MODIFIED);
+        Key old = key;
+        assertThat(cipher.decrypt(cipher.encrypt("foo", old), config)).isEqualTo("foo");
+
+        givenKeyStore(MODIFIED);
+
+        assertThat(cipher.decrypt(cipher.encrypt("bar", old), config)).isEqualTo("bar");
+        assertThat(tryDecrypt(cipher.encrypt("bar", key), config)).isNotEqualTo("bar");
+    }
+
+    @Test void shouldReloadKeyWhenKeyStoreIsModified() throws Exception {
+        KeyStoreConfig config = givenKeyStore(MODIFIED);
+        String secret = cipher.encrypt("foo", key);
+        assertThat(cipher.decrypt(secret, config)).isEqualTo("foo");
+
+        givenKeyStore(MODIFIED.plus(Duration.ofDays(1)));
+
+        assertThat(tryDecrypt(secret, config)).isNotEqualTo("foo");
+        assertThat(cipher.decrypt(cipher.encrypt("bar", key), config)).isEqualTo("bar");
+    }
+
+    @Test void shouldMemoizeDecryptedValueWithinTtl() throws Exception {
+        KeyStoreConfig config = givenKeyStore(MODIFIED).setMemoTtl(Age.ofMinutes(5));
+        String secret = cipher.encrypt("foo", key);
+        assertThat(cipher.decrypt(secret, config)).isEqualTo("foo");
+
+        clock.advance(Duration.ofMinutes(4));
+
+        assertThat(cipher.isMemoized(secret, config)).isTrue();
+        assertThat(cipher.decrypt(secret, config)).isEqualTo("foo");
+    }
+
+    @Test void shouldForgetMemoizedValuesWhenKeyStoreIsModified() throws Exception {
+        KeyStoreConfig config = givenKeyStore(MODIFIED).setMemoTtl(Age.ofMinutes(5));
+        String secret = cipher.encrypt("foo", key);
+        assertThat(cipher.decrypt(secret, config)).isEqualTo("foo");
+        assertThat(cipher.decrypt(secret, config)).isEqualTo("foo");
+
+        givenKeyStore(MODIFIED.plus(Duration.ofDays(1)));
+
+        assertThat(tryDecrypt(secret, config)).isNotEqualTo("foo");
+        assertThat(cipher.isMemoized(secret, config)).isFalse();
+    }
+
+    @Test void shouldForgetMemoizedValuesAfterTtl() throws Exception {
+        KeyStoreConfig config = givenKeyStore(MODIFIED).setMemoTtl(Age.ofMinutes(5));
+        String secret = cipher.encrypt("foo", key);
+        assertThat(cipher.decrypt(secret, config)).isEqualTo("foo");
+
+        clock.advance(Duration.ofMinutes(6));
+
+        assertThat(cipher.isMemoized(secret, config)).isFalse();
+        assertThat(cipher.decrypt(cipher.encrypt("bar", key), config)).isEqualTo("bar");
+        assertThat(cipher.isMemoized(secret, config)).isFalse();
+        assertThat(cipher.decrypt(secret, config)).isEqualTo("foo");
+        assertThat(cipher.isMemoized(secret, config)).isTrue();
+    }
+
+    @Test void shouldConcealPassOfKeyStore() {
+        KeyStoreConfig config = new KeyStoreConfig().setPath("foo").setPass("secret-pass");
+
+        assertThat(config.toString()).doesNotContain("secret-pass");
+    }
+}